@@ -1,14 +1,18 @@
 package com.covoituragedigitalise.trip;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @SpringBootApplication
 public class TripServiceApplication {
 
+    private static final Logger log = LoggerFactory.getLogger(TripServiceApplication.class);
+
     public static void main(String[] args) {
-        System.out.println("🚗 Démarrage du Trip Service...");
+        log.info("🚗 Démarrage du Trip Service...");
         SpringApplication.run(TripServiceApplication.class, args);
-        System.out.println("✅ Trip Service démarré avec succès!");
+        log.info("✅ Trip Service démarré avec succès!");
     }
 }
\ No newline at end of file
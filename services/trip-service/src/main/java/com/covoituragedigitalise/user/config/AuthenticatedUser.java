@@ -0,0 +1,43 @@
+package com.covoituragedigitalise.trip.config;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Identité de l'appelant, construite une seule fois par JwtAuthenticationFilter à partir des claims
+ * vérifiés du token et placée dans le SecurityContext (lue via @AuthenticationPrincipal).
+ * user-service signe uid, isDriver et status dans le token : aucun appel réseau ni requête SQL
+ * n'est nécessaire pour connaître l'appelant.
+ */
+public record AuthenticatedUser(String email, Long userId, boolean driver, String status, Date expiresAt) {
+
+    public static AuthenticatedUser from(Claims claims) {
+        Number uid = claims.get("uid", Number.class);
+        return new AuthenticatedUser(
+                claims.getSubject(),
+                uid != null ? uid.longValue() : null,
+                Boolean.TRUE.equals(claims.get("isDriver", Boolean.class)),
+                claims.get("status", String.class),
+                claims.getExpiration()
+        );
+    }
+
+    // Les tokens émis avant l'ajout des claims d'identité ne sont plus acceptés
+    public boolean hasIdentity() {
+        return userId != null && "ACTIVE".equals(status);
+    }
+
+    // ✅ ID du passager connecté
+    public Long passengerId() {
+        return userId;
+    }
+
+    // ✅ ID du conducteur connecté (refusé si l'utilisateur n'est pas conducteur)
+    public Long driverId() {
+        if (!driver) {
+            throw new IllegalArgumentException("Action réservée aux conducteurs");
+        }
+        return userId;
+    }
+}
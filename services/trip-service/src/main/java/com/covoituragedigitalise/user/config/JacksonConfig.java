@@ -0,0 +1,19 @@
+package com.covoituragedigitalise.trip.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sérialisation JSON : le module Blackbird remplace l'accès réflexif aux accesseurs par des
+ * lambdas générées (LambdaMetafactory). Spring Boot enregistre tout bean Module dans l'ObjectMapper.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
@@ -1,10 +1,13 @@
 package com.covoituragedigitalise.trip.config;
 
 import com.covoituragedigitalise.trip.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -19,6 +22,8 @@ import java.util.List;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
     @Autowired
     private JwtService jwtService;
 
@@ -32,56 +37,53 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String requestPath = request.getRequestURI();
         String method = request.getMethod();
 
-        System.out.println("🔍 JWT FILTER - URL: " + requestPath);
-        System.out.println("🔍 JWT FILTER - Method: " + method);
+        log.debug("🔍 JWT FILTER - URL: {}", requestPath);
+        log.debug("🔍 JWT FILTER - Method: {}", method);
 
         final String authHeader = request.getHeader("Authorization");
-        System.out.println("🔍 JWT FILTER - Auth Header: " + authHeader);
 
         // Laisser passer les endpoints publics
         if (isPublicEndpoint(requestPath, method)) {
-            System.out.println("🟢 JWT FILTER - Endpoint public, accès autorisé");
+            log.debug("🟢 JWT FILTER - Endpoint public, accès autorisé");
             filterChain.doFilter(request, response);
             return;
         }
 
         final String jwt;
-        final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            System.out.println("❌ JWT FILTER - Pas de token Bearer trouvé");
+            log.debug("❌ JWT FILTER - Pas de token Bearer trouvé");
             filterChain.doFilter(request, response);
             return;
         }
 
         jwt = authHeader.substring(7);
-        System.out.println("🔑 JWT FILTER - Token extrait: " + jwt.substring(0, Math.min(jwt.length(), 20)) + "...");
 
         try {
-            userEmail = jwtService.extractUsername(jwt);
-            System.out.println("📧 JWT FILTER - Email extrait: " + userEmail);
-
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-                if (jwtService.isTokenValid(jwt, userEmail)) {
-                    System.out.println("✅ JWT FILTER - Token valide");
-
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userEmail,
-                            null,
-                            List.of(new SimpleGrantedAuthority("ROLE_USER"))
-                    );
-                    authToken.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    System.out.println("🎯 JWT FILTER - Authentication définie dans SecurityContext");
-                } else {
-                    System.out.println("❌ JWT FILTER - Token invalide");
+            // Une seule vérification de signature par requête
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                Claims claims = jwtService.parseToken(jwt);
+                AuthenticatedUser principal = AuthenticatedUser.from(claims);
+                if (!principal.hasIdentity()) {
+                    log.debug("❌ JWT FILTER - Token sans identité ou compte inactif: {}", principal.email());
+                    filterChain.doFilter(request, response);
+                    return;
                 }
+                log.debug("✅ JWT FILTER - Token valide pour: {}", principal.email());
+
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        principal,
+                        null,
+                        List.of(new SimpleGrantedAuthority("ROLE_USER"))
+                );
+                authToken.setDetails(
+                        new WebAuthenticationDetailsSource().buildDetails(request)
+                );
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+                log.debug("🎯 JWT FILTER - Authentication définie dans SecurityContext");
             }
         } catch (Exception e) {
-            System.err.println("❌ JWT FILTER - Erreur lors du traitement du token: " + e.getMessage());
+            log.warn("❌ JWT FILTER - Token invalide: {}", e.getMessage());
         }
 
         filterChain.doFilter(request, response);
@@ -91,6 +93,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Endpoints publics (sans authentification)
         return path.contains("/health") ||
                 (path.equals("/api/trips/search") && "GET".equals(method)) ||
+                (path.equals("/api/trips/nearby") && "GET".equals(method)) ||
+                (path.equals("/api/places/autocomplete") && "GET".equals(method)) ||
                 (path.startsWith("/api/trips/") && "GET".equals(method) && path.matches("/api/trips/\\d+"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.covoituragedigitalise.trip.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // Cette classe active les tâches planifiées (@Scheduled), par exemple TripExpiryJob
+}
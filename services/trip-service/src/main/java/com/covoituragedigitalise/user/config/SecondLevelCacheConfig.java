@@ -0,0 +1,103 @@
+package com.covoituragedigitalise.trip.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache de second niveau Hibernate (JCache sur Caffeine, local à l'instance).
+ * - trips : entités Trip par id (GET /api/trips/{id}, rechargement du trajet à la réservation).
+ *   Les écritures par entité (updateTrip, cancelTrip, updateTripStatus) mettent l'entrée à jour ;
+ *   la réservation et la libération de places (UPDATE natifs, TripRepositoryImpl) n'évincent que le trajet
+ *   concerné ; les UPDATE en masse JPQL, rares (expiration, liaison des lieux), vident toute la région.
+ * - trips-search : résultats des requêtes de recherche (TripRepositoryImpl.searchTrips, repli de l'index
+ *   en mémoire, et recherches géographiques findTripsByProximity / findTripsInBoundingBox), invalidés par
+ *   Hibernate dès qu'une écriture touche la table trips (région des horodatages, jamais expirée), sauf
+ *   les changements de places, visibles à l'expiration de l'entrée.
+ * Ratio de succès : jauge trip.cache.hit.ratio (région trips, depuis le démarrage), et le détail par
+ * hibernate.second.level.cache.requests (tags region, result=hit|miss) et hibernate.cache.query.requests
+ * sur /actuator/metrics.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String TRIP_REGION = "trips";
+    public static final String TRIP_SEARCH_REGION = "trips-search";
+
+    @Value("${trip.cache.max-size:10000}")
+    private long tripMaxSize;
+
+    @Value("${trip.cache.ttl-ms:600000}")
+    private long tripTtlMs;
+
+    @Value("${trip.cache.search.max-size:1000}")
+    private long searchMaxSize;
+
+    @Value("${trip.cache.search.ttl-ms:60000}")
+    private long searchTtlMs;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        createCache(cacheManager, TRIP_REGION, OptionalLong.of(tripMaxSize), OptionalLong.of(tripTtlMs));
+        createCache(cacheManager, TRIP_SEARCH_REGION, OptionalLong.of(searchMaxSize), OptionalLong.of(searchTtlMs));
+        createCache(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                OptionalLong.of(searchMaxSize), OptionalLong.of(searchTtlMs));
+        // Une entrée par table : ni borne ni expiration, sinon une invalidation pourrait être perdue
+        createCache(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                OptionalLong.empty(), OptionalLong.empty());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    // Jauge lue à la demande : la fabrique JPA, qui dépend du CacheManager ci-dessus, n'est pas requise ici
+    @Bean
+    public MeterBinder tripCacheHitRatio(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        return registry -> Gauge.builder("trip.cache.hit.ratio", entityManagerFactory,
+                        provider -> hitRatio(provider.getObject(), TRIP_REGION))
+                .tag("region", TRIP_REGION)
+                .register(registry);
+    }
+
+    // Succès / lectures de la région depuis le démarrage (NaN sans lecture ou sans statistiques Hibernate)
+    public static double hitRatio(EntityManagerFactory entityManagerFactory, String region) {
+        CacheRegionStatistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                .getDomainDataRegionStatistics(region);
+        long reads = statistics == null ? 0 : statistics.getHitCount() + statistics.getMissCount();
+        return reads == 0 ? Double.NaN : (double) statistics.getHitCount() / reads;
+    }
+
+    private static void createCache(CacheManager cacheManager, String name, OptionalLong maxSize, OptionalLong ttlMs) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maxSize);
+        if (ttlMs.isPresent()) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMs.getAsLong())));
+        }
+        configuration.setStatisticsEnabled(true);
+        cacheManager.createCache(name, configuration);
+    }
+}
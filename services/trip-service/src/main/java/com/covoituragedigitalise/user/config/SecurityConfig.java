@@ -1,8 +1,12 @@
 package com.covoituragedigitalise.trip.config;
 
+import jakarta.servlet.DispatcherType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -13,28 +17,35 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        System.out.println("🔧 SecurityConfig - Configuration avec JwtAuthenticationFilter");
+        log.info("🔧 SecurityConfig - Configuration avec JwtAuthenticationFilter");
 
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(authz -> authz
-                        // Endpoints publics
-                        .requestMatchers("/api/*/health").permitAll()
-                        .requestMatchers("/api/trips/search").permitAll()
-                        .requestMatchers("/api/trips/{tripId}").permitAll()
-                        .requestMatchers("/actuator/**").permitAll()
-                        .requestMatchers("/error").permitAll()
+                        // Fin des réponses en flux (exports) : requête déjà autorisée à son arrivée
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
 
-                        // Endpoints protégés - Trajets
+                        // Endpoints protégés - Trajets (déclarés avant le détail public, qui les masquerait)
                         .requestMatchers("/api/trips").authenticated()
-                        .requestMatchers("/api/trips/my-trips").authenticated()
+                        .requestMatchers("/api/trips/my-trips/**").authenticated()
                         .requestMatchers("/api/trips/stats").authenticated()
 
+                        // Endpoints publics (lecture seule ; modification et annulation restent protégées)
+                        .requestMatchers("/api/*/health").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/trips/search").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/trips/nearby").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/trips/{tripId:\\d+}").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/places/autocomplete").permitAll()
+                        .requestMatchers("/actuator/**").permitAll()
+                        .requestMatchers("/error").permitAll()
+
                         // Endpoints protégés - Réservations
                         .requestMatchers("/api/bookings/**").authenticated()
 
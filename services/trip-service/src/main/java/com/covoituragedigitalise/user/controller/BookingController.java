@@ -1,15 +1,28 @@
 package com.covoituragedigitalise.trip.controller;
 
+import com.covoituragedigitalise.trip.config.AuthenticatedUser;
+import com.covoituragedigitalise.trip.dto.BookingResult;
+import com.covoituragedigitalise.trip.dto.BookingSliceResult;
+import com.covoituragedigitalise.trip.dto.BookingView;
 import com.covoituragedigitalise.trip.entity.Booking;
+import com.covoituragedigitalise.trip.mapper.ResponseMapper;
+import com.covoituragedigitalise.trip.service.BookingSequencer;
 import com.covoituragedigitalise.trip.service.BookingService;
-import com.covoituragedigitalise.trip.service.JwtService;
+import com.covoituragedigitalise.trip.service.EarningsRollupService;
+import com.covoituragedigitalise.trip.service.ExportService;
+import com.covoituragedigitalise.trip.service.IdempotencyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,11 +30,25 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class BookingController {
 
+    private static final Logger log = LoggerFactory.getLogger(BookingController.class);
+
     @Autowired
     private BookingService bookingService;
 
     @Autowired
-    private JwtService jwtService;
+    private BookingSequencer bookingSequencer;
+
+    @Autowired
+    private EarningsRollupService earningsRollupService;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private ResponseMapper responseMapper;
+
+    @Autowired
+    private ExportService exportService;
 
     // ✅ Health Check
     @GetMapping("/health")
@@ -33,32 +60,32 @@ public class BookingController {
         ));
     }
 
-    // ✅ CRÉER une nouvelle réservation
+    // ✅ CRÉER une nouvelle réservation (rejouable avec Idempotency-Key)
     @PostMapping
     public ResponseEntity<?> createBooking(
-            @RequestHeader("Authorization") String authHeader,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
             @RequestBody Map<String, Object> bookingData) {
-        try {
-            System.out.println("📝 BOOKING - CREATE - Début");
+        return idempotencyStore.execute("bookings.create", currentUser.userId(), idempotencyKey, bookingData,
+                () -> doCreateBooking(currentUser, bookingData));
+    }
 
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+    private ResponseEntity<?> doCreateBooking(AuthenticatedUser currentUser, Map<String, Object> bookingData) {
+        try {
+            log.debug("📝 BOOKING - CREATE - Début");
 
-            // TODO: Appeler User Service pour obtenir l'ID du passager
-            Long passengerId = 2L; // À remplacer par l'appel au User Service
+            Long passengerId = currentUser.passengerId();
 
-            Booking booking = bookingService.createBooking(passengerId, bookingData);
+            Booking booking = bookingSequencer.createBooking(passengerId, bookingData);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 201);
-            response.put("message", "Réservation créée avec succès");
-            response.put("booking", formatBookingResponse(booking));
+            BookingResult response = new BookingResult(201, "Réservation créée avec succès",
+                    responseMapper.toResponse(booking));
 
-            System.out.println("✅ BOOKING - CREATE - Succès");
+            log.debug("✅ BOOKING - CREATE - Succès");
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - CREATE - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - CREATE - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -66,27 +93,26 @@ public class BookingController {
 
     // ✅ OBTENIR les réservations du passager connecté
     @GetMapping("/my-bookings")
-    public ResponseEntity<?> getMyBookings(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getMyBookings(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            System.out.println("🔍 BOOKING - MY BOOKINGS - Début");
-
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+            log.debug("🔍 BOOKING - MY BOOKINGS - Début");
 
-            // TODO: Appeler User Service pour obtenir l'ID
-            Long passengerId = 2L; // À remplacer
+            Long passengerId = currentUser.passengerId();
 
-            List<Booking> bookings = bookingService.getPassengerBookings(passengerId);
+            Slice<BookingView> bookings = bookingService.getPassengerBookings(passengerId, page, size);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", bookings.size() + " réservation(s) trouvée(s)");
-            response.put("bookings", bookings.stream().map(this::formatBookingResponse).toList());
+            BookingSliceResult response = new BookingSliceResult(200,
+                    bookings.getNumberOfElements() + " réservation(s) trouvée(s)",
+                    bookings.stream().map(responseMapper::toResponse).toList(),
+                    bookings.getNumber(), bookings.hasNext());
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - MY BOOKINGS - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - MY BOOKINGS - Erreur: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("status", 401, "message", "Token invalide"));
         }
@@ -94,55 +120,85 @@ public class BookingController {
 
     // ✅ OBTENIR les réservations pour les trajets du conducteur
     @GetMapping("/driver-bookings")
-    public ResponseEntity<?> getDriverBookings(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getDriverBookings(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            System.out.println("🔍 BOOKING - DRIVER BOOKINGS - Début");
+            log.debug("🔍 BOOKING - DRIVER BOOKINGS - Début");
 
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+            Long driverId = currentUser.driverId();
 
-            // TODO: Appeler User Service pour obtenir l'ID et vérifier que c'est un conducteur
-            Long driverId = 1L; // À remplacer
+            Slice<BookingView> bookings = bookingService.getDriverBookings(driverId, page, size);
 
-            List<Booking> bookings = bookingService.getDriverBookings(driverId);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", bookings.size() + " réservation(s) trouvée(s)");
-            response.put("bookings", bookings.stream().map(this::formatBookingResponse).toList());
+            BookingSliceResult response = new BookingSliceResult(200,
+                    bookings.getNumberOfElements() + " réservation(s) trouvée(s)",
+                    bookings.stream().map(responseMapper::toResponse).toList(),
+                    bookings.getNumber(), bookings.hasNext());
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - DRIVER BOOKINGS - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - DRIVER BOOKINGS - Erreur: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("status", 401, "message", "Token invalide"));
         }
     }
 
+    // ✅ EXPORTER toutes les réservations du passager connecté (NDJSON ou CSV, en flux)
+    @GetMapping("/my-bookings/export")
+    public ResponseEntity<?> exportMyBookings(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            log.debug("📦 BOOKING - EXPORT MY BOOKINGS - Format: {}", format);
+            return exportService.exportPassengerBookings(currentUser.passengerId(), format);
+
+        } catch (Exception e) {
+            log.warn("❌ BOOKING - EXPORT MY BOOKINGS - Erreur: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", 400, "message", e.getMessage()));
+        }
+    }
+
+    // ✅ EXPORTER toutes les réservations sur les trajets du conducteur (NDJSON ou CSV, en flux)
+    @GetMapping("/driver-bookings/export")
+    public ResponseEntity<?> exportDriverBookings(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            log.debug("📦 BOOKING - EXPORT DRIVER BOOKINGS - Format: {}", format);
+            return exportService.exportDriverBookings(currentUser.driverId(), format);
+
+        } catch (Exception e) {
+            log.warn("❌ BOOKING - EXPORT DRIVER BOOKINGS - Erreur: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", 400, "message", e.getMessage()));
+        }
+    }
+
     // ✅ OBTENIR les réservations en attente pour le conducteur
     @GetMapping("/pending")
-    public ResponseEntity<?> getPendingBookings(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getPendingBookings(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            System.out.println("⏳ BOOKING - PENDING - Début");
-
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+            log.debug("⏳ BOOKING - PENDING - Début");
 
-            // TODO: Appeler User Service pour obtenir l'ID et vérifier que c'est un conducteur
-            Long driverId = 1L; // À remplacer
+            Long driverId = currentUser.driverId();
 
-            List<Booking> bookings = bookingService.getPendingBookingsForDriver(driverId);
+            Slice<BookingView> bookings = bookingService.getPendingBookingsForDriver(driverId, page, size);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", bookings.size() + " réservation(s) en attente");
-            response.put("bookings", bookings.stream().map(this::formatBookingResponse).toList());
+            BookingSliceResult response = new BookingSliceResult(200,
+                    bookings.getNumberOfElements() + " réservation(s) en attente",
+                    bookings.stream().map(responseMapper::toResponse).toList(),
+                    bookings.getNumber(), bookings.hasNext());
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - PENDING - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - PENDING - Erreur: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("status", 401, "message", "Token invalide"));
         }
@@ -152,28 +208,22 @@ public class BookingController {
     @PutMapping("/{bookingId}/confirm")
     public ResponseEntity<?> confirmBooking(
             @PathVariable Long bookingId,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            System.out.println("✅ BOOKING - CONFIRM - ID: " + bookingId);
+            log.debug("✅ BOOKING - CONFIRM - ID: {}", bookingId);
 
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+            Long driverId = currentUser.driverId();
 
-            // TODO: Appeler User Service pour obtenir l'ID et vérifier que c'est un conducteur
-            Long driverId = 1L; // À remplacer
+            Booking booking = bookingSequencer.confirmBooking(bookingId, driverId);
 
-            Booking booking = bookingService.confirmBooking(bookingId, driverId);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", "Réservation confirmée avec succès");
-            response.put("booking", formatBookingResponse(booking));
+            BookingResult response = new BookingResult(200, "Réservation confirmée avec succès",
+                    responseMapper.toResponse(booking));
 
-            System.out.println("✅ BOOKING - CONFIRM - Succès");
+            log.debug("✅ BOOKING - CONFIRM - Succès");
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - CONFIRM - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - CONFIRM - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -183,28 +233,21 @@ public class BookingController {
     @PutMapping("/{bookingId}/reject")
     public ResponseEntity<?> rejectBooking(
             @PathVariable Long bookingId,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            System.out.println("❌ BOOKING - REJECT - ID: " + bookingId);
-
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+            log.debug("❌ BOOKING - REJECT - ID: {}", bookingId);
 
-            // TODO: Appeler User Service pour obtenir l'ID et vérifier que c'est un conducteur
-            Long driverId = 1L; // À remplacer
+            Long driverId = currentUser.driverId();
 
-            Booking booking = bookingService.rejectBooking(bookingId, driverId);
+            Booking booking = bookingSequencer.rejectBooking(bookingId, driverId);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", "Réservation rejetée");
-            response.put("booking", formatBookingResponse(booking));
+            BookingResult response = new BookingResult(200, "Réservation rejetée", responseMapper.toResponse(booking));
 
-            System.out.println("✅ BOOKING - REJECT - Succès");
+            log.debug("✅ BOOKING - REJECT - Succès");
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - REJECT - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - REJECT - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -214,28 +257,22 @@ public class BookingController {
     @DeleteMapping("/{bookingId}")
     public ResponseEntity<?> cancelBooking(
             @PathVariable Long bookingId,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            System.out.println("❌ BOOKING - CANCEL - ID: " + bookingId);
+            log.debug("❌ BOOKING - CANCEL - ID: {}", bookingId);
 
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+            Long passengerId = currentUser.passengerId();
 
-            // TODO: Appeler User Service pour obtenir l'ID
-            Long passengerId = 2L; // À remplacer
+            Booking booking = bookingSequencer.cancelBooking(bookingId, passengerId);
 
-            Booking booking = bookingService.cancelBooking(bookingId, passengerId);
+            BookingResult response = new BookingResult(200, "Réservation annulée avec succès",
+                    responseMapper.toResponse(booking));
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", "Réservation annulée avec succès");
-            response.put("booking", formatBookingResponse(booking));
-
-            System.out.println("✅ BOOKING - CANCEL - Succès");
+            log.debug("✅ BOOKING - CANCEL - Succès");
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - CANCEL - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - CANCEL - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -245,18 +282,16 @@ public class BookingController {
     @GetMapping("/{bookingId}")
     public ResponseEntity<?> getBookingDetails(@PathVariable Long bookingId) {
         try {
-            System.out.println("🔍 BOOKING - GET DETAILS - ID: " + bookingId);
+            log.debug("🔍 BOOKING - GET DETAILS - ID: {}", bookingId);
 
             Booking booking = bookingService.getBookingById(bookingId);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("booking", formatBookingResponse(booking));
+            BookingResult response = new BookingResult(200, null, responseMapper.toResponse(booking));
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - GET DETAILS - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - GET DETAILS - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -264,15 +299,11 @@ public class BookingController {
 
     // ✅ OBTENIR les statistiques du passager
     @GetMapping("/passenger-stats")
-    public ResponseEntity<?> getPassengerStats(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getPassengerStats(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            System.out.println("📊 BOOKING - PASSENGER STATS - Début");
-
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+            log.debug("📊 BOOKING - PASSENGER STATS - Début");
 
-            // TODO: Appeler User Service pour obtenir l'ID
-            Long passengerId = 2L; // À remplacer
+            Long passengerId = currentUser.passengerId();
 
             Map<String, Object> stats = bookingService.getPassengerStats(passengerId);
 
@@ -283,7 +314,7 @@ public class BookingController {
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - PASSENGER STATS - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - PASSENGER STATS - Erreur: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("status", 401, "message", "Token invalide"));
         }
@@ -291,15 +322,11 @@ public class BookingController {
 
     // ✅ OBTENIR les revenus du conducteur
     @GetMapping("/driver-earnings")
-    public ResponseEntity<?> getDriverEarnings(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getDriverEarnings(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            System.out.println("💰 BOOKING - DRIVER EARNINGS - Début");
+            log.debug("💰 BOOKING - DRIVER EARNINGS - Début");
 
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
-
-            // TODO: Appeler User Service pour obtenir l'ID et vérifier que c'est un conducteur
-            Long driverId = 1L; // À remplacer
+            Long driverId = currentUser.driverId();
 
             Map<String, Object> earnings = bookingService.getDriverEarnings(driverId);
 
@@ -310,37 +337,34 @@ public class BookingController {
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ BOOKING - DRIVER EARNINGS - Erreur: " + e.getMessage());
+            log.warn("❌ BOOKING - DRIVER EARNINGS - Erreur: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("status", 401, "message", "Token invalide"));
         }
     }
 
-    // 🔧 Méthode privée pour formater la réponse d'une réservation
-    private Map<String, Object> formatBookingResponse(Booking booking) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("bookingId", booking.getId());
-        response.put("tripId", booking.getTrip().getId());
-        response.put("passengerId", booking.getPassengerId());
-        response.put("seatsBooked", booking.getSeatsBooked());
-        response.put("totalPrice", booking.getTotalPrice());
-        response.put("bookingStatus", booking.getBookingStatus().toString());
-        response.put("bookingDate", booking.getBookingDate().toString());
-        response.put("pickupLocation", booking.getPickupLocation());
-        response.put("dropoffLocation", booking.getDropoffLocation());
-        response.put("specialRequests", booking.getSpecialRequests());
-        response.put("passengerPhone", booking.getPassengerPhone());
-        response.put("passengerName", booking.getPassengerName());
-        response.put("createdAt", booking.getCreatedAt().toString());
-
-        // Informations sur le trajet
-        Map<String, Object> tripInfo = new HashMap<>();
-        tripInfo.put("departureLocation", booking.getTrip().getDepartureLocation());
-        tripInfo.put("arrivalLocation", booking.getTrip().getArrivalLocation());
-        tripInfo.put("departureTime", booking.getTrip().getDepartureTime().toString());
-        tripInfo.put("driverId", booking.getTrip().getDriverId());
-        response.put("trip", tripInfo);
-
-        return response;
+    // ✅ OBTENIR les revenus du conducteur par jour, semaine ou mois
+    @GetMapping("/driver-earnings/range")
+    public ResponseEntity<?> getDriverEarningsRange(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity) {
+        try {
+            log.debug("💰 BOOKING - DRIVER EARNINGS RANGE - {} → {} ({})", from, to, granularity);
+
+            Long driverId = currentUser.driverId();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", 200);
+            response.put("earnings", earningsRollupService.getEarnings(driverId, from, to, granularity));
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.warn("❌ BOOKING - DRIVER EARNINGS RANGE - Erreur: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", 400, "message", e.getMessage()));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.covoituragedigitalise.trip.controller;
+
+import com.covoituragedigitalise.trip.dto.PlaceSuggestion;
+import com.covoituragedigitalise.trip.service.PlaceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/places")
+@CrossOrigin(origins = "*")
+public class PlaceController {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceController.class);
+
+    @Autowired
+    private PlaceService placeService;
+
+    // ✅ AUTOCOMPLÉTION des lieux (public)
+    @GetMapping("/autocomplete")
+    public ResponseEntity<?> autocomplete(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        log.debug("🔤 PLACE - AUTOCOMPLETE - {}", query);
+
+        List<PlaceSuggestion> places = placeService.autocomplete(query, limit);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 200);
+        response.put("places", places);
+
+        return ResponseEntity.ok(response);
+    }
+}
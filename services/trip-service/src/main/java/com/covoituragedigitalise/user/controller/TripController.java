@@ -1,13 +1,33 @@
 package com.covoituragedigitalise.trip.controller;
 
+import com.covoituragedigitalise.trip.config.AuthenticatedUser;
+import com.covoituragedigitalise.trip.dto.BookingCounts;
+import com.covoituragedigitalise.trip.dto.TripListResult;
+import com.covoituragedigitalise.trip.dto.TripResponse;
+import com.covoituragedigitalise.trip.dto.TripResult;
+import com.covoituragedigitalise.trip.dto.TripSearchDto;
+import com.covoituragedigitalise.trip.dto.TripSearchPage;
+import com.covoituragedigitalise.trip.dto.TripSearchResult;
 import com.covoituragedigitalise.trip.entity.Trip;
-import com.covoituragedigitalise.trip.service.JwtService;
+import com.covoituragedigitalise.trip.mapper.ResponseMapper;
+import com.covoituragedigitalise.trip.service.ExportService;
+import com.covoituragedigitalise.trip.service.IdempotencyStore;
 import com.covoituragedigitalise.trip.service.TripService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,11 +37,26 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class TripController {
 
+    private static final Logger log = LoggerFactory.getLogger(TripController.class);
+
     @Autowired
     private TripService tripService;
 
     @Autowired
-    private JwtService jwtService;
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private ResponseMapper responseMapper;
+
+    @Autowired
+    private ExportService exportService;
+
+    // Durées de fraîcheur des lectures publiques pour les caches partagés (proxy, CDN)
+    @Value("${trip.http.max-age-seconds:30}")
+    private long tripMaxAgeSeconds;
+
+    @Value("${trip.http.search.max-age-seconds:10}")
+    private long searchMaxAgeSeconds;
 
     // ✅ Health Check
     @GetMapping("/health")
@@ -33,76 +68,116 @@ public class TripController {
         ));
     }
 
-    // ✅ CRÉER un nouveau trajet (conducteur uniquement)
+    // ✅ CRÉER un nouveau trajet (conducteur uniquement, rejouable avec Idempotency-Key)
     @PostMapping
     public ResponseEntity<?> createTrip(
-            @RequestHeader("Authorization") String authHeader,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
             @RequestBody Map<String, Object> tripData) {
-        try {
-            System.out.println("🚗 TRIP - CREATE - Début");
+        return idempotencyStore.execute("trips.create", currentUser.userId(), idempotencyKey, tripData,
+                () -> doCreateTrip(currentUser, tripData));
+    }
 
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+    private ResponseEntity<?> doCreateTrip(AuthenticatedUser currentUser, Map<String, Object> tripData) {
+        try {
+            log.debug("🚗 TRIP - CREATE - Début");
 
-            // TODO: Appeler User Service pour obtenir l'ID et vérifier que c'est un conducteur
-            // Pour l'instant, on utilise un ID fictif
-            Long driverId = 1L; // À remplacer par l'appel au User Service
+            Long driverId = currentUser.driverId();
 
             Trip trip = tripService.createTrip(driverId, tripData);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 201);
-            response.put("message", "Trajet créé avec succès");
-            response.put("trip", formatTripResponse(trip));
+            TripResult response = new TripResult(201, "Trajet créé avec succès", responseMapper.toResponse(trip, countBookings(trip)));
 
-            System.out.println("✅ TRIP - CREATE - Succès");
+            log.debug("✅ TRIP - CREATE - Succès");
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
         } catch (Exception e) {
-            System.err.println("❌ TRIP - CREATE - Erreur: " + e.getMessage());
+            log.warn("❌ TRIP - CREATE - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
     }
 
-    // ✅ RECHERCHER des trajets
+    // ✅ RECHERCHER des trajets (filtres, tri et pagination par curseur ; ETag tiré de la version de l'index)
     @GetMapping("/search")
-    public ResponseEntity<?> searchTrips(@RequestParam Map<String, Object> searchParams) {
+    public ResponseEntity<?> searchTrips(
+            @ModelAttribute TripSearchDto searchDto,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest request) {
         try {
-            System.out.println("🔍 TRIP - SEARCH - Critères: " + searchParams);
+            log.debug("🔍 TRIP - SEARCH - {} → {} (tri: {})", searchDto.getDepartureLocation(),
+                    searchDto.getArrivalLocation(), searchDto.getSortBy());
 
-            List<Trip> trips = tripService.searchTrips(searchParams);
+            // Version lue avant la recherche : au pire le client revalide une fois de trop
+            CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(searchMaxAgeSeconds)).cachePublic();
+            String etag = tripService.getSearchVersion();
+            if (etag != null && request.checkNotModified(etag)) {
+                log.debug("♻️ TRIP - SEARCH - Non modifié");
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+            }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", trips.size() + " trajet(s) trouvé(s)");
-            response.put("trips", trips.stream().map(this::formatTripResponse).toList());
+            TripSearchPage page = tripService.searchTrips(searchDto, cursor, size);
+
+            TripSearchResult response = new TripSearchResult(200, page.trips().size() + " trajet(s) trouvé(s)",
+                    page.trips().stream().map(responseMapper::toSummary).toList(), page.nextCursor());
+
+            // checkNotModified a déjà posé l'en-tête ETag sur la réponse
+            return ResponseEntity.ok().cacheControl(cacheControl).body(response);
+
+        } catch (Exception e) {
+            log.warn("❌ TRIP - SEARCH - Erreur: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", 400, "message", e.getMessage()));
+        }
+    }
+
+    // ✅ RECHERCHER des trajets à proximité d'un point de départ
+    @GetMapping("/nearby")
+    public ResponseEntity<?> searchTripsNearby(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(defaultValue = "10") Double radiusKm) {
+        try {
+            log.debug("📍 TRIP - NEARBY - {},{} ({} km)", latitude, longitude, radiusKm);
+
+            List<Trip> trips = tripService.searchTripsNearby(latitude, longitude, radiusKm);
+
+            TripListResult response = new TripListResult(200, trips.size() + " trajet(s) trouvé(s)",
+                    toResponses(trips));
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ TRIP - SEARCH - Erreur: " + e.getMessage());
+            log.warn("❌ TRIP - NEARBY - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
     }
 
-    // ✅ OBTENIR les détails d'un trajet
+    // ✅ OBTENIR les détails d'un trajet (ETag / Last-Modified, 304 sans charger le trajet)
     @GetMapping("/{tripId}")
-    public ResponseEntity<?> getTripDetails(@PathVariable Long tripId) {
+    public ResponseEntity<?> getTripDetails(@PathVariable Long tripId, WebRequest request) {
         try {
-            System.out.println("🔍 TRIP - GET DETAILS - ID: " + tripId);
+            log.debug("🔍 TRIP - GET DETAILS - ID: {}", tripId);
+
+            CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(tripMaxAgeSeconds)).cachePublic();
+            LocalDateTime version = tripService.getTripVersion(tripId);
+            if (request.checkNotModified(tripEtag(tripId, version),
+                    version.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())) {
+                log.debug("♻️ TRIP - GET DETAILS - Non modifié: {}", tripId);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+            }
 
             Trip trip = tripService.getTripById(tripId);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("trip", formatTripResponse(trip));
+            TripResult response = new TripResult(200, null, responseMapper.toResponse(trip, countBookings(trip)));
 
-            return ResponseEntity.ok(response);
+            // checkNotModified a déjà posé les en-têtes ETag et Last-Modified sur la réponse
+            return ResponseEntity.ok().cacheControl(cacheControl).body(response);
 
         } catch (Exception e) {
-            System.err.println("❌ TRIP - GET DETAILS - Erreur: " + e.getMessage());
+            log.warn("❌ TRIP - GET DETAILS - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -110,59 +185,62 @@ public class TripController {
 
     // ✅ OBTENIR les trajets du conducteur connecté
     @GetMapping("/my-trips")
-    public ResponseEntity<?> getMyTrips(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getMyTrips(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            System.out.println("🔍 TRIP - MY TRIPS - Début");
-
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+            log.debug("🔍 TRIP - MY TRIPS - Début");
 
-            // TODO: Appeler User Service pour obtenir l'ID
-            Long driverId = 1L; // À remplacer
+            Long driverId = currentUser.driverId();
 
             List<Trip> trips = tripService.getDriverTrips(driverId);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", trips.size() + " trajet(s) trouvé(s)");
-            response.put("trips", trips.stream().map(this::formatTripResponse).toList());
+            TripListResult response = new TripListResult(200, trips.size() + " trajet(s) trouvé(s)",
+                    toResponses(trips));
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ TRIP - MY TRIPS - Erreur: " + e.getMessage());
+            log.warn("❌ TRIP - MY TRIPS - Erreur: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("status", 401, "message", "Token invalide"));
         }
     }
 
+    // ✅ EXPORTER tous les trajets du conducteur connecté (NDJSON ou CSV, en flux)
+    @GetMapping("/my-trips/export")
+    public ResponseEntity<?> exportMyTrips(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            log.debug("📦 TRIP - EXPORT MY TRIPS - Format: {}", format);
+            return exportService.exportDriverTrips(currentUser.driverId(), format);
+
+        } catch (Exception e) {
+            log.warn("❌ TRIP - EXPORT MY TRIPS - Erreur: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", 400, "message", e.getMessage()));
+        }
+    }
+
     // ✅ MODIFIER un trajet
     @PutMapping("/{tripId}")
     public ResponseEntity<?> updateTrip(
             @PathVariable Long tripId,
-            @RequestHeader("Authorization") String authHeader,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestBody Map<String, Object> updateData) {
         try {
-            System.out.println("🔄 TRIP - UPDATE - ID: " + tripId);
+            log.debug("🔄 TRIP - UPDATE - ID: {}", tripId);
 
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
-
-            // TODO: Appeler User Service pour obtenir l'ID
-            Long driverId = 1L; // À remplacer
+            Long driverId = currentUser.driverId();
 
             Trip trip = tripService.updateTrip(tripId, driverId, updateData);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", "Trajet modifié avec succès");
-            response.put("trip", formatTripResponse(trip));
+            TripResult response = new TripResult(200, "Trajet modifié avec succès", responseMapper.toResponse(trip, countBookings(trip)));
 
-            System.out.println("✅ TRIP - UPDATE - Succès");
+            log.debug("✅ TRIP - UPDATE - Succès");
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ TRIP - UPDATE - Erreur: " + e.getMessage());
+            log.warn("❌ TRIP - UPDATE - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -172,15 +250,11 @@ public class TripController {
     @DeleteMapping("/{tripId}")
     public ResponseEntity<?> cancelTrip(
             @PathVariable Long tripId,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            System.out.println("❌ TRIP - CANCEL - ID: " + tripId);
+            log.debug("❌ TRIP - CANCEL - ID: {}", tripId);
 
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
-
-            // TODO: Appeler User Service pour obtenir l'ID
-            Long driverId = 1L; // À remplacer
+            Long driverId = currentUser.driverId();
 
             tripService.cancelTrip(tripId, driverId);
 
@@ -188,11 +262,11 @@ public class TripController {
             response.put("status", 200);
             response.put("message", "Trajet annulé avec succès");
 
-            System.out.println("✅ TRIP - CANCEL - Succès");
+            log.debug("✅ TRIP - CANCEL - Succès");
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ TRIP - CANCEL - Erreur: " + e.getMessage());
+            log.warn("❌ TRIP - CANCEL - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -200,15 +274,11 @@ public class TripController {
 
     // ✅ OBTENIR les statistiques du conducteur
     @GetMapping("/stats")
-    public ResponseEntity<?> getDriverStats(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getDriverStats(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            System.out.println("📊 TRIP - STATS - Début");
-
-            String token = authHeader.substring(7);
-            String email = jwtService.extractUsername(token);
+            log.debug("📊 TRIP - STATS - Début");
 
-            // TODO: Appeler User Service pour obtenir l'ID
-            Long driverId = 1L; // À remplacer
+            Long driverId = currentUser.driverId();
 
             Map<String, Object> stats = tripService.getDriverStats(driverId);
 
@@ -219,33 +289,25 @@ public class TripController {
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ TRIP - STATS - Erreur: " + e.getMessage());
+            log.warn("❌ TRIP - STATS - Erreur: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("status", 401, "message", "Token invalide"));
         }
     }
 
-    // 🔧 Méthode privée pour formater la réponse d'un trajet
-    private Map<String, Object> formatTripResponse(Trip trip) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("tripId", trip.getId());
-        response.put("driverId", trip.getDriverId());
-        response.put("departureLocation", trip.getDepartureLocation());
-        response.put("arrivalLocation", trip.getArrivalLocation());
-        response.put("departureTime", trip.getDepartureTime().toString());
-        response.put("availableSeats", trip.getAvailableSeats());
-        response.put("originalSeats", trip.getOriginalSeats());
-        response.put("pricePerSeat", trip.getPricePerSeat());
-        response.put("description", trip.getDescription());
-        response.put("tripStatus", trip.getTripStatus().toString());
-        response.put("isInstantBooking", trip.getIsInstantBooking());
-        response.put("createdAt", trip.getCreatedAt().toString());
-
-        // Informations sur les réservations
-        response.put("totalBookings", trip.getBookings().size());
-        response.put("confirmedBookings", trip.getBookings().stream()
-                .mapToInt(b -> b.isConfirmed() ? 1 : 0).sum());
-
-        return response;
+    // 🔧 ETag fort d'un trajet : id et dernière modification à la microseconde (Spring ajoute les guillemets)
+    private static String tripEtag(Long tripId, LocalDateTime version) {
+        long micros = version.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + version.getNano() / 1_000;
+        return "t" + tripId + "-" + micros;
+    }
+
+    // 🔧 Réponses d'une liste de trajets : compteurs de réservations lus en une seule requête
+    private List<TripResponse> toResponses(List<Trip> trips) {
+        Map<Long, BookingCounts> counts = tripService.countBookings(trips);
+        return trips.stream().map(trip -> responseMapper.toResponse(trip, counts.get(trip.getId()))).toList();
+    }
+
+    private BookingCounts countBookings(Trip trip) {
+        return tripService.countBookings(List.of(trip)).get(trip.getId());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package com.covoituragedigitalise.trip.dto;
+
+/**
+ * Nombre de réservations d'un trajet (toutes, et confirmées), compté par une requête groupée sur trip_id.
+ */
+public record BookingCounts(Long tripId, Long totalBookings, Long confirmedBookings) {
+}
@@ -0,0 +1,17 @@
+package com.covoituragedigitalise.trip.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Réservation et informations de son trajet, telles que renvoyées par /api/bookings.
+ */
+public record BookingResponse(Long bookingId, Long tripId, Long passengerId, Integer seatsBooked,
+                              BigDecimal totalPrice, String bookingStatus, String bookingDate,
+                              String pickupLocation, String dropoffLocation, String specialRequests,
+                              String passengerPhone, String passengerName, String holdExpiresAt,
+                              String createdAt, TripInfo trip) {
+
+    public record TripInfo(String departureLocation, String arrivalLocation, String departureTime,
+                           Long driverId) {
+    }
+}
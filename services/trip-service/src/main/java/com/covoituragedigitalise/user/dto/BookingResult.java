@@ -0,0 +1,10 @@
+package com.covoituragedigitalise.trip.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Réponse portant une réservation (création, confirmation, rejet, annulation, détail).
+ */
+public record BookingResult(int status, @JsonInclude(JsonInclude.Include.NON_NULL) String message,
+                            BookingResponse booking) {
+}
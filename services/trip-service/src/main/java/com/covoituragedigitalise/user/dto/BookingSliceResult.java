@@ -0,0 +1,10 @@
+package com.covoituragedigitalise.trip.dto;
+
+import java.util.List;
+
+/**
+ * Page de réservations (pagination par tranche, sans total).
+ */
+public record BookingSliceResult(int status, String message, List<BookingResponse> bookings, int page,
+                                 boolean hasNext) {
+}
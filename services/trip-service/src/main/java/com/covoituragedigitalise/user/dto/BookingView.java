@@ -0,0 +1,26 @@
+package com.covoituragedigitalise.trip.dto;
+
+import com.covoituragedigitalise.trip.entity.BookingStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Réservation et informations de son trajet, lues en une seule requête (projection JPQL)
+ * pour les listes de réservations.
+ */
+public record BookingView(Long bookingId, Long tripId, Long passengerId, Integer seatsBooked,
+                          BigDecimal totalPrice, BookingStatus bookingStatus, LocalDateTime bookingDate,
+                          String pickupLocation, String dropoffLocation, String specialRequests,
+                          String passengerPhone, String passengerName, LocalDateTime holdExpiresAt,
+                          LocalDateTime createdAt,
+                          String departureLocation, String arrivalLocation, LocalDateTime departureTime,
+                          Long driverId) {
+
+    // Sélection commune aux requêtes de BookingRepository (alias b = réservation, t = trajet)
+    public static final String SELECT = "SELECT new com.covoituragedigitalise.trip.dto.BookingView(" +
+            "b.id, t.id, b.passengerId, b.seatsBooked, b.totalPrice, b.bookingStatus, b.bookingDate, " +
+            "b.pickupLocation, b.dropoffLocation, b.specialRequests, b.passengerPhone, b.passengerName, " +
+            "b.holdExpiresAt, b.createdAt, t.departureLocation, t.arrivalLocation, t.departureTime, t.driverId) " +
+            "FROM Booking b JOIN b.trip t ";
+}
@@ -0,0 +1,10 @@
+package com.covoituragedigitalise.trip.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Revenus et places confirmés d'une période (jour, semaine ISO ou mois) commençant à periodStart.
+ */
+public record EarningsBucket(LocalDate periodStart, BigDecimal earnings, long seats) {
+}
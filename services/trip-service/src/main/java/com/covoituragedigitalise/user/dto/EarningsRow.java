@@ -0,0 +1,11 @@
+package com.covoituragedigitalise.trip.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Réservation confirmée réduite aux champs utiles aux rollups de revenus.
+ */
+public record EarningsRow(Long bookingId, Long driverId, LocalDateTime departureTime,
+                          BigDecimal totalPrice, Integer seatsBooked) {
+}
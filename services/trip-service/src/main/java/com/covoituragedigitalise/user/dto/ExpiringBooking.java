@@ -0,0 +1,11 @@
+package com.covoituragedigitalise.trip.dto;
+
+/**
+ * Réservation encore en attente sur un trajet déjà parti, sélectionnée par TripExpiryJob.
+ */
+public interface ExpiringBooking {
+    Long getId();
+    Long getTripId();
+    Long getPassengerId();
+    Long getDriverId();
+}
@@ -0,0 +1,10 @@
+package com.covoituragedigitalise.trip.dto;
+
+/**
+ * Trajet actif déjà parti, sélectionné par TripExpiryJob.
+ */
+public interface ExpiringTrip {
+    Long getId();
+    Long getDriverId();
+    boolean getHasConfirmedBookings();
+}
@@ -0,0 +1,20 @@
+package com.covoituragedigitalise.trip.dto;
+
+import com.covoituragedigitalise.trip.entity.OutboxEvent;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement tel que remis aux canaux de diffusion (OutboxSink) et aux listeners Spring.
+ * id est croissant et unique : les consommateurs s'en servent pour ignorer un doublon
+ * (livraison au moins une fois). payload est déjà du JSON et est sérialisé tel quel.
+ */
+public record OutboxMessage(Long id, String eventType, String aggregateType, Long aggregateId,
+                            Long tripId, @JsonRawValue String payload, LocalDateTime createdAt) {
+
+    public static OutboxMessage from(OutboxEvent event) {
+        return new OutboxMessage(event.getId(), event.getEventType(), event.getAggregateType(),
+                event.getAggregateId(), event.getTripId(), event.getPayload(), event.getCreatedAt());
+    }
+}
@@ -0,0 +1,7 @@
+package com.covoituragedigitalise.trip.dto;
+
+/**
+ * Proposition d'autocomplétion : lieu normalisé et son nom d'affichage.
+ */
+public record PlaceSuggestion(Long placeId, String name) {
+}
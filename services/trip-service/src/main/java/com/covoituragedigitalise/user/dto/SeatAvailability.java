@@ -0,0 +1,7 @@
+package com.covoituragedigitalise.trip.dto;
+
+/**
+ * Places encore disponibles sur un trajet actif (contrôle préalable des lots de BookingSequencer).
+ */
+public record SeatAvailability(Long tripId, Integer availableSeats) {
+}
@@ -0,0 +1,9 @@
+package com.covoituragedigitalise.trip.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Places retenues par une demande en attente, jusqu'à expiresAt.
+ */
+public record SeatHold(Long bookingId, Long tripId, LocalDateTime expiresAt) {
+}
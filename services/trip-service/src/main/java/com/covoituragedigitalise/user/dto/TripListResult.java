@@ -0,0 +1,9 @@
+package com.covoituragedigitalise.trip.dto;
+
+import java.util.List;
+
+/**
+ * Réponse portant une liste de trajets détaillés (trajets du conducteur, proximité).
+ */
+public record TripListResult(int status, String message, List<TripResponse> trips) {
+}
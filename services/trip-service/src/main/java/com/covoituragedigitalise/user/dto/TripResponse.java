@@ -0,0 +1,16 @@
+package com.covoituragedigitalise.trip.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * Détail d'un trajet : champs du résumé et nombre de réservations.
+ */
+public record TripResponse(Long tripId, Long driverId, String departureLocation, String arrivalLocation,
+                           Long departurePlaceId, Long arrivalPlaceId, String departureTime,
+                           Integer availableSeats, Integer originalSeats, BigDecimal pricePerSeat,
+                           String description, String tripStatus,
+                           @JsonProperty("isInstantBooking") Boolean isInstantBooking,
+                           String createdAt, int totalBookings, int confirmedBookings) {
+}
@@ -0,0 +1,10 @@
+package com.covoituragedigitalise.trip.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Réponse portant un trajet (création, détail, modification).
+ */
+public record TripResult(int status, @JsonInclude(JsonInclude.Include.NON_NULL) String message,
+                         TripResponse trip) {
+}
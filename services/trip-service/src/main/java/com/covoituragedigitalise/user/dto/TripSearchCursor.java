@@ -0,0 +1,81 @@
+package com.covoituragedigitalise.trip.dto;
+
+import com.covoituragedigitalise.trip.entity.Trip;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Curseur de pagination par clé (keyset) : tri de la recherche (colonne et sens), valeur de la colonne de tri
+ * + id du dernier trajet renvoyé. Encodé en Base64 URL-safe pour être opaque côté client.
+ * Un curseur n'est valable que pour le tri qui l'a produit : sinon la recherche est refusée (400).
+ * La position est stable pour les tris sur departureTime et price ; availableSeats varie avec les
+ * réservations, donc en tri "seats" un trajet modifié entre deux pages peut être sauté ou répété.
+ */
+public record TripSearchCursor(String sortBy, boolean descending, String sortValue, Long id) {
+
+    public static TripSearchCursor after(Trip trip, String sortBy, boolean descending) {
+        return new TripSearchCursor(sortBy, descending, sortValueOf(trip, sortBy), trip.getId());
+    }
+
+    public static String sortValueOf(Trip trip, String sortBy) {
+        return switch (sortBy) {
+            case "price" -> trip.getPricePerSeat().toPlainString();
+            case "seats" -> trip.getAvailableSeats().toString();
+            default -> trip.getDepartureTime().toString();
+        };
+    }
+
+    // Curseur de la page précédente, vérifié contre le tri de la recherche en cours
+    public static TripSearchCursor decode(String cursor, String sortBy, boolean descending) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        TripSearchCursor decoded;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Format de curseur inconnu");
+            }
+            decoded = new TripSearchCursor(parts[0], "desc".equals(parts[1]), parts[2], Long.valueOf(parts[3]));
+            decoded.checkSortValue();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Curseur invalide");
+        }
+        if (!decoded.sortBy().equals(sortBy) || decoded.descending() != descending) {
+            throw new IllegalArgumentException("Curseur invalide: il ne correspond pas au tri demandé ("
+                    + sortBy + ", " + (descending ? "desc" : "asc") + ")");
+        }
+        return decoded;
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (sortBy + "|" + (descending ? "desc" : "asc") + "|" + sortValue + "|" + id)
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime departureTime() {
+        return LocalDateTime.parse(sortValue);
+    }
+
+    public BigDecimal price() {
+        return new BigDecimal(sortValue);
+    }
+
+    public Integer seats() {
+        return Integer.valueOf(sortValue);
+    }
+
+    // La valeur doit être lisible dans le type de sa colonne de tri (curseur altéré sinon)
+    private void checkSortValue() {
+        switch (sortBy) {
+            case "price" -> price();
+            case "seats" -> seats();
+            case "departureTime" -> departureTime();
+            default -> throw new IllegalArgumentException("Tri inconnu: " + sortBy);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.covoituragedigitalise.trip.dto;
 
+import org.springframework.format.annotation.DateTimeFormat;
+
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -7,6 +9,9 @@ public class TripSearchDto {
 
     private String departureLocation;
     private String arrivalLocation;
+    private Long departurePlaceId; // prioritaire sur departureLocation
+    private Long arrivalPlaceId; // prioritaire sur arrivalLocation
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
     private LocalDate departureDate;
     private Integer minAvailableSeats = 1;
     private BigDecimal maxPricePerSeat;
@@ -30,6 +35,12 @@ public class TripSearchDto {
     public String getArrivalLocation() { return arrivalLocation; }
     public void setArrivalLocation(String arrivalLocation) { this.arrivalLocation = arrivalLocation; }
 
+    public Long getDeparturePlaceId() { return departurePlaceId; }
+    public void setDeparturePlaceId(Long departurePlaceId) { this.departurePlaceId = departurePlaceId; }
+
+    public Long getArrivalPlaceId() { return arrivalPlaceId; }
+    public void setArrivalPlaceId(Long arrivalPlaceId) { this.arrivalPlaceId = arrivalPlaceId; }
+
     public LocalDate getDepartureDate() { return departureDate; }
     public void setDepartureDate(LocalDate departureDate) { this.departureDate = departureDate; }
 
@@ -47,4 +58,21 @@ public class TripSearchDto {
 
     public String getSortDirection() { return sortDirection; }
     public void setSortDirection(String sortDirection) { this.sortDirection = sortDirection; }
-}
\ No newline at end of file
+
+    // Utility methods
+    public String resolveSortBy() {
+        String field = sortBy != null ? sortBy : "departureTime";
+        if (!field.equals("departureTime") && !field.equals("price") && !field.equals("seats")) {
+            throw new IllegalArgumentException("Tri invalide: " + sortBy + " (departureTime, price, seats)");
+        }
+        return field;
+    }
+
+    public boolean isDescending() {
+        return "DESC".equalsIgnoreCase(sortDirection);
+    }
+
+    public int resolveMinAvailableSeats() {
+        return minAvailableSeats != null && minAvailableSeats > 0 ? minAvailableSeats : 1;
+    }
+}
@@ -0,0 +1,11 @@
+package com.covoituragedigitalise.trip.dto;
+
+import com.covoituragedigitalise.trip.entity.Trip;
+
+import java.util.List;
+
+/**
+ * Page de résultats de recherche ; nextCursor est null sur la dernière page.
+ */
+public record TripSearchPage(List<Trip> trips, String nextCursor) {
+}
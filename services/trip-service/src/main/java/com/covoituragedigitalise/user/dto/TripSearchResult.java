@@ -0,0 +1,9 @@
+package com.covoituragedigitalise.trip.dto;
+
+import java.util.List;
+
+/**
+ * Page de résultats de recherche ; nextCursor est null sur la dernière page.
+ */
+public record TripSearchResult(int status, String message, List<TripSummaryResponse> trips, String nextCursor) {
+}
@@ -58,6 +58,10 @@ public class Booking {
     @Column(name = "passenger_name")
     private String passengerName;
 
+    // Fin de la réservation temporaire des places d'une demande en attente (null : aucune place retenue)
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -116,6 +120,9 @@ public class Booking {
     public String getPassengerName() { return passengerName; }
     public void setPassengerName(String passengerName) { this.passengerName = passengerName; }
 
+    public LocalDateTime getHoldExpiresAt() { return holdExpiresAt; }
+    public void setHoldExpiresAt(LocalDateTime holdExpiresAt) { this.holdExpiresAt = holdExpiresAt; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -139,6 +146,19 @@ public class Booking {
         return BookingStatus.REJECTED.equals(bookingStatus);
     }
 
+    public boolean isExpired() {
+        return BookingStatus.EXPIRED.equals(bookingStatus);
+    }
+
+    // Places décomptées du trajet : réservation confirmée ou demande en attente avec places retenues
+    public boolean holdsSeats() {
+        return isConfirmed() || (isPending() && holdExpiresAt != null);
+    }
+
+    public boolean isHoldExpired(LocalDateTime now) {
+        return isPending() && holdExpiresAt != null && !holdExpiresAt.isAfter(now);
+    }
+
     public boolean canBeCancelled() {
         return isPending() || isConfirmed();
     }
@@ -150,6 +170,7 @@ public class Booking {
     public void confirm() {
         if (canBeConfirmed()) {
             this.bookingStatus = BookingStatus.CONFIRMED;
+            this.holdExpiresAt = null;
         } else {
             throw new IllegalStateException("Impossible de confirmer cette réservation");
         }
@@ -170,4 +191,12 @@ public class Booking {
             throw new IllegalStateException("Impossible de rejeter cette réservation");
         }
     }
-}
\ No newline at end of file
+
+    public void expire() {
+        if (isPending()) {
+            this.bookingStatus = BookingStatus.EXPIRED;
+        } else {
+            throw new IllegalStateException("Impossible d'expirer cette réservation");
+        }
+    }
+}
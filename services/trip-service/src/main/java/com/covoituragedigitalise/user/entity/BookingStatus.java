@@ -5,7 +5,8 @@ public enum BookingStatus {
     CONFIRMED("Confirmée"),
     REJECTED("Refusée"),
     CANCELLED("Annulée"),
-    COMPLETED("Terminée");
+    COMPLETED("Terminée"),
+    EXPIRED("Expirée");
 
     private final String displayName;
 
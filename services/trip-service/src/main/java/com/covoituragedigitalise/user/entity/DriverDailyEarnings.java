@@ -0,0 +1,76 @@
+package com.covoituragedigitalise.trip.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Revenus confirmés d'un conducteur pour un jour de départ (trip.departureTime).
+ * Une ligne par (conducteur, jour), tenue à jour par EarningsRollupService.
+ */
+@Entity
+@Table(name = "driver_daily_earnings")
+@IdClass(DriverDailyEarnings.Key.class)
+public class DriverDailyEarnings {
+
+    @Id
+    @Column(name = "driver_id")
+    private Long driverId;
+
+    @Id
+    @Column(name = "earnings_day")
+    private LocalDate day;
+
+    @Column(name = "earnings", nullable = false, precision = 12, scale = 2)
+    private BigDecimal earnings = BigDecimal.ZERO;
+
+    @Column(name = "seats", nullable = false)
+    private long seats;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+    public Long getDriverId() { return driverId; }
+    public void setDriverId(Long driverId) { this.driverId = driverId; }
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public BigDecimal getEarnings() { return earnings; }
+    public void setEarnings(BigDecimal earnings) { this.earnings = earnings; }
+
+    public long getSeats() { return seats; }
+    public void setSeats(long seats) { this.seats = seats; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public static class Key implements Serializable {
+        private Long driverId;
+        private LocalDate day;
+
+        public Key() {}
+
+        public Key(Long driverId, LocalDate day) {
+            this.driverId = driverId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(driverId, key.driverId) && Objects.equals(day, key.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(driverId, day);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.covoituragedigitalise.trip.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Compteurs d'un conducteur, tenus à jour à chaque changement d'état d'un trajet ou d'une réservation
+ * (voir StatsService). Une ligne par conducteur, créée à la première utilisation depuis les agrégats.
+ */
+@Entity
+@Table(name = "driver_stats")
+public class DriverStats {
+
+    @Id
+    @Column(name = "driver_id")
+    private Long driverId;
+
+    @Column(name = "total_trips", nullable = false)
+    private long totalTrips;
+
+    @Column(name = "completed_trips", nullable = false)
+    private long completedTrips;
+
+    @Column(name = "active_trips", nullable = false)
+    private long activeTrips;
+
+    @Column(name = "confirmed_bookings", nullable = false)
+    private long confirmedBookings;
+
+    @Column(name = "pending_bookings", nullable = false)
+    private long pendingBookings;
+
+    @Column(name = "total_earnings", nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalEarnings = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+    public Long getDriverId() { return driverId; }
+    public void setDriverId(Long driverId) { this.driverId = driverId; }
+
+    public long getTotalTrips() { return totalTrips; }
+    public void setTotalTrips(long totalTrips) { this.totalTrips = totalTrips; }
+
+    public long getCompletedTrips() { return completedTrips; }
+    public void setCompletedTrips(long completedTrips) { this.completedTrips = completedTrips; }
+
+    public long getActiveTrips() { return activeTrips; }
+    public void setActiveTrips(long activeTrips) { this.activeTrips = activeTrips; }
+
+    public long getConfirmedBookings() { return confirmedBookings; }
+    public void setConfirmedBookings(long confirmedBookings) { this.confirmedBookings = confirmedBookings; }
+
+    public long getPendingBookings() { return pendingBookings; }
+    public void setPendingBookings(long pendingBookings) { this.pendingBookings = pendingBookings; }
+
+    public BigDecimal getTotalEarnings() { return totalEarnings; }
+    public void setTotalEarnings(BigDecimal totalEarnings) { this.totalEarnings = totalEarnings; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
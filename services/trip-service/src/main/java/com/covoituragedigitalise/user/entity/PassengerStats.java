@@ -0,0 +1,53 @@
+package com.covoituragedigitalise.trip.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Compteurs d'un passager, tenus à jour à chaque changement d'état de ses réservations
+ * (voir StatsService). Une ligne par passager, créée à la première utilisation depuis les agrégats.
+ */
+@Entity
+@Table(name = "passenger_stats")
+public class PassengerStats {
+
+    @Id
+    @Column(name = "passenger_id")
+    private Long passengerId;
+
+    @Column(name = "total_bookings", nullable = false)
+    private long totalBookings;
+
+    @Column(name = "confirmed_bookings", nullable = false)
+    private long confirmedBookings;
+
+    @Column(name = "active_bookings", nullable = false)
+    private long activeBookings;
+
+    @Column(name = "total_expenses", nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalExpenses = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+    public Long getPassengerId() { return passengerId; }
+    public void setPassengerId(Long passengerId) { this.passengerId = passengerId; }
+
+    public long getTotalBookings() { return totalBookings; }
+    public void setTotalBookings(long totalBookings) { this.totalBookings = totalBookings; }
+
+    public long getConfirmedBookings() { return confirmedBookings; }
+    public void setConfirmedBookings(long confirmedBookings) { this.confirmedBookings = confirmedBookings; }
+
+    public long getActiveBookings() { return activeBookings; }
+    public void setActiveBookings(long activeBookings) { this.activeBookings = activeBookings; }
+
+    public BigDecimal getTotalExpenses() { return totalExpenses; }
+    public void setTotalExpenses(BigDecimal totalExpenses) { this.totalExpenses = totalExpenses; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
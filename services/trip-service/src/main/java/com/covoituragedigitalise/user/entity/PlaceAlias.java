@@ -0,0 +1,37 @@
+package com.covoituragedigitalise.trip.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Autre graphie d'un lieu (abréviation, nom étranger, ancienne orthographe).
+ */
+@Entity
+@Table(name = "place_aliases")
+public class PlaceAlias {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "place_id", nullable = false)
+    private Long placeId;
+
+    @Column(name = "alias", nullable = false)
+    private String alias;
+
+    @Column(name = "normalized_alias", nullable = false, unique = true)
+    private String normalizedAlias;
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getPlaceId() { return placeId; }
+    public void setPlaceId(Long placeId) { this.placeId = placeId; }
+
+    public String getAlias() { return alias; }
+    public void setAlias(String alias) { this.alias = alias; }
+
+    public String getNormalizedAlias() { return normalizedAlias; }
+    public void setNormalizedAlias(String normalizedAlias) { this.normalizedAlias = normalizedAlias; }
+}
@@ -1,9 +1,14 @@
 package com.covoituragedigitalise.trip.entity;
 
+import com.covoituragedigitalise.trip.config.SecondLevelCacheConfig;
+import com.covoituragedigitalise.trip.util.GeoGrid;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -16,6 +21,9 @@ import java.util.List;
 @Entity
 @Table(name = "trips")
 @EntityListeners(AuditingEntityListener.class)
+@DynamicUpdate // n'écrit que les colonnes modifiées : available_seats reste géré par les UPDATE atomiques
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.TRIP_REGION)
 public class Trip {
 
     @Id
@@ -65,6 +73,20 @@ public class Trip {
     @Column(name = "arrival_longitude")
     private Double arrivalLongitude;
 
+    // Cellules de la grille spatiale (voir GeoGrid), recalculées à chaque sauvegarde
+    @Column(name = "departure_cell")
+    private Long departureCell;
+
+    @Column(name = "arrival_cell")
+    private Long arrivalCell;
+
+    // Lieux normalisés (voir Place) : la recherche par trajet compare ces ids
+    @Column(name = "departure_place_id")
+    private Long departurePlaceId;
+
+    @Column(name = "arrival_place_id")
+    private Long arrivalPlaceId;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "trip_status", nullable = false)
     private TripStatus tripStatus = TripStatus.ACTIVE;
@@ -137,6 +159,18 @@ public class Trip {
     public Double getArrivalLongitude() { return arrivalLongitude; }
     public void setArrivalLongitude(Double arrivalLongitude) { this.arrivalLongitude = arrivalLongitude; }
 
+    public Long getDepartureCell() { return departureCell; }
+    public void setDepartureCell(Long departureCell) { this.departureCell = departureCell; }
+
+    public Long getArrivalCell() { return arrivalCell; }
+    public void setArrivalCell(Long arrivalCell) { this.arrivalCell = arrivalCell; }
+
+    public Long getDeparturePlaceId() { return departurePlaceId; }
+    public void setDeparturePlaceId(Long departurePlaceId) { this.departurePlaceId = departurePlaceId; }
+
+    public Long getArrivalPlaceId() { return arrivalPlaceId; }
+    public void setArrivalPlaceId(Long arrivalPlaceId) { this.arrivalPlaceId = arrivalPlaceId; }
+
     public TripStatus getTripStatus() { return tripStatus; }
     public void setTripStatus(TripStatus tripStatus) { this.tripStatus = tripStatus; }
 
@@ -152,6 +186,14 @@ public class Trip {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 
+    // Lifecycle callbacks
+    @PrePersist
+    @PreUpdate
+    public void refreshGridCells() {
+        this.departureCell = GeoGrid.cellId(departureLatitude, departureLongitude);
+        this.arrivalCell = GeoGrid.cellId(arrivalLatitude, arrivalLongitude);
+    }
+
     // Utility methods
     public boolean isActive() {
         return TripStatus.ACTIVE.equals(tripStatus);
@@ -0,0 +1,56 @@
+package com.covoituragedigitalise.trip.mapper;
+
+import com.covoituragedigitalise.trip.dto.BookingCounts;
+import com.covoituragedigitalise.trip.dto.BookingResponse;
+import com.covoituragedigitalise.trip.dto.BookingView;
+import com.covoituragedigitalise.trip.dto.TripResponse;
+import com.covoituragedigitalise.trip.dto.TripSummaryResponse;
+import com.covoituragedigitalise.trip.entity.Booking;
+import com.covoituragedigitalise.trip.entity.BookingStatus;
+import com.covoituragedigitalise.trip.entity.Trip;
+import com.covoituragedigitalise.trip.entity.TripStatus;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.time.LocalDateTime;
+
+/**
+ * Conversion des entités et projections en réponses typées (code généré par MapStruct, sans réflexion).
+ * Les dates et les statuts sont rendus en texte comme avant (toString : libellé du statut).
+ */
+@Mapper(componentModel = "spring")
+public interface ResponseMapper {
+
+    @Mapping(target = "tripId", source = "id")
+    TripSummaryResponse toSummary(Trip trip);
+
+    // Compteurs lus à part (TripService.countBookings) : la collection bookings du trajet n'est pas chargée.
+    // Trajet sans réservation : counts null, compteurs à 0
+    @Mapping(target = "tripId", source = "trip.id")
+    @Mapping(target = "totalBookings", source = "counts.totalBookings")
+    @Mapping(target = "confirmedBookings", source = "counts.confirmedBookings")
+    TripResponse toResponse(Trip trip, BookingCounts counts);
+
+    @Mapping(target = "bookingId", source = "id")
+    @Mapping(target = "tripId", source = "trip.id")
+    BookingResponse toResponse(Booking booking);
+
+    BookingResponse.TripInfo toTripInfo(Trip trip);
+
+    @Mapping(target = "trip", source = "view")
+    BookingResponse toResponse(BookingView view);
+
+    BookingResponse.TripInfo toTripInfo(BookingView view);
+
+    default String format(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toString() : null;
+    }
+
+    default String format(TripStatus status) {
+        return status != null ? status.toString() : null;
+    }
+
+    default String format(BookingStatus status) {
+        return status != null ? status.toString() : null;
+    }
+}
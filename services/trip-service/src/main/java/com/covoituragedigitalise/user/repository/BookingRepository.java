@@ -1,16 +1,29 @@
 package com.covoituragedigitalise.trip.repository;
 
+import com.covoituragedigitalise.trip.dto.BookingCounts;
+import com.covoituragedigitalise.trip.dto.BookingView;
+import com.covoituragedigitalise.trip.dto.EarningsRow;
+import com.covoituragedigitalise.trip.dto.ExpiringBooking;
+import com.covoituragedigitalise.trip.dto.SeatHold;
 import com.covoituragedigitalise.trip.entity.Booking;
 import com.covoituragedigitalise.trip.entity.BookingStatus;
 import com.covoituragedigitalise.trip.entity.Trip;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
@@ -33,46 +46,106 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     // Vérifier si un passager a déjà réservé ce trajet
     Optional<Booking> findByTripAndPassengerId(Trip trip, Long passengerId);
 
+    // Trajet d'une réservation (routage vers la voie du séquenceur)
+    @Query("SELECT b.trip.id FROM Booking b WHERE b.id = :bookingId")
+    Optional<Long> findTripIdByBookingId(@Param("bookingId") Long bookingId);
+
+    // Réservations d'un passager avec leur trajet (une requête, paginée)
+    @Query(BookingView.SELECT + "WHERE b.passengerId = :passengerId ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<BookingView> findViewsByPassenger(@Param("passengerId") Long passengerId, Pageable pageable);
+
+    // Réservations sur les trajets d'un conducteur avec leur trajet (une requête, paginée)
+    @Query(BookingView.SELECT + "WHERE t.driverId = :driverId ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<BookingView> findViewsForDriver(@Param("driverId") Long driverId, Pageable pageable);
+
+    // Réservations en attente d'un conducteur avec leur trajet (une requête, paginée)
+    @Query(BookingView.SELECT + "WHERE t.driverId = :driverId AND b.bookingStatus = 'PENDING' " +
+            "ORDER BY b.createdAt ASC, b.id ASC")
+    Slice<BookingView> findPendingViewsForDriver(@Param("driverId") Long driverId, Pageable pageable);
+
+    // Export en flux des réservations d'un passager (curseur JDBC lu par blocs de FETCH_SIZE lignes)
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingQueries.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(BookingView.SELECT + "WHERE b.passengerId = :passengerId ORDER BY b.createdAt DESC, b.id DESC")
+    Stream<BookingView> streamViewsByPassenger(@Param("passengerId") Long passengerId);
+
+    // Export en flux des réservations sur les trajets d'un conducteur
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingQueries.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(BookingView.SELECT + "WHERE t.driverId = :driverId ORDER BY b.createdAt DESC, b.id DESC")
+    Stream<BookingView> streamViewsForDriver(@Param("driverId") Long driverId);
+
+    // Réservations confirmées pour les rollups de revenus, par blocs d'ID croissants
+    @Query("SELECT new com.covoituragedigitalise.trip.dto.EarningsRow(" +
+            "b.id, t.driverId, t.departureTime, b.totalPrice, b.seatsBooked) " +
+            "FROM Booking b JOIN b.trip t WHERE b.id > :afterId AND b.bookingStatus = 'CONFIRMED' " +
+            "ORDER BY b.id ASC")
+    List<EarningsRow> findConfirmedEarningsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Réservations confirmées d'un trajet pour les rollups de revenus
+    @Query("SELECT new com.covoituragedigitalise.trip.dto.EarningsRow(" +
+            "b.id, t.driverId, t.departureTime, b.totalPrice, b.seatsBooked) " +
+            "FROM Booking b JOIN b.trip t WHERE t.id = :tripId AND b.bookingStatus = 'CONFIRMED'")
+    List<EarningsRow> findConfirmedEarningsByTrip(@Param("tripId") Long tripId);
+
+    // Demandes en attente retenant des places (rechargées par SeatHoldExpirer au démarrage)
+    @Query("SELECT new com.covoituragedigitalise.trip.dto.SeatHold(b.id, b.trip.id, b.holdExpiresAt) " +
+            "FROM Booking b WHERE b.bookingStatus = 'PENDING' AND b.holdExpiresAt IS NOT NULL")
+    List<SeatHold> findActiveHolds();
+
+    // Bloc de réservations en attente sur des trajets déjà partis, verrouillées (lignes occupées sautées).
+    // Triées par trajet : les verrous de l'outbox (OutboxService) sont pris dans le même ordre partout
+    @Query(value = "SELECT b.id AS \"id\", b.trip_id AS \"tripId\", b.passenger_id AS \"passengerId\", " +
+            "t.driver_id AS \"driverId\" " +
+            "FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+            "WHERE b.booking_status = 'PENDING' AND t.departure_time < :cutoff " +
+            "ORDER BY b.trip_id, b.id LIMIT :limit FOR UPDATE OF b SKIP LOCKED", nativeQuery = true)
+    List<ExpiringBooking> lockPendingBookingsOfDepartedTrips(@Param("cutoff") LocalDateTime cutoff,
+                                                            @Param("limit") int limit);
+
+    // Réservations en attente d'un trajet, verrouillées (annulation du trajet par son conducteur)
+    @Query(value = "SELECT b.id AS \"id\", b.trip_id AS \"tripId\", b.passenger_id AS \"passengerId\", " +
+            "t.driver_id AS \"driverId\" " +
+            "FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+            "WHERE b.trip_id = :tripId AND b.booking_status = 'PENDING' " +
+            "ORDER BY b.id FOR UPDATE OF b", nativeQuery = true)
+    List<ExpiringBooking> lockPendingBookingsOfTrip(@Param("tripId") Long tripId);
+
+    // Rejet en masse d'un bloc de réservations encore en attente
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.bookingStatus = 'REJECTED', b.updatedAt = :now " +
+            "WHERE b.id IN :ids AND b.bookingStatus = 'PENDING'")
+    int rejectPending(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
     // Recherche de réservations actives d'un passager
     @Query("SELECT b FROM Booking b WHERE b.passengerId = :passengerId AND " +
             "b.bookingStatus IN ('PENDING', 'CONFIRMED') " +
             "ORDER BY b.createdAt DESC")
     List<Booking> findActiveBookingsByPassenger(@Param("passengerId") Long passengerId);
 
-    // Recherche de réservations pour un conducteur (via ses trajets)
-    @Query("SELECT b FROM Booking b WHERE b.trip.driverId = :driverId " +
-            "ORDER BY b.createdAt DESC")
-    List<Booking> findBookingsForDriver(@Param("driverId") Long driverId);
-
     // Recherche de réservations en attente pour un conducteur
     @Query("SELECT b FROM Booking b WHERE b.trip.driverId = :driverId AND " +
             "b.bookingStatus = 'PENDING' " +
             "ORDER BY b.createdAt ASC")
     List<Booking> findPendingBookingsForDriver(@Param("driverId") Long driverId);
 
+    // Nombre de réservations (toutes, confirmées) d'une liste de trajets, en une requête (idx_bookings_trip_status)
+    @Query("SELECT new com.covoituragedigitalise.trip.dto.BookingCounts(b.trip.id, COUNT(b), " +
+            "SUM(CASE WHEN b.bookingStatus = 'CONFIRMED' THEN 1L ELSE 0L END)) " +
+            "FROM Booking b WHERE b.trip.id IN :tripIds GROUP BY b.trip.id")
+    List<BookingCounts> countBookingsByTrips(@Param("tripIds") Collection<Long> tripIds);
+
     // Recherche de réservations confirmées pour un trajet
     @Query("SELECT b FROM Booking b WHERE b.trip.id = :tripId AND " +
             "b.bookingStatus = 'CONFIRMED'")
     List<Booking> findConfirmedBookingsByTrip(@Param("tripId") Long tripId);
 
-    // Compter les places réservées pour un trajet
-    @Query("SELECT COALESCE(SUM(b.seatsBooked), 0) FROM Booking b WHERE " +
-            "b.trip.id = :tripId AND b.bookingStatus IN ('PENDING', 'CONFIRMED')")
+    // Compter les places réservées pour un trajet (confirmées ou retenues par une demande en attente).
+    // Contrôle uniquement : la disponibilité est tenue à jour dans trips.available_seats
+    @Query("SELECT COALESCE(SUM(b.seatsBooked), 0) FROM Booking b WHERE b.trip.id = :tripId AND " +
+            "(b.bookingStatus = 'CONFIRMED' OR (b.bookingStatus = 'PENDING' AND b.holdExpiresAt IS NOT NULL))")
     Integer countBookedSeatsByTrip(@Param("tripId") Long tripId);
 
-    // Recherche de réservations par date de voyage
-    @Query("SELECT b FROM Booking b WHERE " +
-            "DATE(b.trip.departureTime) = DATE(:departureDate) AND " +
-            "b.passengerId = :passengerId AND " +
-            "b.bookingStatus IN ('PENDING', 'CONFIRMED')")
-    List<Booking> findBookingsByPassengerAndDate(@Param("passengerId") Long passengerId,
-                                                 @Param("departureDate") LocalDateTime departureDate);
-
-    // Recherche de réservations récentes
-    @Query("SELECT b FROM Booking b WHERE b.createdAt >= :since " +
-            "ORDER BY b.createdAt DESC")
-    List<Booking> findRecentBookings(@Param("since") LocalDateTime since);
-
     // Statistiques - Compter réservations par passager
     @Query("SELECT COUNT(b) FROM Booking b WHERE b.passengerId = :passengerId")
     Long countBookingsByPassenger(@Param("passengerId") Long passengerId);
@@ -82,10 +155,11 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             "b.bookingStatus = 'CONFIRMED'")
     Long countConfirmedBookingsByPassenger(@Param("passengerId") Long passengerId);
 
-    // Recherche de conflits de réservation (même passager, même heure) - CORRIGÉ
-    @Query("SELECT b FROM Booking b WHERE b.passengerId = :passengerId AND " +
-            "b.trip.departureTime BETWEEN :startTime AND :endTime AND " +
-            "b.bookingStatus IN ('PENDING', 'CONFIRMED')")
+    // Recherche de conflits de réservation (même passager, même heure) : réservations actives du passager
+    // (idx_bookings_active_passenger), filtrées sur la plage brute de departure_time de leur trajet
+    @Query("SELECT b FROM Booking b JOIN b.trip t WHERE b.passengerId = :passengerId AND " +
+            "b.bookingStatus IN ('PENDING', 'CONFIRMED') AND " +
+            "t.departureTime BETWEEN :startTime AND :endTime")
     List<Booking> findConflictingBookings(@Param("passengerId") Long passengerId,
                                           @Param("startTime") LocalDateTime startTime,
                                           @Param("endTime") LocalDateTime endTime);
@@ -0,0 +1,40 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.entity.DriverDailyEarnings;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DriverDailyEarningsRepository
+        extends JpaRepository<DriverDailyEarnings, DriverDailyEarnings.Key> {
+
+    // Jours d'un conducteur sur une plage (bornes incluses)
+    List<DriverDailyEarnings> findByDriverIdAndDayBetweenOrderByDayAsc(Long driverId, LocalDate from, LocalDate to);
+
+    // Ajout atomique à la ligne (conducteur, jour), créée si absente
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO driver_daily_earnings (driver_id, earnings_day, earnings, seats, updated_at) " +
+            "VALUES (:driverId, :day, :earnings, :seats, :now) " +
+            "ON CONFLICT (driver_id, earnings_day) DO UPDATE SET " +
+            "earnings = driver_daily_earnings.earnings + EXCLUDED.earnings, " +
+            "seats = driver_daily_earnings.seats + EXCLUDED.seats, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int add(@Param("driverId") Long driverId,
+            @Param("day") LocalDate day,
+            @Param("earnings") BigDecimal earnings,
+            @Param("seats") long seats,
+            @Param("now") LocalDateTime now);
+
+    // Reconstruction complète (backfill)
+    @Modifying
+    @Query("DELETE FROM DriverDailyEarnings")
+    int deleteAllRollups();
+}
@@ -0,0 +1,53 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.entity.DriverStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Repository
+public interface DriverStatsRepository extends JpaRepository<DriverStats, Long> {
+
+    // Incrément atomique des compteurs (0 si la ligne n'existe pas encore)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DriverStats s SET " +
+            "s.totalTrips = s.totalTrips + :trips, " +
+            "s.completedTrips = s.completedTrips + :completed, " +
+            "s.activeTrips = s.activeTrips + :active, " +
+            "s.confirmedBookings = s.confirmedBookings + :confirmed, " +
+            "s.pendingBookings = s.pendingBookings + :pending, " +
+            "s.totalEarnings = s.totalEarnings + :earnings, " +
+            "s.updatedAt = :now " +
+            "WHERE s.driverId = :driverId")
+    int increment(@Param("driverId") Long driverId,
+                  @Param("trips") long trips,
+                  @Param("completed") long completed,
+                  @Param("active") long active,
+                  @Param("confirmed") long confirmed,
+                  @Param("pending") long pending,
+                  @Param("earnings") BigDecimal earnings,
+                  @Param("now") LocalDateTime now);
+
+    // Initialisation depuis les agrégats (0 si une autre transaction l'a déjà créée)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO driver_stats (driver_id, total_trips, completed_trips, active_trips, " +
+            "confirmed_bookings, pending_bookings, total_earnings, updated_at) " +
+            "SELECT :driverId, " +
+            "(SELECT COUNT(*) FROM trips t WHERE t.driver_id = :driverId), " +
+            "(SELECT COUNT(*) FROM trips t WHERE t.driver_id = :driverId AND t.trip_status = 'COMPLETED'), " +
+            "(SELECT COUNT(*) FROM trips t WHERE t.driver_id = :driverId AND t.trip_status = 'ACTIVE'), " +
+            "(SELECT COUNT(*) FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+            "WHERE t.driver_id = :driverId AND b.booking_status = 'CONFIRMED'), " +
+            "(SELECT COUNT(*) FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+            "WHERE t.driver_id = :driverId AND b.booking_status = 'PENDING'), " +
+            "(SELECT COALESCE(SUM(b.total_price), 0) FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+            "WHERE t.driver_id = :driverId AND b.booking_status = 'CONFIRMED'), " +
+            ":now " +
+            "ON CONFLICT (driver_id) DO NOTHING", nativeQuery = true)
+    int initializeFromAggregates(@Param("driverId") Long driverId, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,57 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Prise de la clé avant l'action : ligne en cours (sans réponse), ou reprise d'une ligne échue.
+    // 0 si la clé est déjà prise (première requête en cours, éventuellement sur une autre instance)
+    // ou si sa réponse est enregistrée
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (record_key, user_id, request_hash, created_at, expires_at) " +
+            "VALUES (:recordKey, :userId, :requestHash, :claimedAt, :claimExpiresAt) " +
+            "ON CONFLICT (record_key) DO UPDATE SET user_id = EXCLUDED.user_id, " +
+            "request_hash = EXCLUDED.request_hash, status_code = NULL, response_body = NULL, " +
+            "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+            "WHERE idempotency_keys.expires_at <= EXCLUDED.created_at", nativeQuery = true)
+    int claim(@Param("recordKey") String recordKey,
+              @Param("userId") Long userId,
+              @Param("requestHash") String requestHash,
+              @Param("claimedAt") LocalDateTime claimedAt,
+              @Param("claimExpiresAt") LocalDateTime claimExpiresAt);
+
+    // Réponse de la requête qui a pris la clé (0 si la clé a été reprise entre-temps)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE idempotency_keys SET status_code = :statusCode, response_body = :responseBody, " +
+            "expires_at = :expiresAt " +
+            "WHERE record_key = :recordKey AND created_at = :claimedAt AND status_code IS NULL", nativeQuery = true)
+    int complete(@Param("recordKey") String recordKey,
+                 @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("statusCode") int statusCode,
+                 @Param("responseBody") String responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Clé rendue sans réponse (erreur) : une nouvelle requête avec cette clé sera exécutée
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys " +
+            "WHERE record_key = :recordKey AND created_at = :claimedAt AND status_code IS NULL", nativeQuery = true)
+    int release(@Param("recordKey") String recordKey, @Param("claimedAt") LocalDateTime claimedAt);
+
+    // Purge des clés échues
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,48 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Verrou du relais pour la transaction en cours (false si une autre instance publie déjà)
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:lockKey)", nativeQuery = true)
+    boolean tryRelayLock(@Param("lockKey") long lockKey);
+
+    // Verrou du trajet pour la transaction en cours : les événements d'un trajet reçoivent leurs id dans
+    // l'ordre de validation des transactions qui les écrivent (clé à deux entiers, distincte du relais)
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:namespace, CAST(:tripId % 2147483647 AS INTEGER))",
+            nativeQuery = true)
+    int lockTrip(@Param("namespace") int namespace, @Param("tripId") Long tripId);
+
+    // Prochains événements à publier, dans l'ordre d'écriture. Sont exclus les événements en attente d'un
+    // nouvel essai ou écartés, ainsi que ceux dont le trajet a un événement antérieur dans ce cas
+    @Query("SELECT e FROM OutboxEvent e WHERE e.publishedAt IS NULL AND e.parkedAt IS NULL " +
+            "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now) " +
+            "AND NOT EXISTS (SELECT 1 FROM OutboxEvent b WHERE b.tripId = e.tripId AND b.id < e.id " +
+            "AND b.publishedAt IS NULL AND (b.parkedAt IS NOT NULL OR b.nextAttemptAt > :now)) " +
+            "ORDER BY e.id ASC")
+    List<OutboxEvent> findUnpublished(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OutboxEvent e SET e.publishedAt = :now, e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Query("SELECT COUNT(e) FROM OutboxEvent e WHERE e.publishedAt IS NULL")
+    long countUnpublished();
+
+    // Purge des événements publiés depuis plus longtemps que la rétention
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.publishedAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
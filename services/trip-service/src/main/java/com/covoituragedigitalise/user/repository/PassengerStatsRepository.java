@@ -0,0 +1,47 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.entity.PassengerStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Repository
+public interface PassengerStatsRepository extends JpaRepository<PassengerStats, Long> {
+
+    // Incrément atomique des compteurs (0 si la ligne n'existe pas encore)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE PassengerStats s SET " +
+            "s.totalBookings = s.totalBookings + :total, " +
+            "s.confirmedBookings = s.confirmedBookings + :confirmed, " +
+            "s.activeBookings = s.activeBookings + :active, " +
+            "s.totalExpenses = s.totalExpenses + :expenses, " +
+            "s.updatedAt = :now " +
+            "WHERE s.passengerId = :passengerId")
+    int increment(@Param("passengerId") Long passengerId,
+                  @Param("total") long total,
+                  @Param("confirmed") long confirmed,
+                  @Param("active") long active,
+                  @Param("expenses") BigDecimal expenses,
+                  @Param("now") LocalDateTime now);
+
+    // Initialisation depuis les agrégats (0 si une autre transaction l'a déjà créée)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO passenger_stats (passenger_id, total_bookings, confirmed_bookings, " +
+            "active_bookings, total_expenses, updated_at) " +
+            "SELECT :passengerId, " +
+            "(SELECT COUNT(*) FROM bookings b WHERE b.passenger_id = :passengerId), " +
+            "(SELECT COUNT(*) FROM bookings b WHERE b.passenger_id = :passengerId " +
+            "AND b.booking_status = 'CONFIRMED'), " +
+            "(SELECT COUNT(*) FROM bookings b WHERE b.passenger_id = :passengerId " +
+            "AND b.booking_status IN ('PENDING', 'CONFIRMED')), " +
+            "(SELECT COALESCE(SUM(b.total_price), 0) FROM bookings b WHERE b.passenger_id = :passengerId " +
+            "AND b.booking_status = 'CONFIRMED'), " +
+            ":now " +
+            "ON CONFLICT (passenger_id) DO NOTHING", nativeQuery = true)
+    int initializeFromAggregates(@Param("passengerId") Long passengerId, @Param("now") LocalDateTime now);
+}
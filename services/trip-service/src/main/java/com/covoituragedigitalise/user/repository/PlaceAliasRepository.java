@@ -0,0 +1,13 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.entity.PlaceAlias;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PlaceAliasRepository extends JpaRepository<PlaceAlias, Long> {
+
+    Optional<PlaceAlias> findByNormalizedAlias(String normalizedAlias);
+}
@@ -0,0 +1,25 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.entity.Place;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface PlaceRepository extends JpaRepository<Place, Long> {
+
+    Optional<Place> findByNormalizedName(String normalizedName);
+
+    // Création sans erreur si une autre transaction vient de créer le même lieu
+    @Modifying
+    @Query(value = "INSERT INTO places (name, normalized_name, created_at) VALUES (:name, :normalizedName, :now) " +
+            "ON CONFLICT (normalized_name) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name,
+                       @Param("normalizedName") String normalizedName,
+                       @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,13 @@
+package com.covoituragedigitalise.trip.repository;
+
+/**
+ * Réglages communs des requêtes lues en flux (méthodes stream* des dépôts, voir ExportService).
+ */
+public final class StreamingQueries {
+
+    // Taille des blocs lus par le curseur JDBC à chaque aller-retour
+    public static final String FETCH_SIZE = "500";
+
+    private StreamingQueries() {
+    }
+}
@@ -1,18 +1,27 @@
 package com.covoituragedigitalise.trip.repository;
 
+import com.covoituragedigitalise.trip.config.SecondLevelCacheConfig;
+import com.covoituragedigitalise.trip.dto.ExpiringTrip;
+import com.covoituragedigitalise.trip.dto.SeatAvailability;
 import com.covoituragedigitalise.trip.entity.Trip;
 import com.covoituragedigitalise.trip.entity.TripStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface TripRepository extends JpaRepository<Trip, Long> {
+public interface TripRepository extends JpaRepository<Trip, Long>, TripRepositoryCustom {
 
     // Recherche de trajets par conducteur
     List<Trip> findByDriverId(Long driverId);
@@ -27,57 +36,72 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
     @Query("SELECT t FROM Trip t WHERE t.availableSeats > 0 AND t.tripStatus = 'ACTIVE'")
     List<Trip> findAvailableTrips();
 
-    // Recherche de trajets par ville de départ et d'arrivée
+    // Recherche par proximité géographique - préfiltre sur les cellules de la grille spatiale
+    // (la distance exacte est calculée ensuite sur les seuls candidats, voir TripService)
     @Query("SELECT t FROM Trip t WHERE " +
-            "LOWER(t.departureLocation) LIKE LOWER(CONCAT('%', :departureLocation, '%')) AND " +
-            "LOWER(t.arrivalLocation) LIKE LOWER(CONCAT('%', :arrivalLocation, '%')) AND " +
-            "t.tripStatus = 'ACTIVE' AND t.availableSeats > 0")
-    List<Trip> findTripsByLocations(@Param("departureLocation") String departureLocation,
-                                    @Param("arrivalLocation") String arrivalLocation);
-
-    // Recherche de trajets par date
+            "t.departureCell IN :cells AND t.tripStatus = 'ACTIVE' AND " +
+            "t.departureLatitude BETWEEN :minLat AND :maxLat AND " +
+            "t.departureLongitude BETWEEN :minLng AND :maxLng AND " +
+            "t.availableSeats > 0")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.TRIP_SEARCH_REGION)})
+    List<Trip> findTripsByProximity(@Param("cells") Collection<Long> cells,
+                                    @Param("minLat") Double minLatitude,
+                                    @Param("maxLat") Double maxLatitude,
+                                    @Param("minLng") Double minLongitude,
+                                    @Param("maxLng") Double maxLongitude);
+
+    // Recherche par boîte englobante (zones trop larges pour la grille)
     @Query("SELECT t FROM Trip t WHERE " +
-            "DATE(t.departureTime) = DATE(:departureDate) AND " +
+            "t.departureLatitude BETWEEN :minLat AND :maxLat AND " +
+            "t.departureLongitude BETWEEN :minLng AND :maxLng AND " +
             "t.tripStatus = 'ACTIVE' AND t.availableSeats > 0")
-    List<Trip> findTripsByDepartureDate(@Param("departureDate") LocalDateTime departureDate);
-
-    // Recherche complète (ville + date)
-    @Query("SELECT t FROM Trip t WHERE " +
-            "LOWER(t.departureLocation) LIKE LOWER(CONCAT('%', :departureLocation, '%')) AND " +
-            "LOWER(t.arrivalLocation) LIKE LOWER(CONCAT('%', :arrivalLocation, '%')) AND " +
-            "DATE(t.departureTime) = DATE(:departureDate) AND " +
-            "t.tripStatus = 'ACTIVE' AND t.availableSeats > 0 " +
-            "ORDER BY t.departureTime ASC")
-    List<Trip> findTripsByLocationsAndDate(@Param("departureLocation") String departureLocation,
-                                           @Param("arrivalLocation") String arrivalLocation,
-                                           @Param("departureDate") LocalDateTime departureDate);
-
-    // Recherche flexible par lieux avec tri par prix
-    @Query("SELECT t FROM Trip t WHERE " +
-            "LOWER(t.departureLocation) LIKE LOWER(CONCAT('%', :departureLocation, '%')) AND " +
-            "LOWER(t.arrivalLocation) LIKE LOWER(CONCAT('%', :arrivalLocation, '%')) AND " +
-            "t.tripStatus = 'ACTIVE' AND t.availableSeats >= :minSeats " +
-            "ORDER BY t.pricePerSeat ASC")
-    List<Trip> findTripsByLocationsOrderByPrice(@Param("departureLocation") String departureLocation,
-                                                @Param("arrivalLocation") String arrivalLocation,
-                                                @Param("minSeats") Integer minSeats);
-
-    // Recherche par proximité géographique (si coordonnées disponibles)
-    @Query("SELECT t FROM Trip t WHERE " +
-            "t.departureLatitude IS NOT NULL AND t.departureLongitude IS NOT NULL AND " +
-            "t.arrivalLatitude IS NOT NULL AND t.arrivalLongitude IS NOT NULL AND " +
-            "(6371 * acos(cos(radians(:depLat)) * cos(radians(t.departureLatitude)) * " +
-            "cos(radians(t.departureLongitude) - radians(:depLng)) + " +
-            "sin(radians(:depLat)) * sin(radians(t.departureLatitude)))) < :maxDistance AND " +
-            "t.tripStatus = 'ACTIVE' AND t.availableSeats > 0")
-    List<Trip> findTripsByProximity(@Param("depLat") Double departureLatitude,
-                                    @Param("depLng") Double departureLongitude,
-                                    @Param("maxDistance") Double maxDistanceKm);
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.TRIP_SEARCH_REGION)})
+    List<Trip> findTripsInBoundingBox(@Param("minLat") Double minLatitude,
+                                      @Param("maxLat") Double maxLatitude,
+                                      @Param("minLng") Double minLongitude,
+                                      @Param("maxLng") Double maxLongitude);
 
     // Trajets expirant bientôt (pour nettoyage automatique)
     @Query("SELECT t FROM Trip t WHERE t.departureTime < :cutoffTime AND t.tripStatus = 'ACTIVE'")
     List<Trip> findExpiredTrips(@Param("cutoffTime") LocalDateTime cutoffTime);
 
+    // Bloc de trajets actifs déjà partis, verrouillés (les lignes verrouillées ailleurs sont sautées)
+    @Query(value = "SELECT t.id AS \"id\", t.driver_id AS \"driverId\", " +
+            "EXISTS (SELECT 1 FROM bookings b WHERE b.trip_id = t.id AND b.booking_status = 'CONFIRMED') " +
+            "AS \"hasConfirmedBookings\" " +
+            "FROM trips t WHERE t.trip_status = 'ACTIVE' AND t.departure_time < :cutoff " +
+            "ORDER BY t.departure_time, t.id LIMIT :limit FOR UPDATE OF t SKIP LOCKED", nativeQuery = true)
+    List<ExpiringTrip> lockDepartedActiveTrips(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    // Clôture en masse d'un bloc de trajets encore actifs
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Trip t SET t.tripStatus = :status, t.updatedAt = :now " +
+            "WHERE t.id IN :ids AND t.tripStatus = 'ACTIVE'")
+    int closeTrips(@Param("ids") Collection<Long> ids,
+                   @Param("status") TripStatus status,
+                   @Param("now") LocalDateTime now);
+
+    // Version d'un trajet pour les ETag : dernière modification du trajet ou de l'une de ses réservations
+    @Query("SELECT GREATEST(COALESCE(t.updatedAt, t.createdAt), " +
+            "COALESCE((SELECT MAX(b.updatedAt) FROM Booking b WHERE b.trip = t), t.createdAt)) " +
+            "FROM Trip t WHERE t.id = :tripId")
+    Optional<LocalDateTime> findVersionById(@Param("tripId") Long tripId);
+
+    // Relecture d'un trajet validé pour l'index de recherche (hors cache de second niveau)
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")})
+    @Query("SELECT t FROM Trip t WHERE t.id = :tripId")
+    Optional<Trip> findFreshById(@Param("tripId") Long tripId);
+
+    // Export en flux des trajets d'un conducteur : entités en lecture seule, hors cache de second niveau
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingQueries.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")})
+    @Query("SELECT t FROM Trip t WHERE t.driverId = :driverId ORDER BY t.departureTime DESC, t.id DESC")
+    Stream<Trip> streamByDriverId(@Param("driverId") Long driverId);
+
     // Statistiques - Compter les trajets par conducteur
     @Query("SELECT COUNT(t) FROM Trip t WHERE t.driverId = :driverId")
     Long countTripsByDriver(@Param("driverId") Long driverId);
@@ -93,4 +117,32 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
     Optional<Trip> findConflictingTrip(@Param("driverId") Long driverId,
                                        @Param("startTime") LocalDateTime startTime,
                                        @Param("endTime") LocalDateTime endTime);
-}
\ No newline at end of file
+
+    // Lieux saisis avant le dictionnaire des lieux (voir PlaceService.linkLegacyTrips)
+    @Query("SELECT DISTINCT t.departureLocation FROM Trip t WHERE t.departurePlaceId IS NULL")
+    List<String> findUnlinkedDepartureLocations();
+
+    @Query("SELECT DISTINCT t.arrivalLocation FROM Trip t WHERE t.arrivalPlaceId IS NULL")
+    List<String> findUnlinkedArrivalLocations();
+
+    @Modifying
+    @Query("UPDATE Trip t SET t.departurePlaceId = :placeId, t.updatedAt = LOCAL DATETIME " +
+            "WHERE t.departurePlaceId IS NULL AND t.departureLocation = :label")
+    int linkDeparturePlace(@Param("label") String label, @Param("placeId") Long placeId);
+
+    @Modifying
+    @Query("UPDATE Trip t SET t.arrivalPlaceId = :placeId, t.updatedAt = LOCAL DATETIME " +
+            "WHERE t.arrivalPlaceId IS NULL AND t.arrivalLocation = :label")
+    int linkArrivalPlace(@Param("label") String label, @Param("placeId") Long placeId);
+
+    // Places disponibles des trajets actifs d'un lot du séquenceur (lecture directe, hors cache de second niveau)
+    @Query("SELECT new com.covoituragedigitalise.trip.dto.SeatAvailability(t.id, t.availableSeats) " +
+            "FROM Trip t WHERE t.id IN :tripIds AND t.tripStatus = 'ACTIVE'")
+    List<SeatAvailability> findSeatAvailability(@Param("tripIds") Collection<Long> tripIds);
+
+    // Trajet encore réservable, verrouillé en partage jusqu'à la fin de la transaction (confirmation d'une
+    // demande dont les places sont déjà retenues : annulation et clôture du trajet attendent son commit)
+    @Query(value = "SELECT t.id FROM trips t WHERE t.id = :tripId AND t.trip_status = 'ACTIVE' " +
+            "AND t.departure_time > :now FOR SHARE", nativeQuery = true)
+    Optional<Long> lockBookableTrip(@Param("tripId") Long tripId, @Param("now") LocalDateTime now);
+}
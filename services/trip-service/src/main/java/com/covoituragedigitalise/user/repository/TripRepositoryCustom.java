@@ -0,0 +1,20 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.dto.TripSearchCursor;
+import com.covoituragedigitalise.trip.dto.TripSearchDto;
+import com.covoituragedigitalise.trip.entity.Trip;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TripRepositoryCustom {
+
+    // Recherche dynamique (filtres de TripSearchDto) paginée par clé
+    List<Trip> searchTrips(TripSearchDto criteria, TripSearchCursor cursor, int limit);
+
+    // Réservation atomique : ne décrémente que s'il reste assez de places (0 ligne sinon)
+    int reserveSeats(Long tripId, int seats, LocalDateTime now);
+
+    // Libération atomique des places (plafonnée au nombre de places initial)
+    int releaseSeats(Long tripId, int seats, LocalDateTime now);
+}
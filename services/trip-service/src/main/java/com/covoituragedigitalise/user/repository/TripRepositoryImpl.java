@@ -0,0 +1,168 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.config.SecondLevelCacheConfig;
+import com.covoituragedigitalise.trip.dto.TripSearchCursor;
+import com.covoituragedigitalise.trip.dto.TripSearchDto;
+import com.covoituragedigitalise.trip.entity.Trip;
+import com.covoituragedigitalise.trip.entity.TripStatus;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TripRepositoryImpl implements TripRepositoryCustom {
+
+    // Espace de requêtes des UPDATE de places : ne correspond à aucune entité ni requête en cache
+    private static final String SEAT_QUERY_SPACE = "trip_seats";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Trip> searchTrips(TripSearchDto criteria, TripSearchCursor cursor, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Trip> query = cb.createQuery(Trip.class);
+        Root<Trip> trip = query.from(Trip.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(trip.get("tripStatus"), TripStatus.ACTIVE));
+        predicates.add(cb.greaterThanOrEqualTo(trip.get("availableSeats"), criteria.resolveMinAvailableSeats()));
+        // Trajets non partis, comme l'index ; borne arrondie à la minute suivante pour que le cache de
+        // requêtes serve les mêmes paramètres pendant une minute (un départ dans moins d'une minute est exclu)
+        LocalDateTime notBefore = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        predicates.add(cb.greaterThan(trip.get("departureTime"), notBefore));
+
+        // Lieu connu : égalité sur l'id ; saisie libre inconnue du dictionnaire : recherche partielle
+        if (criteria.getDeparturePlaceId() != null) {
+            predicates.add(cb.equal(trip.get("departurePlaceId"), criteria.getDeparturePlaceId()));
+        } else if (hasText(criteria.getDepartureLocation())) {
+            predicates.add(containsIgnoreCase(cb, trip.get("departureLocation"), criteria.getDepartureLocation()));
+        }
+        if (criteria.getArrivalPlaceId() != null) {
+            predicates.add(cb.equal(trip.get("arrivalPlaceId"), criteria.getArrivalPlaceId()));
+        } else if (hasText(criteria.getArrivalLocation())) {
+            predicates.add(containsIgnoreCase(cb, trip.get("arrivalLocation"), criteria.getArrivalLocation()));
+        }
+        if (criteria.getDepartureDate() != null) {
+            LocalDate day = criteria.getDepartureDate();
+            predicates.add(cb.greaterThanOrEqualTo(trip.get("departureTime"), day.atStartOfDay()));
+            predicates.add(cb.lessThan(trip.get("departureTime"), day.plusDays(1).atStartOfDay()));
+        }
+        if (criteria.getMaxPricePerSeat() != null) {
+            predicates.add(cb.lessThanOrEqualTo(trip.get("pricePerSeat"), criteria.getMaxPricePerSeat()));
+        }
+        if (Boolean.TRUE.equals(criteria.getInstantBookingOnly())) {
+            predicates.add(cb.isTrue(trip.get("isInstantBooking")));
+        }
+
+        // Pagination par (tri, id) : l'id départage les égalités. Le nombre de places change avec les
+        // réservations : en tri "seats", un trajet modifié entre deux pages peut être sauté ou répété
+        String sortBy = criteria.resolveSortBy();
+        boolean descending = criteria.isDescending();
+        if (cursor != null) {
+            predicates.add(switch (sortBy) {
+                case "price" -> after(cb, trip.get("pricePerSeat"), cursor.price(), trip.get("id"), cursor.id(), descending);
+                case "seats" -> after(cb, trip.get("availableSeats"), cursor.seats(), trip.get("id"), cursor.id(), descending);
+                default -> after(cb, trip.get("departureTime"), cursor.departureTime(), trip.get("id"), cursor.id(), descending);
+            });
+        }
+
+        Path<?> sortPath = trip.get(sortPathOf(sortBy));
+        query.select(trip)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(descending ? cb.desc(sortPath) : cb.asc(sortPath),
+                        descending ? cb.desc(trip.get("id")) : cb.asc(trip.get("id")));
+
+        // Cache de requêtes : invalidé par Hibernate à chaque écriture sur la table trips, sauf les UPDATE
+        // de places (voir updateSeats)
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, SecondLevelCacheConfig.TRIP_SEARCH_REGION)
+                .getResultList();
+    }
+
+    @Override
+    public int reserveSeats(Long tripId, int seats, LocalDateTime now) {
+        return updateSeats("UPDATE trips SET available_seats = available_seats - :seats, updated_at = :now " +
+                "WHERE id = :tripId AND trip_status = 'ACTIVE' AND available_seats >= :seats", tripId, seats, now);
+    }
+
+    @Override
+    public int releaseSeats(Long tripId, int seats, LocalDateTime now) {
+        return updateSeats("UPDATE trips SET available_seats = LEAST(available_seats + :seats, original_seats), " +
+                "updated_at = :now WHERE id = :tripId", tripId, seats, now);
+    }
+
+    // UPDATE natif synchronisé sur un espace propre : un UPDATE JPQL (ou natif sans espace) viderait toute
+    // la région trips et invaliderait les recherches en cache à chaque réservation. Seule l'entrée du trajet
+    // est évincée ; les recherches en cache gardent leurs résultats jusqu'à leur expiration
+    // (trip.cache.search.ttl-ms), les trajets qu'elles renvoient étant relus à jour.
+    private int updateSeats(String sql, Long tripId, int seats, LocalDateTime now) {
+        entityManager.flush();
+        NativeQuery<?> update = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        int updated = update.addSynchronizedQuerySpace(SEAT_QUERY_SPACE)
+                .setParameter("tripId", tripId)
+                .setParameter("seats", seats)
+                .setParameter("now", now)
+                .executeUpdate();
+        if (updated > 0) {
+            evictTrip(tripId);
+        }
+        return updated;
+    }
+
+    // Éviction immédiate, puis à la fin de la transaction : une lecture concurrente a pu remettre
+    // l'ancienne valeur en cache avant le commit
+    private void evictTrip(Long tripId) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(Trip.class, tripId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Trip.class, tripId);
+                }
+            });
+        }
+    }
+
+    private static String sortPathOf(String sortBy) {
+        return switch (sortBy) {
+            case "price" -> "pricePerSeat";
+            case "seats" -> "availableSeats";
+            default -> "departureTime";
+        };
+    }
+
+    // (tri, id) strictement après le curseur, dans le sens du tri
+    private static <Y extends Comparable<? super Y>> Predicate after(CriteriaBuilder cb, Expression<Y> sortPath, Y sortValue,
+                                                                     Expression<Long> idPath, Long id, boolean descending) {
+        if (descending) {
+            return cb.or(cb.lessThan(sortPath, sortValue),
+                    cb.and(cb.equal(sortPath, sortValue), cb.lessThan(idPath, id)));
+        }
+        return cb.or(cb.greaterThan(sortPath, sortValue),
+                cb.and(cb.equal(sortPath, sortValue), cb.greaterThan(idPath, id)));
+    }
+
+    private static Predicate containsIgnoreCase(CriteriaBuilder cb, Expression<String> path, String value) {
+        String escaped = value.trim().toLowerCase()
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return cb.like(cb.lower(path), "%" + escaped + "%", '\\');
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
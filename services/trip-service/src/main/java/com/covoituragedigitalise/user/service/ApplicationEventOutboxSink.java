@@ -0,0 +1,27 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.OutboxMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Diffusion aux listeners du service (@EventListener sur OutboxMessage), appelés de manière synchrone
+ * par le relais : un listener qui échoue fait rejouer l'événement.
+ */
+@Component
+public class ApplicationEventOutboxSink implements OutboxSink {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public String name() {
+        return "application-events";
+    }
+
+    @Override
+    public void publish(OutboxMessage message) {
+        eventPublisher.publishEvent(message);
+    }
+}
@@ -0,0 +1,334 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.SeatAvailability;
+import com.covoituragedigitalise.trip.entity.Booking;
+import com.covoituragedigitalise.trip.repository.BookingRepository;
+import com.covoituragedigitalise.trip.repository.TripRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Séquenceur de réservations : chaque trajet est affecté à une voie (thread unique) et toutes les
+ * commandes qui le concernent (création, confirmation, rejet, annulation) y sont exécutées l'une après
+ * l'autre. Les commandes en attente sur une voie sont regroupées dans une seule transaction, de sorte
+ * qu'un trajet très demandé coûte un commit par lot plutôt qu'une attente de verrou par réservation.
+ * Si une commande du lot échoue, le lot est annulé puis rejoué commande par commande. Pour qu'un trajet
+ * complet très demandé ne coûte pas ce rejeu à chaque lot, les créations qui dépassent les places restantes
+ * sont écartées du lot : exécutées seules après lui, ou refusées sans transaction si le trajet n'a plus assez
+ * de places une fois le lot validé.
+ * Une commande dont l'appelant a abandonné l'attente (délai dépassé) n'est jamais exécutée : l'appelant et
+ * la voie se disputent la commande, et seul le premier l'emporte.
+ * La sérialisation ne vaut que dans cette JVM : Booking et Trip n'ont pas de @Version, et plusieurs
+ * instances du service ne s'excluent que par les UPDATE conditionnels de reserveSeats/releaseSeats.
+ */
+@Component
+public class BookingSequencer {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingSequencer.class);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${booking.sequencer.lanes:8}")
+    private int laneCount;
+
+    @Value("${booking.sequencer.batch-size:64}")
+    private int batchSize;
+
+    @Value("${booking.sequencer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${booking.sequencer.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private TransactionTemplate transactionTemplate;
+    private Lane[] lanes;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i);
+            lanes[i].start();
+        }
+        log.info("🚦 BookingSequencer - {} voie(s), lots de {}", laneCount, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Lane lane : lanes) {
+            lane.interrupt();
+        }
+    }
+
+    // ✅ CRÉER une réservation sur la voie du trajet
+    public Booking createBooking(Long passengerId, Map<String, Object> bookingData) {
+        Long tripId = Long.valueOf(bookingData.get("tripId").toString());
+        int seats = bookingData.get("seatsBooked") instanceof Integer requested ? requested : 0;
+        return submit(tripId, seats, () -> bookingService.createBooking(passengerId, bookingData));
+    }
+
+    // ✅ CONFIRMER une réservation sur la voie de son trajet
+    public Booking confirmBooking(Long bookingId, Long driverId) {
+        return submit(tripIdOf(bookingId), 0, () -> bookingService.confirmBooking(bookingId, driverId));
+    }
+
+    // ✅ REJETER une réservation sur la voie de son trajet
+    public Booking rejectBooking(Long bookingId, Long driverId) {
+        return submit(tripIdOf(bookingId), 0, () -> bookingService.rejectBooking(bookingId, driverId));
+    }
+
+    // ✅ ANNULER une réservation sur la voie de son trajet
+    public Booking cancelBooking(Long bookingId, Long passengerId) {
+        return submit(tripIdOf(bookingId), 0, () -> bookingService.cancelBooking(bookingId, passengerId));
+    }
+
+    // ✅ EXPIRER une demande en attente sur la voie de son trajet
+    public Booking expireHold(Long bookingId, Long tripId) {
+        return submit(tripId, 0, () -> bookingService.expireHold(bookingId));
+    }
+
+    private Long tripIdOf(Long bookingId) {
+        return bookingRepository.findTripIdByBookingId(bookingId)
+                .orElseThrow(() -> new IllegalArgumentException("Réservation non trouvée: " + bookingId));
+    }
+
+    // 🔧 Placer une commande sur la voie du trajet et attendre son résultat (seats : places demandées
+    // par une création, 0 pour les autres commandes)
+    private <T> T submit(Long tripId, int seats, Supplier<T> action) {
+        Command<T> command = new Command<>(tripId, seats, action);
+        Lane lane = lanes[Math.floorMod(Long.hashCode(tripId * 0x9E3779B97F4A7C15L), lanes.length)];
+        if (!lane.queue.offer(command)) {
+            throw new IllegalStateException("Service de réservation surchargé, veuillez réessayer");
+        }
+        try {
+            return command.future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (TimeoutException e) {
+            if (command.abandon()) {
+                // Retirée avant son exécution : rien n'a été enregistré, l'appelant peut réessayer sans doublon
+                throw new IllegalStateException("Délai de réservation dépassé, la demande n'a pas été enregistrée");
+            }
+            // Déjà prise par la voie : son résultat fait foi, on l'attend
+            return awaitStarted(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (command.abandon()) {
+                throw new IllegalStateException("Réservation interrompue, la demande n'a pas été enregistrée");
+            }
+            throw new IllegalStateException("Réservation interrompue pendant son traitement");
+        }
+    }
+
+    private <T> T awaitStarted(Command<T> command) {
+        try {
+            return command.future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Réservation interrompue pendant son traitement");
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new IllegalStateException(e.getCause());
+    }
+
+    private static final class Command<T> {
+        private final Long tripId;
+        private final int seatsRequested;
+        private final Supplier<T> action;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Command(Long tripId, int seatsRequested, Supplier<T> action) {
+            this.tripId = tripId;
+            this.seatsRequested = seatsRequested;
+            this.action = action;
+        }
+
+        // Côté voie : vrai si la commande peut être exécutée (l'appelant ne l'a pas abandonnée)
+        private boolean start() {
+            return claimed.compareAndSet(false, true) && !future.isDone();
+        }
+
+        // Côté appelant : vrai si la commande est retirée avant toute exécution
+        private boolean abandon() {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            future.cancel(false);
+            return true;
+        }
+    }
+
+    private final class Lane extends Thread {
+        private final BlockingQueue<Command<?>> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        private Lane(int index) {
+            super("booking-lane-" + index);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Command<?>> batch = new ArrayList<>(batchSize);
+            while (!isInterrupted()) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    batch.removeIf(command -> !command.start());
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+                    List<Command<?>> overCapacity = removeOverCapacity(batch);
+                    if (batch.size() == 1) {
+                        runAlone(batch.get(0));
+                    } else if (!batch.isEmpty()) {
+                        runBatch(batch);
+                    }
+                    runOverCapacity(overCapacity);
+                } catch (InterruptedException e) {
+                    break;
+                } finally {
+                    batch.clear();
+                }
+            }
+            Command<?> pending;
+            while ((pending = queue.poll()) != null) {
+                pending.future.completeExceptionally(new IllegalStateException("Service de réservation arrêté"));
+            }
+        }
+
+        // Créations au-delà des places restantes de leur trajet, retirées du lot (dans l'ordre d'arrivée).
+        // Après une commande qui peut rendre des places (confirmation, rejet, annulation), le trajet n'est plus
+        // contrôlé : ses créations suivantes restent dans le lot
+        private List<Command<?>> removeOverCapacity(List<Command<?>> batch) {
+            Map<Long, Integer> remaining = availableSeats(batch);
+            List<Command<?>> overCapacity = new ArrayList<>();
+            if (remaining.isEmpty()) {
+                return overCapacity;
+            }
+            batch.removeIf(command -> {
+                if (command.seatsRequested == 0) {
+                    remaining.remove(command.tripId);
+                    return false;
+                }
+                Integer seats = remaining.get(command.tripId);
+                if (seats == null) {
+                    return false;
+                }
+                if (command.seatsRequested > seats) {
+                    overCapacity.add(command);
+                    return true;
+                }
+                remaining.put(command.tripId, seats - command.seatsRequested);
+                return false;
+            });
+            return overCapacity;
+        }
+
+        // Après le lot : refus sans transaction si le trajet n'a plus assez de places (le lot ne fait qu'en
+        // retirer), sinon exécution seule (une création du lot a pu échouer et laisser ses places)
+        private void runOverCapacity(List<Command<?>> overCapacity) {
+            if (overCapacity.isEmpty()) {
+                return;
+            }
+            Map<Long, Integer> available = availableSeats(overCapacity);
+            for (Command<?> command : overCapacity) {
+                Integer seats = available.get(command.tripId);
+                if (seats != null && command.seatsRequested > seats) {
+                    command.future.completeExceptionally(
+                            new IllegalArgumentException("Plus assez de places disponibles (" + seats + " restantes)"));
+                } else {
+                    runAlone(command);
+                }
+            }
+        }
+
+        // Places disponibles des trajets actifs visés par les créations (absents : trajet non actif)
+        private Map<Long, Integer> availableSeats(List<Command<?>> commands) {
+            Set<Long> tripIds = new HashSet<>();
+            for (Command<?> command : commands) {
+                if (command.seatsRequested > 0) {
+                    tripIds.add(command.tripId);
+                }
+            }
+            Map<Long, Integer> available = new HashMap<>();
+            if (tripIds.isEmpty()) {
+                return available;
+            }
+            try {
+                for (SeatAvailability availability : tripRepository.findSeatAvailability(tripIds)) {
+                    available.put(availability.tripId(), availability.availableSeats());
+                }
+            } catch (RuntimeException e) {
+                // Sans contrôle préalable : les commandes s'exécutent et BookingService tranche
+                log.warn("⚠️ BookingSequencer - Places disponibles illisibles: {}", e.getMessage());
+                available.clear();
+            }
+            return available;
+        }
+
+        // Toutes les commandes du lot dans une seule transaction ; rejeu individuel en cas d'échec
+        @SuppressWarnings("unchecked")
+        private void runBatch(List<Command<?>> batch) {
+            List<Object> results = new ArrayList<>(batch.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (Command<?> command : batch) {
+                        results.add(command.action.get());
+                    }
+                });
+            } catch (RuntimeException e) {
+                for (Command<?> command : batch) {
+                    runAlone(command);
+                }
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                ((CompletableFuture<Object>) batch.get(i).future).complete(results.get(i));
+            }
+        }
+
+        private <T> void runAlone(Command<T> command) {
+            try {
+                command.future.complete(transactionTemplate.execute(status -> command.action.get()));
+            } catch (RuntimeException e) {
+                command.future.completeExceptionally(e);
+            }
+        }
+    }
+}
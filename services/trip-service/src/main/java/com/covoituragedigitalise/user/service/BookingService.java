@@ -1,12 +1,22 @@
 package com.covoituragedigitalise.trip.service;
 
+import com.covoituragedigitalise.trip.dto.BookingView;
 import com.covoituragedigitalise.trip.entity.Booking;
 import com.covoituragedigitalise.trip.entity.BookingStatus;
+import com.covoituragedigitalise.trip.entity.DriverStats;
+import com.covoituragedigitalise.trip.entity.PassengerStats;
 import com.covoituragedigitalise.trip.entity.Trip;
 import com.covoituragedigitalise.trip.entity.TripStatus;
 import com.covoituragedigitalise.trip.repository.BookingRepository;
 import com.covoituragedigitalise.trip.repository.TripRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +30,13 @@ import java.util.Optional;
 @Transactional
 public class BookingService {
 
+    private static final Logger log = LoggerFactory.getLogger(BookingService.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     private BookingRepository bookingRepository;
 
@@ -29,10 +46,25 @@ public class BookingService {
     @Autowired
     private TripService tripService;
 
+    @Autowired
+    private TripSearchIndex tripSearchIndex;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private SeatHoldExpirer seatHoldExpirer;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Value("${booking.hold.ttl-ms:900000}")
+    private long holdTtlMs;
+
     // ✅ CRÉER une nouvelle réservation
     public Booking createBooking(Long passengerId, Map<String, Object> bookingData) {
         try {
-            System.out.println("📝 BookingService - Création réservation pour passager: " + passengerId);
+            log.debug("📝 BookingService - Création réservation pour passager: {}", passengerId);
 
             // Récupérer les données
             Long tripId = Long.valueOf(bookingData.get("tripId").toString());
@@ -77,50 +109,57 @@ public class BookingService {
                 booking.setPassengerName((String) bookingData.get("passengerName"));
             }
 
-            // Si c'est une réservation instantanée, confirmer directement
+            // Les places sont réservées dès la demande : confirmée directement si instantanée,
+            // sinon retenues jusqu'à la réponse du conducteur (au plus holdTtlMs, jamais après le départ)
+            reserveSeats(trip, seatsRequested);
             if (trip.getIsInstantBooking()) {
                 booking.setBookingStatus(BookingStatus.CONFIRMED);
-                trip.reserveSeats(seatsRequested);
+            } else {
+                LocalDateTime holdEnd = LocalDateTime.now().plusNanos(holdTtlMs * 1_000_000);
+                booking.setHoldExpiresAt(holdEnd.isBefore(trip.getDepartureTime()) ? holdEnd : trip.getDepartureTime());
             }
 
             Booking savedBooking = bookingRepository.save(booking);
-
-            // Sauvegarder le trajet si les places ont été réservées
-            if (trip.getIsInstantBooking()) {
-                tripRepository.save(trip);
+            statsService.onBookingTransition(savedBooking, trip.getDriverId(), null, savedBooking.getBookingStatus());
+            outboxService.onBookingChanged(savedBooking, trip.getDriverId(), null, savedBooking.getBookingStatus());
+            if (savedBooking.isPending()) {
+                seatHoldExpirer.trackAfterCommit(savedBooking);
             }
 
-            System.out.println("✅ BookingService - Réservation créée: " + savedBooking.getId());
+            log.info("✅ BookingService - Réservation créée: {}", savedBooking.getId());
             return savedBooking;
 
         } catch (Exception e) {
-            System.err.println("❌ BookingService - Erreur createBooking: " + e.getMessage());
+            log.warn("❌ BookingService - Erreur createBooking: {}", e.getMessage());
             throw e;
         }
     }
 
     // ✅ OBTENIR les réservations d'un passager
-    public List<Booking> getPassengerBookings(Long passengerId) {
-        System.out.println("🔍 BookingService - Réservations du passager: " + passengerId);
-        return bookingRepository.findByPassengerId(passengerId);
+    @Transactional(readOnly = true)
+    public Slice<BookingView> getPassengerBookings(Long passengerId, int page, int size) {
+        log.debug("🔍 BookingService - Réservations du passager: {}", passengerId);
+        return bookingRepository.findViewsByPassenger(passengerId, pageRequest(page, size));
     }
 
     // ✅ OBTENIR les réservations pour un conducteur
-    public List<Booking> getDriverBookings(Long driverId) {
-        System.out.println("🔍 BookingService - Réservations pour conducteur: " + driverId);
-        return bookingRepository.findBookingsForDriver(driverId);
+    @Transactional(readOnly = true)
+    public Slice<BookingView> getDriverBookings(Long driverId, int page, int size) {
+        log.debug("🔍 BookingService - Réservations pour conducteur: {}", driverId);
+        return bookingRepository.findViewsForDriver(driverId, pageRequest(page, size));
     }
 
     // ✅ OBTENIR les réservations en attente pour un conducteur
-    public List<Booking> getPendingBookingsForDriver(Long driverId) {
-        System.out.println("⏳ BookingService - Réservations en attente pour conducteur: " + driverId);
-        return bookingRepository.findPendingBookingsForDriver(driverId);
+    @Transactional(readOnly = true)
+    public Slice<BookingView> getPendingBookingsForDriver(Long driverId, int page, int size) {
+        log.debug("⏳ BookingService - Réservations en attente pour conducteur: {}", driverId);
+        return bookingRepository.findPendingViewsForDriver(driverId, pageRequest(page, size));
     }
 
     // ✅ CONFIRMER une réservation (par le conducteur)
     public Booking confirmBooking(Long bookingId, Long driverId) {
         try {
-            System.out.println("✅ BookingService - Confirmation réservation: " + bookingId);
+            log.info("✅ BookingService - Confirmation réservation: {}", bookingId);
 
             Booking booking = getBookingById(bookingId);
             Trip trip = booking.getTrip();
@@ -135,24 +174,29 @@ public class BookingService {
                 throw new IllegalArgumentException("Cette réservation ne peut pas être confirmée");
             }
 
-            // Vérifier qu'il y a encore assez de places
-            if (!trip.canBook(booking.getSeatsBooked())) {
-                throw new IllegalArgumentException("Plus assez de places disponibles");
+            // Les places sont déjà retenues par la demande ; les demandes antérieures aux réservations
+            // temporaires (sans échéance) les réservent maintenant
+            if (booking.getHoldExpiresAt() == null) {
+                reserveSeats(trip, booking.getSeatsBooked());
+            } else {
+                LocalDateTime now = LocalDateTime.now();
+                if (booking.isHoldExpired(now)) {
+                    throw new IllegalArgumentException("Cette demande de réservation a expiré");
+                }
+                ensureTripBookable(trip, now);
             }
-
-            // Confirmer la réservation et réserver les places
             booking.confirm();
-            trip.reserveSeats(booking.getSeatsBooked());
 
             // Sauvegarder
             bookingRepository.save(booking);
-            tripRepository.save(trip);
+            statsService.onBookingTransition(booking, driverId, BookingStatus.PENDING, BookingStatus.CONFIRMED);
+            outboxService.onBookingChanged(booking, driverId, BookingStatus.PENDING, BookingStatus.CONFIRMED);
 
-            System.out.println("✅ BookingService - Réservation confirmée: " + bookingId);
+            log.info("✅ BookingService - Réservation confirmée: {}", bookingId);
             return booking;
 
         } catch (Exception e) {
-            System.err.println("❌ BookingService - Erreur confirmBooking: " + e.getMessage());
+            log.warn("❌ BookingService - Erreur confirmBooking: {}", e.getMessage());
             throw e;
         }
     }
@@ -160,7 +204,7 @@ public class BookingService {
     // ✅ REJETER une réservation (par le conducteur)
     public Booking rejectBooking(Long bookingId, Long driverId) {
         try {
-            System.out.println("❌ BookingService - Rejet réservation: " + bookingId);
+            log.debug("❌ BookingService - Rejet réservation: {}", bookingId);
 
             Booking booking = getBookingById(bookingId);
             Trip trip = booking.getTrip();
@@ -170,15 +214,20 @@ public class BookingService {
                 throw new IllegalArgumentException("Vous n'êtes pas autorisé à rejeter cette réservation");
             }
 
-            // Rejeter la réservation
+            // Rejeter la réservation et rendre les places retenues
+            if (booking.holdsSeats()) {
+                releaseSeats(trip, booking.getSeatsBooked());
+            }
             booking.reject();
             Booking savedBooking = bookingRepository.save(booking);
+            statsService.onBookingTransition(savedBooking, driverId, BookingStatus.PENDING, BookingStatus.REJECTED);
+            outboxService.onBookingChanged(savedBooking, driverId, BookingStatus.PENDING, BookingStatus.REJECTED);
 
-            System.out.println("✅ BookingService - Réservation rejetée: " + bookingId);
+            log.info("✅ BookingService - Réservation rejetée: {}", bookingId);
             return savedBooking;
 
         } catch (Exception e) {
-            System.err.println("❌ BookingService - Erreur rejectBooking: " + e.getMessage());
+            log.warn("❌ BookingService - Erreur rejectBooking: {}", e.getMessage());
             throw e;
         }
     }
@@ -186,7 +235,7 @@ public class BookingService {
     // ✅ ANNULER une réservation (par le passager)
     public Booking cancelBooking(Long bookingId, Long passengerId) {
         try {
-            System.out.println("❌ BookingService - Annulation réservation: " + bookingId);
+            log.debug("❌ BookingService - Annulation réservation: {}", bookingId);
 
             Booking booking = getBookingById(bookingId);
 
@@ -200,62 +249,108 @@ public class BookingService {
                 throw new IllegalArgumentException("Cette réservation ne peut pas être annulée");
             }
 
-            // Si la réservation était confirmée, libérer les places
-            if (booking.isConfirmed()) {
-                Trip trip = booking.getTrip();
-                trip.releaseSeats(booking.getSeatsBooked());
-                tripRepository.save(trip);
+            // Si la réservation retenait des places (confirmée ou en attente), les libérer
+            if (booking.holdsSeats()) {
+                releaseSeats(booking.getTrip(), booking.getSeatsBooked());
             }
 
             // Annuler la réservation
+            BookingStatus previousStatus = booking.getBookingStatus();
             booking.cancel();
             Booking savedBooking = bookingRepository.save(booking);
+            statsService.onBookingTransition(savedBooking, booking.getTrip().getDriverId(),
+                    previousStatus, BookingStatus.CANCELLED);
+            outboxService.onBookingChanged(savedBooking, booking.getTrip().getDriverId(),
+                    previousStatus, BookingStatus.CANCELLED);
 
-            System.out.println("✅ BookingService - Réservation annulée: " + bookingId);
+            log.info("✅ BookingService - Réservation annulée: {}", bookingId);
             return savedBooking;
 
         } catch (Exception e) {
-            System.err.println("❌ BookingService - Erreur cancelBooking: " + e.getMessage());
+            log.warn("❌ BookingService - Erreur cancelBooking: {}", e.getMessage());
             throw e;
         }
     }
 
+    // ✅ EXPIRER une demande dont la réservation temporaire est échue (appelé par SeatHoldExpirer)
+    public Booking expireHold(Long bookingId) {
+        Booking booking = bookingRepository.findById(bookingId).orElse(null);
+        if (booking == null || !booking.isHoldExpired(LocalDateTime.now())) {
+            // Confirmée, rejetée ou annulée entre-temps : rien à faire
+            return booking;
+        }
+
+        Trip trip = booking.getTrip();
+        releaseSeats(trip, booking.getSeatsBooked());
+        booking.expire();
+        Booking savedBooking = bookingRepository.save(booking);
+        statsService.onBookingTransition(savedBooking, trip.getDriverId(), BookingStatus.PENDING, BookingStatus.EXPIRED);
+        outboxService.onBookingChanged(savedBooking, trip.getDriverId(), BookingStatus.PENDING, BookingStatus.EXPIRED);
+
+        log.info("⌛ BookingService - Demande expirée, places libérées: {}", bookingId);
+        return savedBooking;
+    }
+
     // ✅ OBTENIR une réservation par ID
     public Booking getBookingById(Long bookingId) {
-        System.out.println("🔍 BookingService - Recherche réservation: " + bookingId);
+        log.debug("🔍 BookingService - Recherche réservation: {}", bookingId);
         return bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new IllegalArgumentException("Réservation non trouvée: " + bookingId));
     }
 
     // ✅ OBTENIR les statistiques d'un passager
     public Map<String, Object> getPassengerStats(Long passengerId) {
-        Long totalBookings = bookingRepository.countBookingsByPassenger(passengerId);
-        Long confirmedBookings = bookingRepository.countConfirmedBookingsByPassenger(passengerId);
-        Double totalExpenses = bookingRepository.calculatePassengerExpenses(passengerId);
+        PassengerStats stats = statsService.getPassengerStats(passengerId);
 
         return Map.of(
-                "totalBookings", totalBookings,
-                "confirmedBookings", confirmedBookings,
-                "totalExpenses", totalExpenses != null ? totalExpenses : 0.0,
-                "activeBookings", bookingRepository.findActiveBookingsByPassenger(passengerId).size()
+                "totalBookings", stats.getTotalBookings(),
+                "confirmedBookings", stats.getConfirmedBookings(),
+                "totalExpenses", stats.getTotalExpenses(),
+                "activeBookings", stats.getActiveBookings()
         );
     }
 
     // ✅ OBTENIR les revenus d'un conducteur
     public Map<String, Object> getDriverEarnings(Long driverId) {
-        Double totalEarnings = bookingRepository.calculateDriverEarnings(driverId);
-        List<Booking> confirmedBookings = bookingRepository.findBookingsForDriver(driverId)
-                .stream()
-                .filter(b -> b.getBookingStatus() == BookingStatus.CONFIRMED)
-                .toList();
+        DriverStats stats = statsService.getDriverStats(driverId);
 
         return Map.of(
-                "totalEarnings", totalEarnings != null ? totalEarnings : 0.0,
-                "totalConfirmedBookings", confirmedBookings.size(),
-                "pendingBookings", bookingRepository.findPendingBookingsForDriver(driverId).size()
+                "totalEarnings", stats.getTotalEarnings(),
+                "totalConfirmedBookings", stats.getConfirmedBookings(),
+                "pendingBookings", stats.getPendingBookings()
         );
     }
 
+    private static PageRequest pageRequest(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+    }
+
+    // 🔧 Réservation de places par UPDATE conditionnel : sûr face aux réservations concurrentes
+    private void reserveSeats(Trip trip, int seats) {
+        int updated = tripRepository.reserveSeats(trip.getId(), seats, LocalDateTime.now());
+        if (updated == 0) {
+            throw new IllegalArgumentException("Plus assez de places disponibles");
+        }
+        // Recharger l'état réel (le trajet en mémoire ne reflète pas l'UPDATE)
+        entityManager.refresh(trip);
+        tripSearchIndex.indexAfterCommit(trip);
+    }
+
+    // Sans reserveSeats, l'état du trajet est vérifié ici ; le verrou partagé fait attendre une annulation
+    // ou une clôture concurrente jusqu'à la fin de cette transaction (elle rejette alors les demandes restantes)
+    private void ensureTripBookable(Trip trip, LocalDateTime now) {
+        if (!trip.isActive() || !trip.getDepartureTime().isAfter(now)
+                || tripRepository.lockBookableTrip(trip.getId(), now).isEmpty()) {
+            throw new IllegalArgumentException("Ce trajet n'accepte plus de réservations");
+        }
+    }
+
+    private void releaseSeats(Trip trip, int seats) {
+        tripRepository.releaseSeats(trip.getId(), seats, LocalDateTime.now());
+        entityManager.refresh(trip);
+        tripSearchIndex.indexAfterCommit(trip);
+    }
+
     // 🔧 Méthodes privées de validation
     private void validateBooking(Trip trip, Long passengerId, Integer seatsRequested) {
         // Vérifier que le trajet est actif
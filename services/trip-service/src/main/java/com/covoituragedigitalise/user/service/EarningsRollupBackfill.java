@@ -0,0 +1,97 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.EarningsRow;
+import com.covoituragedigitalise.trip.repository.BookingRepository;
+import com.covoituragedigitalise.trip.repository.DriverDailyEarningsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reconstruction des rollups de revenus depuis les réservations confirmées existantes.
+ * Les réservations sont lues par blocs d'ID croissants (une transaction par bloc), agrégées en
+ * mémoire par (conducteur, jour) puis ajoutées aux rollups. Activée par earnings.rollup.backfill=true ;
+ * à lancer une fois, au déploiement, avant d'ouvrir les réservations (les confirmations faites
+ * pendant la reconstruction seraient comptées deux fois).
+ */
+@Component
+public class EarningsRollupBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(EarningsRollupBackfill.class);
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private DriverDailyEarningsRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${earnings.rollup.backfill:false}")
+    private boolean enabled;
+
+    @Value("${earnings.rollup.backfill-chunk-size:1000}")
+    private int chunkSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    // ✅ Vider puis recalculer tous les rollups
+    public void rebuild() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        log.info("📈 EarningsRollupBackfill - Reconstruction des rollups de revenus...");
+
+        transactionTemplate.executeWithoutResult(status -> rollupRepository.deleteAllRollups());
+
+        long afterId = 0;
+        long bookings = 0;
+        while (true) {
+            long cursor = afterId;
+            List<EarningsRow> rows = transactionTemplate.execute(status -> {
+                List<EarningsRow> chunk = bookingRepository.findConfirmedEarningsAfter(cursor, PageRequest.ofSize(chunkSize));
+                addChunk(chunk);
+                return chunk;
+            });
+            if (rows == null || rows.isEmpty()) {
+                break;
+            }
+            bookings += rows.size();
+            afterId = rows.get(rows.size() - 1).bookingId();
+        }
+
+        log.info("✅ EarningsRollupBackfill - {} réservation(s) confirmée(s) reprise(s)", bookings);
+    }
+
+    private void addChunk(List<EarningsRow> chunk) {
+        Map<Long, Map<LocalDate, BigDecimal>> earnings = new HashMap<>();
+        Map<Long, Map<LocalDate, Long>> seats = new HashMap<>();
+        for (EarningsRow row : chunk) {
+            LocalDate day = row.departureTime().toLocalDate();
+            earnings.computeIfAbsent(row.driverId(), k -> new HashMap<>()).merge(day, row.totalPrice(), BigDecimal::add);
+            seats.computeIfAbsent(row.driverId(), k -> new HashMap<>()).merge(day, (long) row.seatsBooked(), Long::sum);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        earnings.forEach((driverId, days) -> days.forEach((day, amount) ->
+                rollupRepository.add(driverId, day, amount, seats.get(driverId).get(day), now)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.EarningsBucket;
+import com.covoituragedigitalise.trip.dto.EarningsRow;
+import com.covoituragedigitalise.trip.entity.Booking;
+import com.covoituragedigitalise.trip.entity.DriverDailyEarnings;
+import com.covoituragedigitalise.trip.repository.BookingRepository;
+import com.covoituragedigitalise.trip.repository.DriverDailyEarningsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rollups quotidiens des revenus confirmés par conducteur, classés par jour de départ du trajet.
+ * Chaque confirmation ou annulation d'une réservation confirmée ajoute (ou retire) son montant
+ * et ses places à la ligne du jour ; un trajet déplacé à un autre jour y emmène ses revenus.
+ * Les plages par jour, semaine ou mois sont calculées depuis ces lignes, sans lire bookings.
+ */
+@Service
+@Transactional
+public class EarningsRollupService {
+
+    private static final long MAX_RANGE_DAYS = 3 * 366;
+
+    @Autowired
+    private DriverDailyEarningsRepository rollupRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    // ✅ Réservation devenue (confirmed = 1) ou n'étant plus (confirmed = -1) confirmée
+    public void onConfirmedDelta(Booking booking, Long driverId, long confirmed) {
+        if (confirmed == 0) {
+            return;
+        }
+        rollupRepository.add(driverId,
+                booking.getTrip().getDepartureTime().toLocalDate(),
+                booking.getTotalPrice().multiply(BigDecimal.valueOf(confirmed)),
+                (long) booking.getSeatsBooked() * confirmed,
+                LocalDateTime.now());
+    }
+
+    // ✅ Trajet déplacé à un autre jour : ses revenus confirmés changent de ligne
+    public void onTripRescheduled(Long tripId, Long driverId, LocalDate previousDay, LocalDate newDay) {
+        if (previousDay.equals(newDay)) {
+            return;
+        }
+        BigDecimal earnings = BigDecimal.ZERO;
+        long seats = 0;
+        for (EarningsRow row : bookingRepository.findConfirmedEarningsByTrip(tripId)) {
+            earnings = earnings.add(row.totalPrice());
+            seats += row.seatsBooked();
+        }
+        if (seats == 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        rollupRepository.add(driverId, previousDay, earnings.negate(), -seats, now);
+        rollupRepository.add(driverId, newDay, earnings, seats, now);
+    }
+
+    // ✅ Revenus d'un conducteur entre deux jours inclus, par jour, semaine ou mois
+    @Transactional(readOnly = true)
+    public Map<String, Object> getEarnings(Long driverId, LocalDate from, LocalDate to, String granularity) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Plage de dates invalide");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Plage de dates trop large (3 ans maximum)");
+        }
+
+        Map<LocalDate, EarningsBucket> buckets = new LinkedHashMap<>();
+        BigDecimal totalEarnings = BigDecimal.ZERO;
+        long totalSeats = 0;
+        for (DriverDailyEarnings day : rollupRepository.findByDriverIdAndDayBetweenOrderByDayAsc(driverId, from, to)) {
+            LocalDate periodStart = periodStart(day.getDay(), granularity);
+            buckets.merge(periodStart,
+                    new EarningsBucket(periodStart, day.getEarnings(), day.getSeats()),
+                    (a, b) -> new EarningsBucket(periodStart, a.earnings().add(b.earnings()), a.seats() + b.seats()));
+            totalEarnings = totalEarnings.add(day.getEarnings());
+            totalSeats += day.getSeats();
+        }
+
+        return Map.of(
+                "granularity", granularity,
+                "from", from.toString(),
+                "to", to.toString(),
+                "totalEarnings", totalEarnings,
+                "totalSeats", totalSeats,
+                "buckets", new ArrayList<>(buckets.values())
+        );
+    }
+
+    private static LocalDate periodStart(LocalDate day, String granularity) {
+        return switch (granularity) {
+            case "day" -> day;
+            case "week" -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case "month" -> day.withDayOfMonth(1);
+            default -> throw new IllegalArgumentException("Granularité invalide: " + granularity + " (day, week, month)");
+        };
+    }
+}
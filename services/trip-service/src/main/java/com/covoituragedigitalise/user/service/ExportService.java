@@ -0,0 +1,281 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.BookingView;
+import com.covoituragedigitalise.trip.entity.Trip;
+import com.covoituragedigitalise.trip.mapper.ResponseMapper;
+import com.covoituragedigitalise.trip.repository.BookingRepository;
+import com.covoituragedigitalise.trip.repository.StreamingQueries;
+import com.covoituragedigitalise.trip.repository.TripRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Exports en flux (NDJSON ou CSV) des réservations et des trajets.
+ * Les lignes sont lues par un curseur JDBC (StreamingQueries.FETCH_SIZE lignes par aller-retour,
+ * transaction en lecture seule) et écrites une à une dans la réponse : la mémoire utilisée ne dépend pas
+ * du nombre de lignes.
+ * Un client lent bloque l'écriture, donc la lecture du curseur : aucune ligne ne s'accumule en mémoire.
+ * Chaque export garde une connexion pendant toute sa durée ; leur nombre est borné (export.max-concurrent)
+ * et leur durée par spring.mvc.async.request-timeout.
+ */
+@Component
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // Un envoi au client par bloc lu dans le curseur
+    private static final int FLUSH_EVERY_ROWS = Integer.parseInt(StreamingQueries.FETCH_SIZE);
+
+    private static final String[] BOOKING_COLUMNS = {"bookingId", "tripId", "passengerId", "passengerName",
+            "passengerPhone", "seatsBooked", "totalPrice", "bookingStatus", "bookingDate", "pickupLocation",
+            "dropoffLocation", "specialRequests", "holdExpiresAt", "createdAt", "departureLocation",
+            "arrivalLocation", "departureTime", "driverId"};
+
+    private static final String[] TRIP_COLUMNS = {"tripId", "departureLocation", "arrivalLocation",
+            "departureTime", "availableSeats", "originalSeats", "pricePerSeat", "tripStatus", "isInstantBooking",
+            "description", "createdAt"};
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private ResponseMapper responseMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${export.max-concurrent:4}")
+    private int maxConcurrent;
+
+    private TransactionTemplate readOnlyTransaction;
+    private ObjectWriter jsonWriter;
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        jsonWriter = objectMapper.writer();
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    public enum Format {
+        NDJSON("ndjson", MediaType.parseMediaType("application/x-ndjson")),
+        CSV("csv", MediaType.parseMediaType("text/csv;charset=UTF-8"));
+
+        private final String extension;
+        private final MediaType mediaType;
+
+        Format(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Format d'export inconnu: " + value + " (ndjson ou csv)");
+            }
+        }
+    }
+
+    // ✅ Réservations d'un passager
+    public ResponseEntity<?> exportPassengerBookings(Long passengerId, String format) {
+        return stream("reservations", format, (f, out) -> {
+            try (Stream<BookingView> rows = bookingRepository.streamViewsByPassenger(passengerId)) {
+                return writeBookings(rows, f, out);
+            }
+        });
+    }
+
+    // ✅ Réservations sur les trajets d'un conducteur
+    public ResponseEntity<?> exportDriverBookings(Long driverId, String format) {
+        return stream("reservations-conducteur", format, (f, out) -> {
+            try (Stream<BookingView> rows = bookingRepository.streamViewsForDriver(driverId)) {
+                return writeBookings(rows, f, out);
+            }
+        });
+    }
+
+    // ✅ Trajets d'un conducteur
+    public ResponseEntity<?> exportDriverTrips(Long driverId, String format) {
+        return stream("trajets", format, (f, out) -> {
+            try (Stream<Trip> rows = tripRepository.streamByDriverId(driverId)) {
+                return writeTrips(rows, f, out);
+            }
+        });
+    }
+
+    // 🔧 Réponse en flux : l'écriture a lieu hors du thread de requête, dans une transaction en lecture seule
+    private ResponseEntity<?> stream(String fileName, String formatParam, RowWriter rowWriter) {
+        Format format = Format.parse(formatParam);
+        if (!permits.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(Map.of("status", 503, "message", "Trop d'exports en cours, réessayez plus tard"));
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            long start = System.currentTimeMillis();
+            try {
+                Writer out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8),
+                        BUFFER_SIZE);
+                Long rows = readOnlyTransaction.execute(status -> rowWriter.write(format, out));
+                out.flush();
+                log.info("📦 ExportService - {} : {} ligne(s) en {} ms", fileName, rows,
+                        System.currentTimeMillis() - start);
+            } catch (UncheckedIOException e) {
+                // Client parti ou délai dépassé : la transaction est annulée et le curseur fermé
+                log.warn("⚠️ ExportService - {} interrompu: {}", fileName, e.getCause().getMessage());
+                throw e.getCause();
+            } finally {
+                permits.release();
+            }
+        };
+
+        String attachment = ContentDisposition.attachment()
+                .filename(fileName + "-" + LocalDate.now() + "." + format.extension)
+                .build()
+                .toString();
+        return ResponseEntity.ok()
+                .contentType(format.mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment)
+                .cacheControl(CacheControl.noStore())
+                .body(body);
+    }
+
+    private long writeBookings(Stream<BookingView> rows, Format format, Writer out) {
+        if (format == Format.CSV) {
+            writeCsvRow(out, BOOKING_COLUMNS);
+        }
+        long[] count = {0};
+        rows.forEach(view -> {
+            if (format == Format.NDJSON) {
+                writeJsonLine(out, responseMapper.toResponse(view));
+            } else {
+                writeCsvRow(out, view.bookingId(), view.tripId(), view.passengerId(), view.passengerName(),
+                        view.passengerPhone(), view.seatsBooked(), view.totalPrice(), view.bookingStatus(),
+                        view.bookingDate(), view.pickupLocation(), view.dropoffLocation(), view.specialRequests(),
+                        view.holdExpiresAt(), view.createdAt(), view.departureLocation(), view.arrivalLocation(),
+                        view.departureTime(), view.driverId());
+            }
+            flushIfDue(out, ++count[0]);
+        });
+        return count[0];
+    }
+
+    private long writeTrips(Stream<Trip> rows, Format format, Writer out) {
+        if (format == Format.CSV) {
+            writeCsvRow(out, TRIP_COLUMNS);
+        }
+        long[] count = {0};
+        rows.forEach(trip -> {
+            if (format == Format.NDJSON) {
+                writeJsonLine(out, responseMapper.toSummary(trip));
+            } else {
+                writeCsvRow(out, trip.getId(), trip.getDepartureLocation(), trip.getArrivalLocation(),
+                        trip.getDepartureTime(), trip.getAvailableSeats(), trip.getOriginalSeats(),
+                        trip.getPricePerSeat(), trip.getTripStatus(), trip.getIsInstantBooking(),
+                        trip.getDescription(), trip.getCreatedAt());
+            }
+            // Entité écrite : le contexte de persistance ne grossit pas avec l'export
+            entityManager.detach(trip);
+            flushIfDue(out, ++count[0]);
+        });
+        return count[0];
+    }
+
+    private void writeJsonLine(Writer out, Object row) {
+        try {
+            out.write(jsonWriter.writeValueAsString(row));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsvRow(Writer out, Object... values) {
+        try {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(csvCell(values[i]));
+            }
+            out.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Guillemets si nécessaire ; une cellule commençant par = + - @ est neutralisée (formules des tableurs)
+    private static String csvCell(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0 && !(value instanceof Number)) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    // Envoi régulier au client ; l'écriture bloque tant que le client ne lit pas
+    private static void flushIfDue(Writer out, long count) {
+        if (count % FLUSH_EVERY_ROWS == 0) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        long write(Format format, Writer out);
+    }
+}
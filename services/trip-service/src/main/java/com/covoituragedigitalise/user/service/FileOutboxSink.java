@@ -0,0 +1,78 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Journal local des événements, une ligne JSON par événement (NDJSON) ajoutée à outbox.file.path,
+ * actif seulement si le chemin est configuré. Chaque ligne est écrite sur disque avant que
+ * l'événement ne soit marqué publié.
+ * Écritures protégées par un ReentrantLock plutôt que synchronized : une écriture disque sous
+ * synchronized épinglerait le thread porteur quand le relais tourne sur un thread virtuel.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.file.path")
+public class FileOutboxSink implements OutboxSink {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${outbox.file.path}")
+    private String path;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private BufferedWriter writer;
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path file = Path.of(path);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            writer.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void publish(OutboxMessage message) throws IOException {
+        String line = objectMapper.writeValueAsString(message);
+        lock.lock();
+        try {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.entity.IdempotencyRecord;
+import com.covoituragedigitalise.trip.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Rejeu des créations envoyées avec un en-tête Idempotency-Key.
+ * La première réponse réussie (2xx) d'une clé est gardée pendant ttl : en mémoire (Caffeine, bornée)
+ * et dans la table idempotency_keys. Une requête rejouée avec la même clé reçoit la réponse enregistrée
+ * sans que l'action soit exécutée à nouveau ; depuis la mémoire, aucune requête SQL n'est faite.
+ * Les clés sont propres à l'opération et à l'utilisateur. Une même clé réutilisée avec un autre corps
+ * est refusée (422). La première requête prend la clé en base avant d'exécuter l'action (ligne sans
+ * réponse) : sur toutes les instances, les doublons reçoivent 409 pendant son exécution. Si son instance
+ * s'arrête avant la fin, la clé est libérée après idempotency.claim-timeout-ms.
+ * Les réponses en erreur ne sont pas enregistrées : la clé est rendue et le client peut réessayer.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    @Value("${idempotency.claim-timeout-ms:60000}")
+    private long claimTimeoutMs;
+
+    @Value("${idempotency.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    private Cache<String, StoredResponse> responses;
+
+    @PostConstruct
+    public void init() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotency.responses");
+    }
+
+    // ✅ Exécuter l'action une seule fois par clé, ou rejouer la réponse enregistrée
+    public ResponseEntity<?> execute(String operation, Long userId, String key, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", 400, "message", HEADER + " trop longue (" + MAX_KEY_LENGTH + " max)"));
+        }
+
+        String recordKey = operation + ":" + userId + ":" + key;
+        String requestHash = hash(request);
+
+        StoredResponse stored = cached(recordKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+        // Heure de prise tronquée à la précision de la colonne : elle identifie notre ligne en cours
+        LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        LocalDateTime claimExpiresAt = claimedAt.plus(Duration.ofMillis(claimTimeoutMs));
+        if (idempotencyRecordRepository.claim(recordKey, userId, requestHash, claimedAt, claimExpiresAt) == 0) {
+            return existing(recordKey, requestHash);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(recordKey, claimedAt);
+            throw e;
+        }
+        if (response.getStatusCode().is2xxSuccessful()) {
+            save(recordKey, claimedAt, requestHash, response);
+        } else {
+            release(recordKey, claimedAt);
+        }
+        return response;
+    }
+
+    // ✅ Purge des clés échues en base (la mémoire expire d'elle-même)
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}",
+            initialDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("🧹 IdempotencyStore - {} clé(s) échue(s) supprimée(s)", deleted);
+        }
+    }
+
+    private StoredResponse cached(String recordKey) {
+        StoredResponse stored = responses.getIfPresent(recordKey);
+        return stored != null && stored.expiresAt().isAfter(LocalDateTime.now()) ? stored : null;
+    }
+
+    // Clé déjà prise : réponse enregistrée (rejouée) ou première requête en cours (409)
+    private ResponseEntity<?> existing(String recordKey, String requestHash) {
+        IdempotencyRecord record = idempotencyRecordRepository.findById(recordKey).orElse(null);
+        if (record != null && !record.isInProgress()) {
+            StoredResponse stored = new StoredResponse(record.getStatusCode(), record.getRequestHash(),
+                    record.getResponseBody(), record.getExpiresAt());
+            responses.put(recordKey, stored);
+            return replay(stored, requestHash);
+        }
+        if (record != null && !record.getRequestHash().equals(requestHash)) {
+            return keyReused();
+        }
+        // En cours, ou rendue entre la prise et la lecture : le client réessaie
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("status", 409, "message", "Une requête avec cette " + HEADER + " est en cours"));
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return keyReused();
+        }
+        log.debug("🔁 IdempotencyStore - Réponse rejouée");
+        return ResponseEntity.status(stored.statusCode())
+                .header(REPLAYED_HEADER, "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(stored.body());
+    }
+
+    private static ResponseEntity<?> keyReused() {
+        return ResponseEntity.unprocessableEntity()
+                .body(Map.of("status", 422, "message", HEADER + " déjà utilisée pour une autre requête"));
+    }
+
+    private void save(String recordKey, LocalDateTime claimedAt, String requestHash, ResponseEntity<?> response) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(Duration.ofMillis(ttlMs));
+        try {
+            String body = objectMapper.writeValueAsString(response.getBody());
+            int statusCode = response.getStatusCode().value();
+            if (idempotencyRecordRepository.complete(recordKey, claimedAt, statusCode, body, expiresAt) > 0) {
+                responses.put(recordKey, new StoredResponse(statusCode, requestHash, body, expiresAt));
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            // L'action a réussi : sa réponse est renvoyée même si elle n'a pas pu être enregistrée
+            // (la clé reste prise jusqu'à son échéance)
+            log.warn("⚠️ IdempotencyStore - Réponse non enregistrée: {}", e.getMessage());
+        }
+    }
+
+    private void release(String recordKey, LocalDateTime claimedAt) {
+        try {
+            idempotencyRecordRepository.release(recordKey, claimedAt);
+        } catch (RuntimeException e) {
+            // La clé sera libérée à l'échéance de sa prise
+            log.warn("⚠️ IdempotencyStore - Clé non rendue: {}", e.getMessage());
+        }
+    }
+
+    // Empreinte du corps de la requête (clés triées : l'ordre des champs JSON est indifférent)
+    private String hash(Object request) {
+        try {
+            byte[] json = objectMapper.writer(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Corps de requête illisible", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private record StoredResponse(int statusCode, String requestHash, String body, LocalDateTime expiresAt) {
+    }
+}
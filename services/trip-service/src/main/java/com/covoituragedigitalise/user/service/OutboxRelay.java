@@ -0,0 +1,175 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.OutboxMessage;
+import com.covoituragedigitalise.trip.entity.OutboxEvent;
+import com.covoituragedigitalise.trip.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Relais de l'outbox : publie par lots les événements non publiés vers tous les canaux (OutboxSink).
+ * - Au moins une fois : un événement n'est marqué publié qu'après acceptation par tous les canaux,
+ *   dans la transaction qui l'a lu ; un arrêt entre les deux le fait republier (les consommateurs
+ *   dédupliquent par id).
+ * - Ordre par trajet : une seule instance relaie à la fois (verrou consultatif PostgreSQL) et les
+ *   événements sont lus dans l'ordre des id, qui est l'ordre de validation pour un même trajet
+ *   (voir OutboxService).
+ * - Échecs : un événement refusé est réessayé après un délai croissant (outbox.relay.retry-delay-ms,
+ *   doublé à chaque échec, plafonné à outbox.relay.max-retry-delay-ms) ; après outbox.relay.max-attempts
+ *   échecs il est écarté (parked_at). Les événements suivants de son trajet attendent avec lui, hors
+ *   de la requête de lecture : ils n'occupent pas les lots et les autres trajets ne sont pas bloqués.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    // Clé du verrou consultatif pg_try_advisory_xact_lock propre au relais
+    private static final long RELAY_LOCK_KEY = 0x6F7574626F78L;
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private List<OutboxSink> sinks;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.retention-ms:604800000}")
+    private long retentionMs;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    @Value("${outbox.relay.max-retry-delay-ms:300000}")
+    private long maxRetryDelayMs;
+
+    private TransactionTemplate transactionTemplate;
+    private Timer batchTimer;
+    private Counter publishedCounter;
+    private Counter failedCounter;
+    private Counter parkedCounter;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        batchTimer = Timer.builder("outbox.relay.batch.duration").register(meterRegistry);
+        publishedCounter = Counter.builder("outbox.events.published").register(meterRegistry);
+        failedCounter = Counter.builder("outbox.events.failed").register(meterRegistry);
+        parkedCounter = Counter.builder("outbox.events.parked").register(meterRegistry);
+        log.info("📤 OutboxRelay - Canaux: {}", sinks.stream().map(OutboxSink::name).toList());
+    }
+
+    // ✅ Publier les événements en attente, lot par lot
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:1000}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int read;
+            do {
+                read = batchTimer.record(() -> transactionTemplate.execute(status -> relayBatch()));
+            } while (read == batchSize);
+        } catch (RuntimeException e) {
+            log.error("❌ OutboxRelay - Passe interrompue: {}", e.getMessage(), e);
+        }
+    }
+
+    // ✅ Purge des événements publiés au-delà de la rétention
+    @Scheduled(fixedDelayString = "${outbox.purge-interval-ms:3600000}",
+            initialDelayString = "${outbox.purge-interval-ms:3600000}")
+    public void purgePublished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(retentionMs * 1_000_000);
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deletePublishedBefore(cutoff));
+        if (deleted != null && deleted > 0) {
+            log.info("🧹 OutboxRelay - {} événement(s) publié(s) supprimé(s)", deleted);
+        }
+    }
+
+    // Nombre d'événements lus : un lot plein est suivi d'un autre (les échecs en sont retirés par leur délai)
+    private int relayBatch() {
+        if (!outboxEventRepository.tryRelayLock(RELAY_LOCK_KEY)) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> batch = outboxEventRepository.findUnpublished(now, PageRequest.of(0, batchSize));
+        List<Long> published = new ArrayList<>(batch.size());
+        Set<Long> blockedTrips = new HashSet<>();
+
+        for (OutboxEvent event : batch) {
+            if (blockedTrips.contains(event.getTripId())) {
+                continue;
+            }
+            OutboxMessage message = OutboxMessage.from(event);
+            try {
+                for (OutboxSink sink : sinks) {
+                    sink.publish(message);
+                }
+                published.add(event.getId());
+            } catch (Exception e) {
+                blockedTrips.add(event.getTripId());
+                recordFailure(event, e, now);
+            }
+        }
+
+        if (!published.isEmpty()) {
+            outboxEventRepository.markPublished(published, LocalDateTime.now());
+            publishedCounter.increment(published.size());
+        }
+        return batch.size();
+    }
+
+    // 🔧 Nouvel essai différé, ou mise à l'écart après maxAttempts échecs
+    private void recordFailure(OutboxEvent event, Exception e, LocalDateTime now) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        String error = String.valueOf(e.getMessage());
+        event.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        failedCounter.increment();
+
+        if (attempts >= maxAttempts) {
+            event.setParkedAt(now);
+            parkedCounter.increment();
+            log.error("❌ OutboxRelay - Événement {} ({}, trajet {}) écarté après {} échecs, trajet bloqué: {}",
+                    event.getId(), event.getEventType(), event.getTripId(), attempts, e.getMessage());
+            return;
+        }
+        long delayMs = Math.min(maxRetryDelayMs, retryDelayMs << Math.min(attempts - 1, 20));
+        event.setNextAttemptAt(now.plusNanos(delayMs * 1_000_000));
+        log.warn("⚠️ OutboxRelay - Événement {} ({}) non publié, essai {} dans {} ms: {}", event.getId(),
+                event.getEventType(), attempts, delayMs, e.getMessage());
+    }
+}
@@ -0,0 +1,135 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.entity.Booking;
+import com.covoituragedigitalise.trip.entity.BookingStatus;
+import com.covoituragedigitalise.trip.entity.OutboxEvent;
+import com.covoituragedigitalise.trip.entity.Trip;
+import com.covoituragedigitalise.trip.entity.TripStatus;
+import com.covoituragedigitalise.trip.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Écriture des événements métier dans l'outbox (table outbox_events).
+ * Les méthodes exigent une transaction en cours : l'événement est validé ou annulé avec le
+ * changement d'état qu'il décrit. La publication est faite plus tard par OutboxRelay.
+ * Un id IDENTITY est attribué à l'insertion, pas au commit : avant d'écrire, la transaction prend un verrou
+ * consultatif sur le trajet, gardé jusqu'à sa fin. Deux transactions qui écrivent pour un même trajet
+ * (voie du séquenceur, modification du trajet, TripExpiryJob) insèrent donc l'une après la validation
+ * de l'autre, et l'ordre des id d'un trajet est l'ordre de validation.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxService {
+
+    public static final String TRIP = "TRIP";
+    public static final String BOOKING = "BOOKING";
+
+    // Espace des verrous consultatifs par trajet (clé à deux entiers : namespace, trajet)
+    private static final int TRIP_LOCK_NAMESPACE = 0x6F62;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // ✅ Trajet créé (previous == null), modifié (même statut) ou changé de statut
+    public void onTripChanged(Trip trip, TripStatus previous, TripStatus current) {
+        String eventType = previous == null ? "TRIP_CREATED"
+                : previous == current ? "TRIP_UPDATED"
+                : "TRIP_" + current.name();
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("tripId", trip.getId());
+        payload.put("driverId", trip.getDriverId());
+        payload.put("previousStatus", previous != null ? previous.name() : null);
+        payload.put("status", current.name());
+        payload.put("departureLocation", trip.getDepartureLocation());
+        payload.put("arrivalLocation", trip.getArrivalLocation());
+        payload.put("departureTime", trip.getDepartureTime().toString());
+        payload.put("availableSeats", trip.getAvailableSeats());
+        write(eventType, TRIP, trip.getId(), trip.getId(), payload);
+    }
+
+    // ✅ Trajet clôturé en masse par TripExpiryJob (ACTIVE -> COMPLETED / EXPIRED)
+    public void onTripClosed(Long tripId, Long driverId, TripStatus current) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("tripId", tripId);
+        payload.put("driverId", driverId);
+        payload.put("previousStatus", TripStatus.ACTIVE.name());
+        payload.put("status", current.name());
+        write("TRIP_" + current.name(), TRIP, tripId, tripId, payload);
+    }
+
+    // ✅ Réservation créée (previous == null) ou changée de statut
+    public void onBookingChanged(Booking booking, Long driverId, BookingStatus previous, BookingStatus current) {
+        Long tripId = booking.getTrip().getId();
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("bookingId", booking.getId());
+        payload.put("tripId", tripId);
+        payload.put("passengerId", booking.getPassengerId());
+        payload.put("driverId", driverId);
+        payload.put("seatsBooked", booking.getSeatsBooked());
+        payload.put("previousStatus", previous != null ? previous.name() : null);
+        payload.put("status", current.name());
+        write(previous == null ? "BOOKING_CREATED" : "BOOKING_" + current.name(),
+                BOOKING, booking.getId(), tripId, payload);
+    }
+
+    // ✅ Demande en attente rejetée en masse par TripExpiryJob (trajet parti)
+    public void onPendingBookingRejected(Long bookingId, Long tripId, Long passengerId, Long driverId) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("bookingId", bookingId);
+        payload.put("tripId", tripId);
+        payload.put("passengerId", passengerId);
+        payload.put("driverId", driverId);
+        payload.put("previousStatus", BookingStatus.PENDING.name());
+        payload.put("status", BookingStatus.REJECTED.name());
+        write("BOOKING_REJECTED", BOOKING, bookingId, tripId, payload);
+    }
+
+    private void write(String eventType, String aggregateType, Long aggregateId, Long tripId,
+                       Map<String, Object> payload) {
+        lockTrip(tripId);
+        try {
+            outboxEventRepository.save(new OutboxEvent(eventType, aggregateType, aggregateId, tripId,
+                    objectMapper.writeValueAsString(payload)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Événement " + eventType + " non sérialisable", e);
+        }
+    }
+
+    // Un verrou par trajet et par transaction ; les trajets déjà verrouillés sont notés sur la transaction
+    private void lockTrip(Long tripId) {
+        LockedTrips locked = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof LockedTrips current) {
+                locked = current;
+                break;
+            }
+        }
+        if (locked == null) {
+            locked = new LockedTrips();
+            TransactionSynchronizationManager.registerSynchronization(locked);
+        }
+        if (locked.tripIds.add(tripId)) {
+            outboxEventRepository.lockTrip(TRIP_LOCK_NAMESPACE, tripId);
+        }
+    }
+
+    private static final class LockedTrips implements TransactionSynchronization {
+        private final Set<Long> tripIds = new HashSet<>();
+    }
+}
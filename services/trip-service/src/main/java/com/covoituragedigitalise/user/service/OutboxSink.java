@@ -0,0 +1,15 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.OutboxMessage;
+
+/**
+ * Canal de diffusion des événements de l'outbox. OutboxRelay remet chaque événement à tous les
+ * canaux actifs, dans l'ordre des id ; une exception laisse l'événement non publié et il est
+ * remis à nouveau (à tous les canaux) au passage suivant.
+ */
+public interface OutboxSink {
+
+    String name();
+
+    void publish(OutboxMessage message) throws Exception;
+}
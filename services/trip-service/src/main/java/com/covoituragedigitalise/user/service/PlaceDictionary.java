@@ -0,0 +1,140 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.PlaceSuggestion;
+import com.covoituragedigitalise.trip.entity.Place;
+import com.covoituragedigitalise.trip.entity.PlaceAlias;
+import com.covoituragedigitalise.trip.repository.PlaceAliasRepository;
+import com.covoituragedigitalise.trip.repository.PlaceRepository;
+import com.covoituragedigitalise.trip.util.PlaceNames;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Dictionnaire des lieux en mémoire.
+ * Une table exacte (nom ou alias normalisé → lieu) résout les saisies sans requête, et un trie
+ * alimente l'autocomplétion : chaque nom et alias y est inséré à partir de chacun de ses mots,
+ * de sorte que "jad" propose El Jadida. Le dictionnaire est chargé au démarrage puis complété
+ * après le commit de chaque nouveau lieu.
+ */
+@Component
+public class PlaceDictionary {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceDictionary.class);
+
+    @Autowired
+    private PlaceRepository placeRepository;
+
+    @Autowired
+    private PlaceAliasRepository placeAliasRepository;
+
+    private final Node root = new Node();
+    private final Map<String, Long> exact = new ConcurrentHashMap<>();
+    private final Map<Long, String> names = new ConcurrentHashMap<>();
+
+    // ✅ Chargement initial des lieux et alias
+    @PostConstruct
+    public void load() {
+        for (Place place : placeRepository.findAll()) {
+            add(place.getId(), place.getName(), place.getNormalizedName());
+        }
+        for (PlaceAlias alias : placeAliasRepository.findAll()) {
+            exact.putIfAbsent(alias.getNormalizedAlias(), alias.getPlaceId());
+            insert(alias.getNormalizedAlias(), alias.getPlaceId());
+        }
+        log.info("✅ PlaceDictionary - {} lieu(x), {} graphie(s)", names.size(), exact.size());
+    }
+
+    // ✅ Lieu correspondant exactement à une saisie (nom ou alias, sans casse ni accents)
+    public Optional<Long> lookup(String label) {
+        return Optional.ofNullable(exact.get(PlaceNames.normalize(label)));
+    }
+
+    public String nameOf(Long placeId) {
+        return names.get(placeId);
+    }
+
+    // ✅ Ajouter un lieu une fois la transaction validée
+    public void addAfterCommit(Place place) {
+        Long id = place.getId();
+        String name = place.getName();
+        String normalizedName = place.getNormalizedName();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(id, name, normalizedName);
+                }
+            });
+        } else {
+            add(id, name, normalizedName);
+        }
+    }
+
+    // ✅ Autocomplétion : lieux dont un mot commence par le préfixe, clés les plus courtes d'abord
+    public List<PlaceSuggestion> autocomplete(String prefix, int limit) {
+        String normalized = PlaceNames.normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Node node = root;
+        for (int i = 0; i < normalized.length() && node != null; i++) {
+            node = node.children.get(normalized.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+
+        Set<Long> placeIds = new LinkedHashSet<>();
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(node);
+        while (!queue.isEmpty() && placeIds.size() < limit) {
+            Node current = queue.poll();
+            for (Long placeId : current.placeIds) {
+                if (placeIds.size() < limit) {
+                    placeIds.add(placeId);
+                }
+            }
+            queue.addAll(current.children.values());
+        }
+
+        List<PlaceSuggestion> suggestions = new ArrayList<>(placeIds.size());
+        for (Long placeId : placeIds) {
+            suggestions.add(new PlaceSuggestion(placeId, names.get(placeId)));
+        }
+        return suggestions;
+    }
+
+    private void add(Long placeId, String name, String normalizedName) {
+        names.put(placeId, name);
+        exact.put(normalizedName, placeId);
+        insert(normalizedName, placeId);
+    }
+
+    // Le nom est inséré depuis le début de chacun de ses mots
+    private void insert(String normalizedKey, Long placeId) {
+        for (int start = 0; start < normalizedKey.length(); start++) {
+            if (start == 0 || normalizedKey.charAt(start - 1) == ' ') {
+                Node node = root;
+                for (int i = start; i < normalizedKey.length(); i++) {
+                    node = node.children.computeIfAbsent(normalizedKey.charAt(i), c -> new Node());
+                }
+                node.placeIds.add(placeId);
+            }
+        }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new ConcurrentSkipListMap<>();
+        private final Set<Long> placeIds = ConcurrentHashMap.newKeySet();
+    }
+}
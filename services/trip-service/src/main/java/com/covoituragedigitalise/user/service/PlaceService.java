@@ -0,0 +1,85 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.PlaceSuggestion;
+import com.covoituragedigitalise.trip.entity.Place;
+import com.covoituragedigitalise.trip.repository.PlaceRepository;
+import com.covoituragedigitalise.trip.repository.TripRepository;
+import com.covoituragedigitalise.trip.util.PlaceNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Transactional
+public class PlaceService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceService.class);
+
+    private static final int MAX_SUGGESTIONS = 20;
+
+    @Autowired
+    private PlaceRepository placeRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private PlaceDictionary placeDictionary;
+
+    // ✅ Lieu connu pour une saisie libre (nom ou alias), sans requête
+    public Optional<Long> findPlaceId(String label) {
+        return placeDictionary.lookup(label);
+    }
+
+    // ✅ Lieu d'une saisie libre, créé s'il n'existe pas encore
+    public Long resolveOrCreate(String label) {
+        String normalized = PlaceNames.normalize(label);
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("Lieu invalide: " + label);
+        }
+
+        Optional<Long> known = placeDictionary.lookup(normalized);
+        if (known.isPresent()) {
+            return known.get();
+        }
+
+        placeRepository.insertIfAbsent(label.trim(), normalized, LocalDateTime.now());
+        Place place = placeRepository.findByNormalizedName(normalized)
+                .orElseThrow(() -> new IllegalStateException("Lieu introuvable après création: " + label));
+        placeDictionary.addAfterCommit(place);
+        log.info("📍 PlaceService - Nouveau lieu: {} ({})", place.getName(), place.getId());
+        return place.getId();
+    }
+
+    // ✅ Autocomplétion par préfixe
+    @Transactional(readOnly = true)
+    public List<PlaceSuggestion> autocomplete(String prefix, int limit) {
+        return placeDictionary.autocomplete(prefix, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS));
+    }
+
+    // ✅ Rattacher les trajets créés avant le dictionnaire (avant le chargement de l'index de recherche)
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void linkLegacyTrips() {
+        int linked = 0;
+        for (String label : tripRepository.findUnlinkedDepartureLocations()) {
+            linked += tripRepository.linkDeparturePlace(label, resolveOrCreate(label));
+        }
+        for (String label : tripRepository.findUnlinkedArrivalLocations()) {
+            linked += tripRepository.linkArrivalPlace(label, resolveOrCreate(label));
+        }
+        if (linked > 0) {
+            log.info("✅ PlaceService - {} lieu(x) de trajet rattaché(s) au dictionnaire", linked);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.SeatHold;
+import com.covoituragedigitalise.trip.entity.Booking;
+import com.covoituragedigitalise.trip.repository.BookingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expiration des places retenues par les demandes en attente.
+ * Chaque demande est placée dans une DelayQueue à son échéance ; un thread unique la reprend à
+ * l'heure dite et la fait expirer sur la voie de son trajet (BookingSequencer), ce qui la sérialise
+ * avec une confirmation ou une annulation concurrente. La file est reconstruite depuis la base au
+ * démarrage ; une demande confirmée ou annulée entre-temps est simplement ignorée.
+ */
+@Component
+public class SeatHoldExpirer {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatHoldExpirer.class);
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    // @Lazy : le séquenceur dépend de BookingService, qui dépend de ce composant
+    @Lazy
+    @Autowired
+    private BookingSequencer bookingSequencer;
+
+    private final DelayQueue<Hold> holds = new DelayQueue<>();
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        worker = new Thread(this::run, "seat-hold-expirer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.interrupt();
+    }
+
+    // ✅ Recharger les demandes en attente au démarrage
+    @EventListener(ApplicationReadyEvent.class)
+    public void rehydrate() {
+        int count = 0;
+        for (SeatHold hold : bookingRepository.findActiveHolds()) {
+            holds.put(new Hold(hold.bookingId(), hold.tripId(), hold.expiresAt()));
+            count++;
+        }
+        log.info("⌛ SeatHoldExpirer - {} demande(s) en attente rechargée(s)", count);
+    }
+
+    // ✅ Suivre une nouvelle demande une fois la transaction validée
+    public void trackAfterCommit(Booking booking) {
+        Hold hold = new Hold(booking.getId(), booking.getTrip().getId(), booking.getHoldExpiresAt());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    holds.put(hold);
+                }
+            });
+        } else {
+            holds.put(hold);
+        }
+    }
+
+    // ✅ Oublier des demandes rejetées en bloc, une fois la transaction validée
+    public void untrackAfterCommit(Collection<Long> bookingIds) {
+        Set<Long> ids = Set.copyOf(bookingIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    holds.removeIf(hold -> ids.contains(hold.bookingId));
+                }
+            });
+        } else {
+            holds.removeIf(hold -> ids.contains(hold.bookingId));
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Hold hold;
+            try {
+                hold = holds.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                bookingSequencer.expireHold(hold.bookingId, hold.tripId);
+            } catch (RuntimeException e) {
+                // Voie saturée ou base indisponible : nouvel essai un peu plus tard
+                log.warn("⚠️ SeatHoldExpirer - Expiration reportée pour {}: {}", hold.bookingId, e.getMessage());
+                holds.put(new Hold(hold.bookingId, hold.tripId, LocalDateTime.now().plus(RETRY_DELAY)));
+            }
+        }
+    }
+
+    private static final class Hold implements Delayed {
+        private final Long bookingId;
+        private final Long tripId;
+        private final LocalDateTime expiresAt;
+
+        private Hold(Long bookingId, Long tripId, LocalDateTime expiresAt) {
+            this.bookingId = bookingId;
+            this.tripId = tripId;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(LocalDateTime.now(), expiresAt));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return expiresAt.compareTo(((Hold) other).expiresAt);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.entity.Booking;
+import com.covoituragedigitalise.trip.entity.BookingStatus;
+import com.covoituragedigitalise.trip.entity.DriverStats;
+import com.covoituragedigitalise.trip.entity.PassengerStats;
+import com.covoituragedigitalise.trip.entity.TripStatus;
+import com.covoituragedigitalise.trip.repository.DriverStatsRepository;
+import com.covoituragedigitalise.trip.repository.PassengerStatsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Statistiques matérialisées des conducteurs et des passagers.
+ * Chaque changement d'état d'un trajet ou d'une réservation applique un delta aux compteurs, dans la
+ * transaction qui fait le changement. La ligne d'un utilisateur est créée à la première utilisation
+ * depuis les agrégats ; les écritures déjà flushées de la transaction en cours y sont incluses,
+ * le delta n'est donc réappliqué que si une transaction concurrente a créé la ligne avant nous.
+ */
+@Service
+@Transactional
+public class StatsService {
+
+    @Autowired
+    private DriverStatsRepository driverStatsRepository;
+
+    @Autowired
+    private PassengerStatsRepository passengerStatsRepository;
+
+    @Autowired
+    private EarningsRollupService earningsRollupService;
+
+    // ✅ Changement d'état d'un trajet (previous == null pour une création)
+    public void onTripTransition(Long driverId, TripStatus previous, TripStatus current) {
+        if (previous == current) {
+            return;
+        }
+        applyDriverDelta(driverId,
+                previous == null ? 1 : 0,
+                delta(previous, current, TripStatus.COMPLETED),
+                delta(previous, current, TripStatus.ACTIVE),
+                0, 0, BigDecimal.ZERO);
+    }
+
+    // ✅ Changement d'état d'une réservation (previous == null pour une création)
+    public void onBookingTransition(Booking booking, Long driverId, BookingStatus previous, BookingStatus current) {
+        if (previous == current) {
+            return;
+        }
+        long confirmed = delta(previous, current, BookingStatus.CONFIRMED);
+        long pending = delta(previous, current, BookingStatus.PENDING);
+        long active = (isActive(current) ? 1 : 0) - (isActive(previous) ? 1 : 0);
+        BigDecimal amount = booking.getTotalPrice().multiply(BigDecimal.valueOf(confirmed));
+
+        applyDriverDelta(driverId, 0, 0, 0, confirmed, pending, amount);
+        applyPassengerDelta(booking.getPassengerId(), previous == null ? 1 : 0, confirmed, active, amount);
+        earningsRollupService.onConfirmedDelta(booking, driverId, confirmed);
+    }
+
+    // ✅ Trajets d'un conducteur clôturés en masse par l'expiration (ACTIVE -> COMPLETED / EXPIRED)
+    public void onTripsClosed(Long driverId, long completed, long expired) {
+        applyDriverDelta(driverId, 0, completed, -(completed + expired), 0, 0, BigDecimal.ZERO);
+    }
+
+    // ✅ Réservations en attente rejetées en masse par l'expiration (PENDING -> REJECTED)
+    public void onPendingRejectedForDriver(Long driverId, long count) {
+        applyDriverDelta(driverId, 0, 0, 0, 0, -count, BigDecimal.ZERO);
+    }
+
+    public void onPendingRejectedForPassenger(Long passengerId, long count) {
+        applyPassengerDelta(passengerId, 0, 0, -count, BigDecimal.ZERO);
+    }
+
+    // ✅ Lecture d'une seule ligne (créée depuis les agrégats si absente)
+    public DriverStats getDriverStats(Long driverId) {
+        return driverStatsRepository.findById(driverId).orElseGet(() -> {
+            driverStatsRepository.initializeFromAggregates(driverId, LocalDateTime.now());
+            return driverStatsRepository.findById(driverId).orElseThrow();
+        });
+    }
+
+    public PassengerStats getPassengerStats(Long passengerId) {
+        return passengerStatsRepository.findById(passengerId).orElseGet(() -> {
+            passengerStatsRepository.initializeFromAggregates(passengerId, LocalDateTime.now());
+            return passengerStatsRepository.findById(passengerId).orElseThrow();
+        });
+    }
+
+    private void applyDriverDelta(Long driverId, long trips, long completed, long active,
+                                  long confirmed, long pending, BigDecimal earnings) {
+        LocalDateTime now = LocalDateTime.now();
+        if (driverStatsRepository.increment(driverId, trips, completed, active, confirmed, pending, earnings, now) > 0) {
+            return;
+        }
+        if (driverStatsRepository.initializeFromAggregates(driverId, now) == 0) {
+            driverStatsRepository.increment(driverId, trips, completed, active, confirmed, pending, earnings, now);
+        }
+    }
+
+    private void applyPassengerDelta(Long passengerId, long total, long confirmed, long active, BigDecimal expenses) {
+        LocalDateTime now = LocalDateTime.now();
+        if (passengerStatsRepository.increment(passengerId, total, confirmed, active, expenses, now) > 0) {
+            return;
+        }
+        if (passengerStatsRepository.initializeFromAggregates(passengerId, now) == 0) {
+            passengerStatsRepository.increment(passengerId, total, confirmed, active, expenses, now);
+        }
+    }
+
+    private static <S> long delta(S previous, S current, S status) {
+        return (current == status ? 1 : 0) - (previous == status ? 1 : 0);
+    }
+
+    private static boolean isActive(BookingStatus status) {
+        return status == BookingStatus.PENDING || status == BookingStatus.CONFIRMED;
+    }
+}
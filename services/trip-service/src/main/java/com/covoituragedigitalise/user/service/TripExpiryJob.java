@@ -0,0 +1,185 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.ExpiringBooking;
+import com.covoituragedigitalise.trip.dto.ExpiringTrip;
+import com.covoituragedigitalise.trip.entity.TripStatus;
+import com.covoituragedigitalise.trip.repository.BookingRepository;
+import com.covoituragedigitalise.trip.repository.TripRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expiration planifiée des trajets partis et des réservations restées en attente.
+ * Chaque passe traite des blocs de taille bornée, un bloc par transaction : les lignes du bloc sont
+ * verrouillées (FOR UPDATE SKIP LOCKED, une ligne occupée par une réservation en cours est reprise
+ * à la passe suivante) puis mises à jour par un seul UPDATE ... WHERE id IN (...).
+ * Les trajets sont clôturés avant le rejet des réservations : une demande dont les places sont déjà
+ * retenues se confirme sous un verrou partagé sur son trajet (TripRepository.lockBookableTrip), qui exige
+ * un trajet ACTIVE non parti ; une confirmation arrivée entre-temps échoue donc, qu'elle passe par ce
+ * verrou ou par reserveSeats (demandes sans échéance).
+ * Un trajet avec au moins une réservation confirmée passe COMPLETED, les autres EXPIRED.
+ */
+@Component
+public class TripExpiryJob {
+
+    private static final Logger log = LoggerFactory.getLogger(TripExpiryJob.class);
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private TripSearchIndex tripSearchIndex;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${trip.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${trip.expiry.batch-size:500}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+    private Timer tripBatchTimer;
+    private Timer bookingBatchTimer;
+    private DistributionSummary tripBatchRows;
+    private DistributionSummary bookingBatchRows;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        tripBatchTimer = Timer.builder("trips.expiry.batch.duration").tag("target", "trips").register(meterRegistry);
+        bookingBatchTimer = Timer.builder("trips.expiry.batch.duration").tag("target", "bookings").register(meterRegistry);
+        tripBatchRows = DistributionSummary.builder("trips.expiry.batch.rows").tag("target", "trips")
+                .register(meterRegistry);
+        bookingBatchRows = DistributionSummary.builder("trips.expiry.batch.rows").tag("target", "bookings")
+                .register(meterRegistry);
+        Gauge.builder("trips.expiry.batch.size", () -> batchSize).register(meterRegistry);
+    }
+
+    // ✅ Passe d'expiration (intervalle mesuré entre la fin d'une passe et le début de la suivante)
+    @Scheduled(fixedDelayString = "${trip.expiry.interval-ms:60000}",
+            initialDelayString = "${trip.expiry.initial-delay-ms:30000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now();
+        try {
+            int trips = expireTrips(cutoff);
+            int bookings = rejectStaleBookings(cutoff);
+            if (trips > 0 || bookings > 0) {
+                log.info("⏰ TripExpiryJob - {} trajet(s) clôturé(s), {} réservation(s) en attente rejetée(s)",
+                        trips, bookings);
+            }
+        } catch (RuntimeException e) {
+            log.error("❌ TripExpiryJob - Passe interrompue: {}", e.getMessage(), e);
+        }
+    }
+
+    // 🔧 Clôturer les trajets actifs partis avant cutoff, bloc par bloc
+    private int expireTrips(LocalDateTime cutoff) {
+        int total = 0;
+        int rows;
+        do {
+            rows = tripBatchTimer.record(() -> transactionTemplate.execute(status -> expireTripBatch(cutoff)));
+            tripBatchRows.record(rows);
+            total += rows;
+        } while (rows == batchSize);
+        return total;
+    }
+
+    private int expireTripBatch(LocalDateTime cutoff) {
+        List<ExpiringTrip> batch = tripRepository.lockDepartedActiveTrips(cutoff, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Long> completed = new ArrayList<>();
+        List<Long> expired = new ArrayList<>();
+        Map<Long, long[]> perDriver = new HashMap<>();
+        for (ExpiringTrip trip : batch) {
+            boolean done = trip.getHasConfirmedBookings();
+            (done ? completed : expired).add(trip.getId());
+            perDriver.computeIfAbsent(trip.getDriverId(), k -> new long[2])[done ? 0 : 1]++;
+            outboxService.onTripClosed(trip.getId(), trip.getDriverId(),
+                    done ? TripStatus.COMPLETED : TripStatus.EXPIRED);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!completed.isEmpty()) {
+            tripRepository.closeTrips(completed, TripStatus.COMPLETED, now);
+        }
+        if (!expired.isEmpty()) {
+            tripRepository.closeTrips(expired, TripStatus.EXPIRED, now);
+        }
+        perDriver.forEach((driverId, counts) -> statsService.onTripsClosed(driverId, counts[0], counts[1]));
+
+        List<Long> ids = new ArrayList<>(completed);
+        ids.addAll(expired);
+        tripSearchIndex.removeAfterCommit(ids);
+        return batch.size();
+    }
+
+    // 🔧 Rejeter les réservations encore en attente sur des trajets partis, bloc par bloc
+    private int rejectStaleBookings(LocalDateTime cutoff) {
+        int total = 0;
+        int rows;
+        do {
+            rows = bookingBatchTimer.record(() -> transactionTemplate.execute(status -> rejectBookingBatch(cutoff)));
+            bookingBatchRows.record(rows);
+            total += rows;
+        } while (rows == batchSize);
+        return total;
+    }
+
+    private int rejectBookingBatch(LocalDateTime cutoff) {
+        List<ExpiringBooking> batch = bookingRepository.lockPendingBookingsOfDepartedTrips(cutoff, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(batch.size());
+        Map<Long, Long> perDriver = new HashMap<>();
+        Map<Long, Long> perPassenger = new HashMap<>();
+        for (ExpiringBooking booking : batch) {
+            ids.add(booking.getId());
+            perDriver.merge(booking.getDriverId(), 1L, Long::sum);
+            perPassenger.merge(booking.getPassengerId(), 1L, Long::sum);
+            outboxService.onPendingBookingRejected(booking.getId(), booking.getTripId(),
+                    booking.getPassengerId(), booking.getDriverId());
+        }
+
+        bookingRepository.rejectPending(ids, LocalDateTime.now());
+        perDriver.forEach(statsService::onPendingRejectedForDriver);
+        perPassenger.forEach(statsService::onPendingRejectedForPassenger);
+        return batch.size();
+    }
+}
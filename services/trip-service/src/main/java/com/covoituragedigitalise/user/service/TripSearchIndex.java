@@ -0,0 +1,366 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.entity.Trip;
+import com.covoituragedigitalise.trip.entity.TripStatus;
+import com.covoituragedigitalise.trip.repository.TripRepository;
+import com.covoituragedigitalise.trip.util.PlaceNames;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index de recherche en mémoire des trajets ACTIFS.
+ * Les lieux sont normalisés (casse, accents, ponctuation) et découpés en tokens ; chaque token
+ * pointe vers les trajets qui le contiennent. Les trajets sont aussi regroupés par lieu du dictionnaire
+ * (departurePlaceId / arrivalPlaceId) et par jour de départ.
+ * L'index est chargé au démarrage puis mis à jour après chaque commit qui modifie un trajet, depuis une
+ * relecture de la ligne validée (l'entité de la transaction ne reflète pas les UPDATE en masse comme
+ * reserveSeats) ; les relectures d'un même trajet sont sérialisées pour ne jamais appliquer un état plus
+ * ancien que le précédent. Tant qu'il n'est pas chargé, TripService retombe sur les requêtes JPA.
+ * Chaque modification incrémente un numéro de version, qui sert d'ETag aux résultats de recherche.
+ */
+@Component
+public class TripSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TripSearchIndex.class);
+
+    private static final long PURGE_INTERVAL_MS = 60_000;
+    private static final int REFRESH_STRIPES = 64;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Relecture après commit : nouvelle transaction, la transaction validée ne doit plus servir
+    private TransactionTemplate freshRead;
+
+    // Verrous par trajet : relecture et application d'un même trajet dans l'ordre des commits
+    private final Object[] refreshLocks = new Object[REFRESH_STRIPES];
+
+    private final Map<Long, IndexedTrip> trips = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Set<Long>> departureTokens = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, Set<Long>> arrivalTokens = new ConcurrentSkipListMap<>();
+    private final NavigableMap<LocalDate, Set<Long>> dateBuckets = new ConcurrentSkipListMap<>();
+    private final Map<Long, Set<Long>> departurePlaces = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> arrivalPlaces = new ConcurrentHashMap<>();
+
+    // Trajets modifiés pendant le chargement initial : le chargement ne doit pas les écraser
+    private final Set<Long> touchedDuringWarmup = ConcurrentHashMap.newKeySet();
+
+    // Incrémentée à chaque ajout, modification ou retrait de trajet
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile boolean warm = false;
+    private volatile long lastPurge = 0;
+
+    @PostConstruct
+    public void init() {
+        freshRead = new TransactionTemplate(transactionManager);
+        freshRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        freshRead.setReadOnly(true);
+        for (int i = 0; i < REFRESH_STRIPES; i++) {
+            refreshLocks[i] = new Object();
+        }
+    }
+
+    // ✅ Chargement initial des trajets actifs
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        log.info("🔎 TripSearchIndex - Chargement des trajets actifs...");
+        LocalDateTime now = LocalDateTime.now();
+        for (Trip trip : tripRepository.findByTripStatus(TripStatus.ACTIVE)) {
+            if (trip.getDepartureTime().isAfter(now)) {
+                warmUpRow(IndexedTrip.from(trip));
+            }
+        }
+        synchronized (this) {
+            warm = true;
+            touchedDuringWarmup.clear();
+        }
+        log.info("✅ TripSearchIndex - {} trajet(s) indexé(s)", trips.size());
+    }
+
+    // Sous le même verrou que upsert/remove : un trajet modifié depuis sa lecture n'est pas écrasé
+    private synchronized void warmUpRow(IndexedTrip trip) {
+        if (!touchedDuringWarmup.contains(trip.id())) {
+            apply(trip);
+        }
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    // ✅ Réindexer un trajet une fois la transaction validée, depuis son état en base
+    public void indexAfterCommit(Trip trip) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(trip.getId());
+            return;
+        }
+        // Un seul rappel par transaction : un lot de réservations sur un trajet ne le relit qu'une fois
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof RefreshAfterCommit pending) {
+                pending.tripIds.add(trip.getId());
+                return;
+            }
+        }
+        RefreshAfterCommit pending = new RefreshAfterCommit();
+        pending.tripIds.add(trip.getId());
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    // ✅ Retirer un trajet de l'index
+    public synchronized void remove(Long tripId) {
+        if (!warm) {
+            touchedDuringWarmup.add(tripId);
+        }
+        IndexedTrip previous = trips.remove(tripId);
+        if (previous != null) {
+            unlink(previous);
+            version.incrementAndGet();
+        }
+    }
+
+    // ✅ Retirer des trajets de l'index une fois la transaction validée
+    public void removeAfterCommit(Collection<Long> tripIds) {
+        List<Long> ids = List.copyOf(tripIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(TripSearchIndex.this::removeInOrder);
+                }
+            });
+        } else {
+            ids.forEach(this::removeInOrder);
+        }
+    }
+
+    // 🔧 Relire le trajet validé et l'appliquer (retiré s'il n'est plus actif)
+    private void refresh(Long tripId) {
+        synchronized (refreshLock(tripId)) {
+            Optional<IndexedTrip> snapshot;
+            try {
+                snapshot = freshRead.execute(status -> tripRepository.findFreshById(tripId).map(IndexedTrip::from));
+            } catch (RuntimeException e) {
+                // Mieux vaut un trajet absent des résultats (repli sur la prochaine écriture) qu'un état faux
+                log.warn("⚠️ TripSearchIndex - Relecture impossible du trajet {}, retiré de l'index: {}",
+                        tripId, e.getMessage());
+                remove(tripId);
+                return;
+            }
+            if (snapshot.isPresent()) {
+                upsert(snapshot.get());
+            } else {
+                remove(tripId);
+            }
+        }
+    }
+
+    private void removeInOrder(Long tripId) {
+        synchronized (refreshLock(tripId)) {
+            remove(tripId);
+        }
+    }
+
+    private Object refreshLock(Long tripId) {
+        return refreshLocks[Math.floorMod(tripId.hashCode(), REFRESH_STRIPES)];
+    }
+
+    private final class RefreshAfterCommit implements TransactionSynchronization {
+        private final Set<Long> tripIds = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            tripIds.forEach(TripSearchIndex.this::refresh);
+        }
+    }
+
+    // ✅ Rechercher (lieu par id ou saisie normalisée, jour de départ, places, prix et réservation instantanée)
+    public List<IndexedTrip> search(Long departurePlaceId, String departureLocation,
+                                    Long arrivalPlaceId, String arrivalLocation, LocalDate departureDate,
+                                    int minSeats, BigDecimal maxPrice, boolean instantBookingOnly) {
+        purgeExpiredIfDue();
+
+        Set<Long> candidates = null;
+        candidates = intersect(candidates, departurePlaceId != null
+                ? departurePlaces.getOrDefault(departurePlaceId, Set.of())
+                : matchLocation(departureTokens, departureLocation));
+        candidates = intersect(candidates, arrivalPlaceId != null
+                ? arrivalPlaces.getOrDefault(arrivalPlaceId, Set.of())
+                : matchLocation(arrivalTokens, arrivalLocation));
+        if (departureDate != null) {
+            candidates = intersect(candidates, dateBuckets.getOrDefault(departureDate, Set.of()));
+        }
+
+        Collection<Long> ids = candidates != null ? candidates : trips.keySet();
+        LocalDateTime now = LocalDateTime.now();
+        List<IndexedTrip> results = new ArrayList<>();
+        for (Long id : ids) {
+            IndexedTrip trip = trips.get(id);
+            if (trip != null && trip.departureTime().isAfter(now)
+                    && trip.availableSeats() >= minSeats
+                    && (maxPrice == null || trip.pricePerSeat().compareTo(maxPrice) <= 0)
+                    && (!instantBookingOnly || trip.instantBooking())) {
+                results.add(trip);
+            }
+        }
+        return results;
+    }
+
+    private synchronized void upsert(IndexedTrip snapshot) {
+        if (!warm) {
+            touchedDuringWarmup.add(snapshot.id());
+        }
+        IndexedTrip previous = trips.remove(snapshot.id());
+        if (previous != null) {
+            unlink(previous);
+        }
+        if (snapshot.tripStatus() == TripStatus.ACTIVE && snapshot.departureTime().isAfter(LocalDateTime.now())) {
+            apply(snapshot);
+        }
+        version.incrementAndGet();
+    }
+
+    private void apply(IndexedTrip trip) {
+        trips.put(trip.id(), trip);
+        for (String token : PlaceNames.tokenize(trip.departureLocation())) {
+            departureTokens.computeIfAbsent(token, k -> ConcurrentHashMap.newKeySet()).add(trip.id());
+        }
+        for (String token : PlaceNames.tokenize(trip.arrivalLocation())) {
+            arrivalTokens.computeIfAbsent(token, k -> ConcurrentHashMap.newKeySet()).add(trip.id());
+        }
+        dateBuckets.computeIfAbsent(trip.departureTime().toLocalDate(), k -> ConcurrentHashMap.newKeySet())
+                .add(trip.id());
+        if (trip.departurePlaceId() != null) {
+            departurePlaces.computeIfAbsent(trip.departurePlaceId(), k -> ConcurrentHashMap.newKeySet()).add(trip.id());
+        }
+        if (trip.arrivalPlaceId() != null) {
+            arrivalPlaces.computeIfAbsent(trip.arrivalPlaceId(), k -> ConcurrentHashMap.newKeySet()).add(trip.id());
+        }
+    }
+
+    private void unlink(IndexedTrip trip) {
+        for (String token : PlaceNames.tokenize(trip.departureLocation())) {
+            removePosting(departureTokens, token, trip.id());
+        }
+        for (String token : PlaceNames.tokenize(trip.arrivalLocation())) {
+            removePosting(arrivalTokens, token, trip.id());
+        }
+        removePosting(dateBuckets, trip.departureTime().toLocalDate(), trip.id());
+        if (trip.departurePlaceId() != null) {
+            removePosting(departurePlaces, trip.departurePlaceId(), trip.id());
+        }
+        if (trip.arrivalPlaceId() != null) {
+            removePosting(arrivalPlaces, trip.arrivalPlaceId(), trip.id());
+        }
+    }
+
+    private static <K> void removePosting(Map<K, Set<Long>> postings, K key, Long id) {
+        postings.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    // Chaque token de la requête doit être le préfixe d'un token du lieu
+    private static Set<Long> matchLocation(NavigableMap<String, Set<Long>> postings, String query) {
+        List<String> tokens = PlaceNames.tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        Set<Long> matches = null;
+        for (String token : tokens) {
+            Set<Long> ids = new HashSet<>();
+            postings.subMap(token, true, token + Character.MAX_VALUE, true)
+                    .values().forEach(ids::addAll);
+            matches = intersect(matches, ids);
+        }
+        return matches;
+    }
+
+    private static Set<Long> intersect(Set<Long> current, Set<Long> other) {
+        if (other == null) {
+            return current;
+        }
+        if (current == null) {
+            return new HashSet<>(other);
+        }
+        current.retainAll(other);
+        return current;
+    }
+
+    // Les trajets partis sont retirés au plus une fois par minute
+    private void purgeExpiredIfDue() {
+        long nowMs = System.currentTimeMillis();
+        if (nowMs - lastPurge < PURGE_INTERVAL_MS) {
+            return;
+        }
+        lastPurge = nowMs;
+        LocalDateTime now = LocalDateTime.now();
+        for (Set<Long> ids : dateBuckets.headMap(now.toLocalDate(), true).values()) {
+            for (Long id : List.copyOf(ids)) {
+                IndexedTrip trip = trips.get(id);
+                if (trip != null && !trip.departureTime().isAfter(now)) {
+                    remove(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copie immuable des champs d'un trajet nécessaires à la recherche et à l'affichage.
+     */
+    public record IndexedTrip(Long id, Long driverId, String departureLocation, String arrivalLocation,
+                              Long departurePlaceId, Long arrivalPlaceId, LocalDateTime departureTime,
+                              int availableSeats, Integer originalSeats, BigDecimal pricePerSeat,
+                              String description, TripStatus tripStatus, boolean instantBooking,
+                              LocalDateTime createdAt) {
+
+        static IndexedTrip from(Trip trip) {
+            return new IndexedTrip(trip.getId(), trip.getDriverId(), trip.getDepartureLocation(),
+                    trip.getArrivalLocation(), trip.getDeparturePlaceId(), trip.getArrivalPlaceId(),
+                    trip.getDepartureTime(), trip.getAvailableSeats(), trip.getOriginalSeats(),
+                    trip.getPricePerSeat(), trip.getDescription(),
+                    trip.getTripStatus(), Boolean.TRUE.equals(trip.getIsInstantBooking()), trip.getCreatedAt());
+        }
+
+        // Entité détachée reconstruite depuis l'index (sans réservations chargées)
+        public Trip toTrip() {
+            Trip trip = new Trip(driverId, departureLocation, arrivalLocation, departureTime,
+                    availableSeats, pricePerSeat);
+            trip.setId(id);
+            trip.setDeparturePlaceId(departurePlaceId);
+            trip.setArrivalPlaceId(arrivalPlaceId);
+            trip.setOriginalSeats(originalSeats);
+            trip.setDescription(description);
+            trip.setTripStatus(tripStatus);
+            trip.setIsInstantBooking(instantBooking);
+            trip.setCreatedAt(createdAt);
+            return trip;
+        }
+    }
+}
@@ -1,28 +1,78 @@
 package com.covoituragedigitalise.trip.service;
 
+import com.covoituragedigitalise.trip.dto.BookingCounts;
+import com.covoituragedigitalise.trip.dto.ExpiringBooking;
+import com.covoituragedigitalise.trip.dto.TripSearchCursor;
+import com.covoituragedigitalise.trip.dto.TripSearchDto;
+import com.covoituragedigitalise.trip.dto.TripSearchPage;
+import com.covoituragedigitalise.trip.entity.DriverStats;
 import com.covoituragedigitalise.trip.entity.Trip;
 import com.covoituragedigitalise.trip.entity.TripStatus;
+import com.covoituragedigitalise.trip.repository.BookingRepository;
 import com.covoituragedigitalise.trip.repository.TripRepository;
+import com.covoituragedigitalise.trip.util.GeoGrid;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class TripService {
 
+    private static final Logger log = LoggerFactory.getLogger(TripService.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     private TripRepository tripRepository;
 
+    @Autowired
+    private TripSearchIndex tripSearchIndex;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private EarningsRollupService earningsRollupService;
+
+    @Autowired
+    private PlaceService placeService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private SeatHoldExpirer seatHoldExpirer;
+
     // ✅ CRÉER un nouveau trajet
     public Trip createTrip(Long driverId, Map<String, Object> tripData) {
         try {
-            System.out.println("🚗 TripService - Création trajet pour conducteur: " + driverId);
+            log.debug("🚗 TripService - Création trajet pour conducteur: {}", driverId);
 
             // Vérifier les données obligatoires
             validateTripData(tripData);
@@ -32,6 +82,8 @@ public class TripService {
             trip.setDriverId(driverId);
             trip.setDepartureLocation((String) tripData.get("departureLocation"));
             trip.setArrivalLocation((String) tripData.get("arrivalLocation"));
+            trip.setDeparturePlaceId(placeService.resolveOrCreate(trip.getDepartureLocation()));
+            trip.setArrivalPlaceId(placeService.resolveOrCreate(trip.getArrivalLocation()));
 
             // Parser la date de départ
             String departureTimeStr = (String) tripData.get("departureTime");
@@ -50,6 +102,7 @@ public class TripService {
             if (tripData.containsKey("isInstantBooking")) {
                 trip.setIsInstantBooking((Boolean) tripData.get("isInstantBooking"));
             }
+            applyCoordinates(trip, tripData);
 
             // Vérifier les conflits d'horaire (±1 heure)
             LocalDateTime startTime = trip.getDepartureTime().minusHours(1);
@@ -60,68 +113,120 @@ public class TripService {
             }
 
             Trip savedTrip = tripRepository.save(trip);
-            System.out.println("✅ TripService - Trajet créé: " + savedTrip.getId());
+            statsService.onTripTransition(driverId, null, savedTrip.getTripStatus());
+            outboxService.onTripChanged(savedTrip, null, savedTrip.getTripStatus());
+            tripSearchIndex.indexAfterCommit(savedTrip);
+            log.info("✅ TripService - Trajet créé: {}", savedTrip.getId());
 
             return savedTrip;
 
         } catch (Exception e) {
-            System.err.println("❌ TripService - Erreur createTrip: " + e.getMessage());
+            log.warn("❌ TripService - Erreur createTrip: {}", e.getMessage());
             throw e;
         }
     }
 
-    // ✅ RECHERCHER des trajets
-    public List<Trip> searchTrips(Map<String, Object> searchCriteria) {
+    // ✅ RECHERCHER des trajets (filtres de TripSearchDto, pagination par curseur)
+    public TripSearchPage searchTrips(TripSearchDto criteria, String cursor, int size) {
         try {
-            System.out.println("🔍 TripService - Recherche trajets: " + searchCriteria);
-
-            String departureLocation = (String) searchCriteria.get("departureLocation");
-            String arrivalLocation = (String) searchCriteria.get("arrivalLocation");
-            String departureDateStr = (String) searchCriteria.get("departureDate");
-
-            // Recherche par lieux uniquement
-            if (departureLocation != null && arrivalLocation != null && departureDateStr == null) {
-                return tripRepository.findTripsByLocations(departureLocation, arrivalLocation);
-            }
-
-            // Recherche par lieux et date
-            if (departureLocation != null && arrivalLocation != null && departureDateStr != null) {
-                LocalDateTime departureDate = LocalDateTime.parse(departureDateStr + "T00:00:00");
-                return tripRepository.findTripsByLocationsAndDate(departureLocation, arrivalLocation, departureDate);
-            }
-
-            // Recherche par date uniquement
-            if (departureDateStr != null) {
-                LocalDateTime departureDate = LocalDateTime.parse(departureDateStr + "T00:00:00");
-                return tripRepository.findTripsByDepartureDate(departureDate);
+            log.debug("🔍 TripService - Recherche trajets: {} → {} le {}", criteria.getDepartureLocation(),
+                    criteria.getArrivalLocation(), criteria.getDepartureDate());
+
+            resolvePlaces(criteria);
+            String sortBy = criteria.resolveSortBy();
+            TripSearchCursor after = TripSearchCursor.decode(cursor, sortBy, criteria.isDescending());
+            int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+            List<Trip> trips = tripSearchIndex.isWarm()
+                    ? searchIndex(criteria, sortBy, after, limit + 1)
+                    : tripRepository.searchTrips(criteria, after, limit + 1);
+
+            // Un élément de plus que la page indique qu'il reste des résultats
+            String nextCursor = null;
+            if (trips.size() > limit) {
+                trips = trips.subList(0, limit);
+                nextCursor = TripSearchCursor.after(trips.get(limit - 1), sortBy, criteria.isDescending()).encode();
             }
+            return new TripSearchPage(trips, nextCursor);
 
-            // Par défaut, retourner tous les trajets disponibles
-            return tripRepository.findAvailableTrips();
-
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ TripService - Erreur searchTrips: " + e.getMessage());
+            log.warn("❌ TripService - Erreur searchTrips: {}", e.getMessage());
             throw new RuntimeException("Erreur lors de la recherche de trajets", e);
         }
     }
 
+    // ✅ RECHERCHER des trajets autour d'un point de départ
+    public List<Trip> searchTripsNearby(Double latitude, Double longitude, Double radiusKm) {
+        if (latitude == null || longitude == null || radiusKm == null || radiusKm <= 0) {
+            throw new IllegalArgumentException("Latitude, longitude et rayon positif obligatoires");
+        }
+        log.debug("📍 TripService - Recherche par proximité: {},{} ({} km)", latitude, longitude, radiusKm);
+
+        GeoGrid.BoundingBox box = GeoGrid.boundingBox(latitude, longitude, radiusKm);
+        double minLng = box.wrapsLongitude() ? -180.0 : box.minLongitude();
+        double maxLng = box.wrapsLongitude() ? 180.0 : box.maxLongitude();
+
+        // Préfiltre indexé : cellules de la grille si la zone est raisonnable, sinon boîte englobante
+        List<Trip> candidates = GeoGrid.coveringCells(box)
+                .map(cells -> tripRepository.findTripsByProximity(
+                        cells, box.minLatitude(), box.maxLatitude(), minLng, maxLng))
+                .orElseGet(() -> tripRepository.findTripsInBoundingBox(
+                        box.minLatitude(), box.maxLatitude(), minLng, maxLng));
+
+        // Distance exacte uniquement sur les candidats
+        return candidates.stream()
+                .filter(t -> GeoGrid.distanceKm(latitude, longitude,
+                        t.getDepartureLatitude(), t.getDepartureLongitude()) <= radiusKm)
+                .sorted(Comparator.comparingDouble(t -> GeoGrid.distanceKm(latitude, longitude,
+                        t.getDepartureLatitude(), t.getDepartureLongitude())))
+                .toList();
+    }
+
     // ✅ OBTENIR un trajet par ID
     public Trip getTripById(Long tripId) {
-        System.out.println("🔍 TripService - Recherche trajet: " + tripId);
+        log.debug("🔍 TripService - Recherche trajet: {}", tripId);
         return tripRepository.findById(tripId)
                 .orElseThrow(() -> new IllegalArgumentException("Trajet non trouvé: " + tripId));
     }
 
+    // ✅ NOMBRE de réservations par trajet, en une requête groupée (listes de trajets sans N+1)
+    @Transactional(readOnly = true)
+    public Map<Long, BookingCounts> countBookings(Collection<Trip> trips) {
+        if (trips.isEmpty()) {
+            return Map.of();
+        }
+        return bookingRepository.countBookingsByTrips(trips.stream().map(Trip::getId).toList()).stream()
+                .collect(Collectors.toMap(BookingCounts::tripId, Function.identity()));
+    }
+
+    // ✅ VERSION d'un trajet (ETag / Last-Modified), sans charger l'entité
+    @Transactional(readOnly = true)
+    public LocalDateTime getTripVersion(Long tripId) {
+        return tripRepository.findVersionById(tripId)
+                .orElseThrow(() -> new IllegalArgumentException("Trajet non trouvé: " + tripId));
+    }
+
+    // ✅ VERSION des résultats de recherche (ETag), null tant que l'index n'est pas chargé.
+    // La minute courante en fait partie : les trajets partis sortent des résultats sans écriture.
+    public String getSearchVersion() {
+        if (!tripSearchIndex.isWarm()) {
+            return null;
+        }
+        return "s" + tripSearchIndex.version() + "-" + System.currentTimeMillis() / 60_000;
+    }
+
     // ✅ OBTENIR les trajets d'un conducteur
     public List<Trip> getDriverTrips(Long driverId) {
-        System.out.println("🔍 TripService - Trajets du conducteur: " + driverId);
+        log.debug("🔍 TripService - Trajets du conducteur: {}", driverId);
         return tripRepository.findByDriverId(driverId);
     }
 
     // ✅ MODIFIER un trajet
     public Trip updateTrip(Long tripId, Long driverId, Map<String, Object> updateData) {
         try {
-            System.out.println("🔄 TripService - Modification trajet: " + tripId);
+            log.debug("🔄 TripService - Modification trajet: {}", tripId);
 
             Trip trip = getTripById(tripId);
 
@@ -135,12 +240,16 @@ public class TripService {
                 throw new IllegalArgumentException("Ce trajet ne peut plus être modifié");
             }
 
+            LocalDate previousDay = trip.getDepartureTime().toLocalDate();
+
             // Mettre à jour les champs autorisés
             if (updateData.containsKey("departureLocation")) {
                 trip.setDepartureLocation((String) updateData.get("departureLocation"));
+                trip.setDeparturePlaceId(placeService.resolveOrCreate(trip.getDepartureLocation()));
             }
             if (updateData.containsKey("arrivalLocation")) {
                 trip.setArrivalLocation((String) updateData.get("arrivalLocation"));
+                trip.setArrivalPlaceId(placeService.resolveOrCreate(trip.getArrivalLocation()));
             }
             if (updateData.containsKey("departureTime")) {
                 String departureTimeStr = (String) updateData.get("departureTime");
@@ -152,14 +261,20 @@ public class TripService {
             if (updateData.containsKey("description")) {
                 trip.setDescription((String) updateData.get("description"));
             }
+            applyCoordinates(trip, updateData);
 
             Trip savedTrip = tripRepository.save(trip);
-            System.out.println("✅ TripService - Trajet modifié: " + savedTrip.getId());
+            earningsRollupService.onTripRescheduled(tripId, driverId, previousDay,
+                    savedTrip.getDepartureTime().toLocalDate());
+            outboxService.onTripChanged(savedTrip, savedTrip.getTripStatus(), savedTrip.getTripStatus());
+            evictFromCacheAfterTransaction(tripId);
+            tripSearchIndex.indexAfterCommit(savedTrip);
+            log.info("✅ TripService - Trajet modifié: {}", savedTrip.getId());
 
             return savedTrip;
 
         } catch (Exception e) {
-            System.err.println("❌ TripService - Erreur updateTrip: " + e.getMessage());
+            log.warn("❌ TripService - Erreur updateTrip: {}", e.getMessage());
             throw e;
         }
     }
@@ -167,7 +282,7 @@ public class TripService {
     // ✅ ANNULER un trajet
     public void cancelTrip(Long tripId, Long driverId) {
         try {
-            System.out.println("❌ TripService - Annulation trajet: " + tripId);
+            log.debug("❌ TripService - Annulation trajet: {}", tripId);
 
             Trip trip = getTripById(tripId);
 
@@ -177,36 +292,154 @@ public class TripService {
             }
 
             // Marquer comme annulé
+            TripStatus previousStatus = trip.getTripStatus();
             trip.setTripStatus(TripStatus.CANCELLED);
-            tripRepository.save(trip);
+            // Écrit avant le rejet des demandes : une confirmation concurrente (verrou partagé sur le trajet)
+            // se termine d'abord, les suivantes voient le trajet annulé
+            tripRepository.saveAndFlush(trip);
+            statsService.onTripTransition(driverId, previousStatus, TripStatus.CANCELLED);
+            outboxService.onTripChanged(trip, previousStatus, TripStatus.CANCELLED);
+            rejectPendingBookings(tripId);
+            evictFromCacheAfterTransaction(tripId);
+            tripSearchIndex.indexAfterCommit(trip);
 
-            System.out.println("✅ TripService - Trajet annulé: " + tripId);
+            log.info("✅ TripService - Trajet annulé: {}", tripId);
 
         } catch (Exception e) {
-            System.err.println("❌ TripService - Erreur cancelTrip: " + e.getMessage());
+            log.warn("❌ TripService - Erreur cancelTrip: {}", e.getMessage());
             throw e;
         }
     }
 
+    // 🔧 Rejeter les demandes encore en attente d'un trajet annulé (places retenues comprises)
+    private void rejectPendingBookings(Long tripId) {
+        List<ExpiringBooking> pending = bookingRepository.lockPendingBookingsOfTrip(tripId);
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pending.size());
+        Map<Long, Long> perPassenger = new HashMap<>();
+        for (ExpiringBooking booking : pending) {
+            ids.add(booking.getId());
+            perPassenger.merge(booking.getPassengerId(), 1L, Long::sum);
+            outboxService.onPendingBookingRejected(booking.getId(), booking.getTripId(),
+                    booking.getPassengerId(), booking.getDriverId());
+        }
+        bookingRepository.rejectPending(ids, LocalDateTime.now());
+        statsService.onPendingRejectedForDriver(pending.get(0).getDriverId(), pending.size());
+        perPassenger.forEach(statsService::onPendingRejectedForPassenger);
+        seatHoldExpirer.untrackAfterCommit(ids);
+        log.info("❌ TripService - {} demande(s) en attente rejetée(s) pour le trajet {}", ids.size(), tripId);
+    }
+
     // ✅ METTRE À JOUR le statut d'un trajet
     public Trip updateTripStatus(Long tripId, TripStatus newStatus) {
         Trip trip = getTripById(tripId);
+        TripStatus previousStatus = trip.getTripStatus();
         trip.setTripStatus(newStatus);
-        return tripRepository.save(trip);
+        Trip savedTrip = tripRepository.save(trip);
+        statsService.onTripTransition(trip.getDriverId(), previousStatus, newStatus);
+        outboxService.onTripChanged(savedTrip, previousStatus, newStatus);
+        evictFromCacheAfterTransaction(tripId);
+        tripSearchIndex.indexAfterCommit(savedTrip);
+        return savedTrip;
     }
 
     // ✅ OBTENIR les statistiques d'un conducteur
     public Map<String, Object> getDriverStats(Long driverId) {
-        Long totalTrips = tripRepository.countTripsByDriver(driverId);
-        Long completedTrips = tripRepository.countCompletedTripsByDriver(driverId);
+        DriverStats stats = statsService.getDriverStats(driverId);
 
         return Map.of(
-                "totalTrips", totalTrips,
-                "completedTrips", completedTrips,
-                "activeTrips", tripRepository.findByDriverIdAndTripStatus(driverId, TripStatus.ACTIVE).size()
+                "totalTrips", stats.getTotalTrips(),
+                "completedTrips", stats.getCompletedTrips(),
+                "activeTrips", stats.getActiveTrips()
         );
     }
 
+    // 🔧 Le trajet en mémoire peut avoir été chargé avant une réservation concurrente (places périmées) :
+    // son entrée du cache de second niveau est retirée à la fin de la transaction et relue depuis la base
+    private void evictFromCacheAfterTransaction(Long tripId) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Trip.class, tripId);
+                }
+            });
+        } else {
+            cache.evict(Trip.class, tripId);
+        }
+    }
+
+    // 🔧 Recherche dans l'index en mémoire : même tri et même pagination par clé que la requête JPA
+    private List<Trip> searchIndex(TripSearchDto criteria, String sortBy, TripSearchCursor after, int limit) {
+        Comparator<Trip> order = switch (sortBy) {
+            case "price" -> Comparator.comparing(Trip::getPricePerSeat);
+            case "seats" -> Comparator.comparing(Trip::getAvailableSeats);
+            default -> Comparator.comparing(Trip::getDepartureTime);
+        };
+        order = order.thenComparing(Trip::getId);
+        if (criteria.isDescending()) {
+            order = order.reversed();
+        }
+
+        Comparator<Trip> finalOrder = order;
+        Trip cursorTrip = after != null ? cursorProbe(sortBy, after) : null;
+
+        return tripSearchIndex.search(criteria.getDeparturePlaceId(), criteria.getDepartureLocation(),
+                        criteria.getArrivalPlaceId(), criteria.getArrivalLocation(), criteria.getDepartureDate(), criteria.resolveMinAvailableSeats(),
+                        criteria.getMaxPricePerSeat(), Boolean.TRUE.equals(criteria.getInstantBookingOnly()))
+                .stream()
+                .map(TripSearchIndex.IndexedTrip::toTrip)
+                .filter(t -> cursorTrip == null || finalOrder.compare(t, cursorTrip) > 0)
+                .sorted(finalOrder)
+                .limit(limit)
+                .toList();
+    }
+
+    // Saisies libres reconnues par le dictionnaire des lieux : recherche par id de lieu
+    private void resolvePlaces(TripSearchDto criteria) {
+        if (criteria.getDeparturePlaceId() == null) {
+            placeService.findPlaceId(criteria.getDepartureLocation()).ifPresent(criteria::setDeparturePlaceId);
+        }
+        if (criteria.getArrivalPlaceId() == null) {
+            placeService.findPlaceId(criteria.getArrivalLocation()).ifPresent(criteria::setArrivalPlaceId);
+        }
+    }
+
+    // Trajet factice portant la position du curseur, comparable avec l'ordre de tri
+    private Trip cursorProbe(String sortBy, TripSearchCursor cursor) {
+        Trip probe = new Trip();
+        probe.setId(cursor.id());
+        switch (sortBy) {
+            case "price" -> probe.setPricePerSeat(cursor.price());
+            case "seats" -> probe.setAvailableSeats(cursor.seats());
+            default -> probe.setDepartureTime(cursor.departureTime());
+        }
+        return probe;
+    }
+
+    // 🔧 Coordonnées optionnelles (les cellules de la grille sont recalculées par l'entité)
+    private void applyCoordinates(Trip trip, Map<String, Object> data) {
+        if (data.containsKey("departureLatitude")) {
+            trip.setDepartureLatitude(toDouble(data.get("departureLatitude")));
+        }
+        if (data.containsKey("departureLongitude")) {
+            trip.setDepartureLongitude(toDouble(data.get("departureLongitude")));
+        }
+        if (data.containsKey("arrivalLatitude")) {
+            trip.setArrivalLatitude(toDouble(data.get("arrivalLatitude")));
+        }
+        if (data.containsKey("arrivalLongitude")) {
+            trip.setArrivalLongitude(toDouble(data.get("arrivalLongitude")));
+        }
+    }
+
+    private Double toDouble(Object value) {
+        return value != null ? Double.valueOf(value.toString()) : null;
+    }
+
     // 🔧 Méthode privée de validation
     private void validateTripData(Map<String, Object> tripData) {
         if (!tripData.containsKey("departureLocation") ||
@@ -0,0 +1,63 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Diffusion par HTTP POST (JSON) vers outbox.webhook.url, actif seulement si l'URL est configurée.
+ * Une réponse hors 2xx compte comme un échec. L'en-tête X-Event-Id permet au destinataire
+ * d'ignorer les doublons.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.webhook.url")
+public class WebhookOutboxSink implements OutboxSink {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${outbox.webhook.url}")
+    private String url;
+
+    @Value("${outbox.webhook.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return "webhook";
+    }
+
+    @Override
+    public void publish(OutboxMessage message) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "application/json")
+                .header("X-Event-Id", String.valueOf(message.id()))
+                .header("X-Event-Type", message.eventType())
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(message)))
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Webhook " + url + " a répondu " + response.statusCode());
+        }
+    }
+}
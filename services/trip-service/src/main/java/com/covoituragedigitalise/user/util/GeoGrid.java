@@ -0,0 +1,95 @@
+package com.covoituragedigitalise.trip.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Grille géographique régulière (cellules de 0,1° ≈ 11 km) utilisée comme index spatial.
+ * Chaque trajet stocke l'identifiant de cellule de son départ et de son arrivée ; une recherche
+ * par proximité ne lit que les cellules couvrant la zone demandée, puis la distance exacte
+ * n'est calculée que sur ces candidats.
+ */
+public final class GeoGrid {
+
+    public static final double CELL_SIZE_DEGREES = 0.1;
+    public static final int MAX_COVERING_CELLS = 1024;
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE_LATITUDE = 111.32;
+    private static final int COLUMNS = (int) Math.round(360 / CELL_SIZE_DEGREES);
+    private static final int ROWS = (int) Math.round(180 / CELL_SIZE_DEGREES);
+
+    private GeoGrid() {}
+
+    // ✅ Identifiant de cellule pour un point (null si coordonnées absentes)
+    public static Long cellId(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return null;
+        }
+        return (long) row(latitude) * COLUMNS + column(longitude);
+    }
+
+    // ✅ Boîte englobante d'un cercle de rayon radiusKm
+    public static BoundingBox boundingBox(double latitude, double longitude, double radiusKm) {
+        double deltaLat = radiusKm / KM_PER_DEGREE_LATITUDE;
+        double cosLat = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        double deltaLng = Math.min(radiusKm / (KM_PER_DEGREE_LATITUDE * cosLat), 180.0);
+
+        return new BoundingBox(
+                Math.max(latitude - deltaLat, -90.0),
+                Math.min(latitude + deltaLat, 90.0),
+                longitude - deltaLng,
+                longitude + deltaLng
+        );
+    }
+
+    // ✅ Cellules couvrant la boîte englobante (vide si la zone est trop large pour la grille)
+    public static Optional<List<Long>> coveringCells(BoundingBox box) {
+        int minRow = row(box.minLatitude());
+        int maxRow = row(box.maxLatitude());
+        int minCol = (int) Math.floor((box.minLongitude() + 180.0) / CELL_SIZE_DEGREES);
+        int maxCol = (int) Math.floor((box.maxLongitude() + 180.0) / CELL_SIZE_DEGREES);
+
+        long count = (long) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+        if (count > MAX_COVERING_CELLS) {
+            return Optional.empty();
+        }
+
+        List<Long> cells = new ArrayList<>((int) count);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                cells.add((long) r * COLUMNS + Math.floorMod(c, COLUMNS));
+            }
+        }
+        return Optional.of(cells);
+    }
+
+    // ✅ Distance orthodromique (haversine) en kilomètres
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private static int row(double latitude) {
+        int r = (int) Math.floor((latitude + 90.0) / CELL_SIZE_DEGREES);
+        return Math.min(Math.max(r, 0), ROWS - 1);
+    }
+
+    private static int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / CELL_SIZE_DEGREES), COLUMNS);
+    }
+
+    public record BoundingBox(double minLatitude, double maxLatitude,
+                              double minLongitude, double maxLongitude) {
+
+        // La boîte traverse l'antiméridien (±180°)
+        public boolean wrapsLongitude() {
+            return minLongitude < -180.0 || maxLongitude > 180.0;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+-- Cellules de la grille spatiale (recherche par proximité, voir GeoGrid).
+-- Les coordonnées n'étaient pas enregistrées avant la grille : aucune ligne existante à recalculer.
+ALTER TABLE trips ADD COLUMN IF NOT EXISTS departure_cell BIGINT;
+ALTER TABLE trips ADD COLUMN IF NOT EXISTS arrival_cell BIGINT;
@@ -0,0 +1,21 @@
+-- Statistiques matérialisées des conducteurs et des passagers (StatsService).
+-- Une ligne absente est calculée depuis les agrégats à la première lecture : aucune reprise ici.
+CREATE TABLE IF NOT EXISTS driver_stats (
+    driver_id          BIGINT PRIMARY KEY,
+    total_trips        BIGINT         NOT NULL,
+    completed_trips    BIGINT         NOT NULL,
+    active_trips       BIGINT         NOT NULL,
+    confirmed_bookings BIGINT         NOT NULL,
+    pending_bookings   BIGINT         NOT NULL,
+    total_earnings     NUMERIC(12, 2) NOT NULL,
+    updated_at         TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS passenger_stats (
+    passenger_id       BIGINT PRIMARY KEY,
+    total_bookings     BIGINT         NOT NULL,
+    confirmed_bookings BIGINT         NOT NULL,
+    active_bookings    BIGINT         NOT NULL,
+    total_expenses     NUMERIC(12, 2) NOT NULL,
+    updated_at         TIMESTAMP(6)
+);
@@ -0,0 +1,9 @@
+-- Revenus journaliers des conducteurs (EarningsRollupService, reprise par EarningsRollupBackfill).
+CREATE TABLE IF NOT EXISTS driver_daily_earnings (
+    driver_id    BIGINT         NOT NULL,
+    earnings_day DATE           NOT NULL,
+    earnings     NUMERIC(12, 2) NOT NULL,
+    seats        BIGINT         NOT NULL,
+    updated_at   TIMESTAMP(6),
+    PRIMARY KEY (driver_id, earnings_day)
+);
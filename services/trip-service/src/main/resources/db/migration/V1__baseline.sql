@@ -0,0 +1,43 @@
+-- Schéma initial du trip-service, tel que ddl-auto: update l'avait créé avant Flyway (trips, bookings).
+-- Les bases existantes sont marquées à cette version sans l'exécuter (baseline-on-migrate) : tout ajout
+-- postérieur va dans sa propre migration, écrite pour passer aussi sur une base déjà à jour (IF NOT EXISTS).
+-- Les contraintes CHECK reprennent celles que Hibernate génère pour les énumérations stockées en texte.
+
+CREATE TABLE trips (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    driver_id           BIGINT         NOT NULL,
+    departure_location  VARCHAR(255)   NOT NULL,
+    arrival_location    VARCHAR(255)   NOT NULL,
+    departure_time      TIMESTAMP(6)   NOT NULL,
+    available_seats     INTEGER        NOT NULL,
+    original_seats      INTEGER        NOT NULL,
+    price_per_seat      NUMERIC(10, 2) NOT NULL,
+    description         VARCHAR(1000),
+    departure_latitude  DOUBLE PRECISION,
+    departure_longitude DOUBLE PRECISION,
+    arrival_latitude    DOUBLE PRECISION,
+    arrival_longitude   DOUBLE PRECISION,
+    trip_status         VARCHAR(255)   NOT NULL
+        CHECK (trip_status IN ('ACTIVE', 'FULL', 'CANCELLED', 'COMPLETED', 'EXPIRED')),
+    is_instant_booking  BOOLEAN,
+    created_at          TIMESTAMP(6)   NOT NULL,
+    updated_at          TIMESTAMP(6)
+);
+
+CREATE TABLE bookings (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    trip_id          BIGINT         NOT NULL REFERENCES trips (id),
+    passenger_id     BIGINT         NOT NULL,
+    seats_booked     INTEGER        NOT NULL,
+    total_price      NUMERIC(10, 2) NOT NULL,
+    booking_status   VARCHAR(255)   NOT NULL
+        CHECK (booking_status IN ('PENDING', 'CONFIRMED', 'REJECTED', 'CANCELLED', 'COMPLETED')),
+    booking_date     TIMESTAMP(6)   NOT NULL,
+    pickup_location  VARCHAR(255),
+    dropoff_location VARCHAR(255),
+    special_requests VARCHAR(500),
+    passenger_phone  VARCHAR(255),
+    passenger_name   VARCHAR(255),
+    created_at       TIMESTAMP(6)   NOT NULL,
+    updated_at       TIMESTAMP(6)
+);
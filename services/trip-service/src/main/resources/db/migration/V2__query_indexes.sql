@@ -0,0 +1,49 @@
+-- Index alignés sur les requêtes de TripRepository, TripRepositoryImpl et BookingRepository.
+-- Les requêtes sur les trajets ACTIFS utilisent des index partiels : les trajets terminés,
+-- annulés ou expirés (la grande majorité avec le temps) n'y figurent pas.
+
+-- Trajets d'un conducteur et conflits d'horaire (findByDriverId*, findConflictingTrip)
+CREATE INDEX IF NOT EXISTS idx_trips_driver_departure
+    ON trips (driver_id, departure_time);
+
+-- Recherche triée par date, chargement de l'index de recherche, trajets expirés
+-- (TripRepositoryImpl.searchTrips, findByTripStatus(ACTIVE), findExpiredTrips)
+CREATE INDEX IF NOT EXISTS idx_trips_active_departure
+    ON trips (departure_time, id) WHERE trip_status = 'ACTIVE';
+
+-- Recherche triée par prix (TripRepositoryImpl.searchTrips, sortBy=price)
+CREATE INDEX IF NOT EXISTS idx_trips_active_price
+    ON trips (price_per_seat, id) WHERE trip_status = 'ACTIVE';
+
+-- Recherche par proximité : cellules de la grille puis boîte englobante
+-- (remplacent les index JPA idx_trips_departure_cell / idx_trips_arrival_cell / idx_trips_departure_lat_lng)
+DROP INDEX IF EXISTS idx_trips_departure_cell;
+DROP INDEX IF EXISTS idx_trips_arrival_cell;
+DROP INDEX IF EXISTS idx_trips_departure_lat_lng;
+
+CREATE INDEX IF NOT EXISTS idx_trips_active_departure_cell
+    ON trips (departure_cell) WHERE trip_status = 'ACTIVE';
+
+CREATE INDEX IF NOT EXISTS idx_trips_active_arrival_cell
+    ON trips (arrival_cell) WHERE trip_status = 'ACTIVE';
+
+CREATE INDEX IF NOT EXISTS idx_trips_active_departure_lat_lng
+    ON trips (departure_latitude, departure_longitude) WHERE trip_status = 'ACTIVE';
+
+-- Réservations d'un trajet par statut (findByTripId, countBookedSeatsByTrip,
+-- findConfirmedBookingsByTrip, réservations en attente/confirmées d'un conducteur via ses trajets)
+CREATE INDEX IF NOT EXISTS idx_bookings_trip_status
+    ON bookings (trip_id, booking_status);
+
+-- Doublon de réservation (findByTripAndPassengerId)
+CREATE INDEX IF NOT EXISTS idx_bookings_trip_passenger
+    ON bookings (trip_id, passenger_id);
+
+-- Réservations d'un passager, plus récentes d'abord (findByPassengerId, findViewsByPassenger,
+-- findActiveBookingsByPassenger, findConflictingBookings)
+CREATE INDEX IF NOT EXISTS idx_bookings_passenger_created
+    ON bookings (passenger_id, created_at DESC, id DESC);
+
+-- Reprise des revenus confirmés par blocs d'ID (findConfirmedEarningsAfter)
+CREATE INDEX IF NOT EXISTS idx_bookings_confirmed_id
+    ON bookings (id) WHERE booking_status = 'CONFIRMED';
@@ -0,0 +1,61 @@
+-- Dictionnaire des lieux : les trajets référencent un lieu normalisé par son id,
+-- la recherche par trajet devient une égalité sur des entiers.
+
+CREATE TABLE places (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name            VARCHAR(255) NOT NULL,
+    normalized_name VARCHAR(255) NOT NULL,
+    created_at      TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_places_normalized_name UNIQUE (normalized_name)
+);
+
+CREATE TABLE place_aliases (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    place_id         BIGINT       NOT NULL REFERENCES places (id),
+    alias            VARCHAR(255) NOT NULL,
+    normalized_alias VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_place_aliases_normalized_alias UNIQUE (normalized_alias)
+);
+
+CREATE INDEX idx_place_aliases_place ON place_aliases (place_id);
+
+ALTER TABLE trips ADD COLUMN departure_place_id BIGINT REFERENCES places (id);
+ALTER TABLE trips ADD COLUMN arrival_place_id BIGINT REFERENCES places (id);
+
+-- Recherche par trajet (départ, arrivée) puis date, sur les trajets ACTIFS
+CREATE INDEX idx_trips_active_route
+    ON trips (departure_place_id, arrival_place_id, departure_time) WHERE trip_status = 'ACTIVE';
+
+CREATE INDEX idx_trips_active_arrival_place
+    ON trips (arrival_place_id, departure_time) WHERE trip_status = 'ACTIVE';
+
+-- Villes principales et graphies courantes (noms normalisés : minuscules, sans accents)
+INSERT INTO places (name, normalized_name, created_at) VALUES
+    ('Casablanca', 'casablanca', now()),
+    ('Rabat', 'rabat', now()),
+    ('Marrakech', 'marrakech', now()),
+    ('Fès', 'fes', now()),
+    ('Tanger', 'tanger', now()),
+    ('Agadir', 'agadir', now()),
+    ('Meknès', 'meknes', now()),
+    ('Oujda', 'oujda', now()),
+    ('Kénitra', 'kenitra', now()),
+    ('Tétouan', 'tetouan', now()),
+    ('El Jadida', 'el jadida', now()),
+    ('Mohammedia', 'mohammedia', now())
+ON CONFLICT (normalized_name) DO NOTHING;
+
+INSERT INTO place_aliases (place_id, alias, normalized_alias)
+SELECT p.id, a.alias, a.normalized_alias
+FROM (VALUES
+    ('casablanca', 'Casa', 'casa'),
+    ('casablanca', 'Dar el Beida', 'dar el beida'),
+    ('marrakech', 'Marrakesh', 'marrakesh'),
+    ('fes', 'Fez', 'fez'),
+    ('tanger', 'Tangier', 'tangier'),
+    ('tanger', 'Tanja', 'tanja'),
+    ('tetouan', 'Tetuan', 'tetuan'),
+    ('el jadida', 'Jadida', 'jadida')
+) AS a (place, alias, normalized_alias)
+JOIN places p ON p.normalized_name = a.place
+ON CONFLICT (normalized_alias) DO NOTHING;
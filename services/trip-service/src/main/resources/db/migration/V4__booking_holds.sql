@@ -0,0 +1,19 @@
+-- Réservations temporaires : une demande en attente retient ses places jusqu'à hold_expires_at.
+-- Les demandes existantes (sans échéance) ne retiennent aucune place et les réservent à la confirmation.
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS hold_expires_at TIMESTAMP(6);
+
+-- Rechargement des demandes en attente au démarrage (findActiveHolds)
+CREATE INDEX IF NOT EXISTS idx_bookings_pending_hold
+    ON bookings (hold_expires_at) WHERE booking_status = 'PENDING' AND hold_expires_at IS NOT NULL;
+
+-- Les demandes non confirmées à échéance passent à EXPIRED : la contrainte CHECK générée par Hibernate
+-- sur booking_status ne connaît que les valeurs d'origine, on la recrée avec l'énumération complète.
+ALTER TABLE bookings DROP CONSTRAINT IF EXISTS bookings_booking_status_check;
+ALTER TABLE bookings ADD CONSTRAINT bookings_booking_status_check
+    CHECK (booking_status IN ('PENDING', 'CONFIRMED', 'REJECTED', 'CANCELLED', 'COMPLETED', 'EXPIRED'));
+
+-- Même chose pour trip_status (trajets passés à EXPIRED par TripExpiryJob) : EXPIRED figure déjà dans
+-- le schéma initial, mais une base créée par une version plus ancienne de l'entité peut l'ignorer.
+ALTER TABLE trips DROP CONSTRAINT IF EXISTS trips_trip_status_check;
+ALTER TABLE trips ADD CONSTRAINT trips_trip_status_check
+    CHECK (trip_status IN ('ACTIVE', 'FULL', 'CANCELLED', 'COMPLETED', 'EXPIRED'));
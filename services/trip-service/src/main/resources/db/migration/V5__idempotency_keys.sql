@@ -0,0 +1,13 @@
+-- Réponses des créations rejouables par Idempotency-Key (POST /api/bookings, POST /api/trips).
+CREATE TABLE idempotency_keys (
+    record_key    VARCHAR(400) PRIMARY KEY,
+    user_id       BIGINT       NOT NULL,
+    request_hash  VARCHAR(64)  NOT NULL,
+    status_code   INTEGER      NOT NULL,
+    response_body TEXT         NOT NULL,
+    created_at    TIMESTAMP(6) NOT NULL,
+    expires_at    TIMESTAMP(6) NOT NULL
+);
+
+-- Purge des clés échues (IdempotencyStore.purgeExpired)
+CREATE INDEX idx_idempotency_keys_expires ON idempotency_keys (expires_at);
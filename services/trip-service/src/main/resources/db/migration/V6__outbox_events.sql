@@ -0,0 +1,20 @@
+-- Outbox transactionnelle : les changements d'état des trajets et des réservations sont écrits ici
+-- dans la même transaction, puis publiés par OutboxRelay (au moins une fois, dans l'ordre par trajet).
+CREATE TABLE outbox_events (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type     VARCHAR(64)   NOT NULL,
+    aggregate_type VARCHAR(32)   NOT NULL,
+    aggregate_id   BIGINT        NOT NULL,
+    trip_id        BIGINT        NOT NULL,
+    payload        TEXT          NOT NULL,
+    created_at     TIMESTAMP(6)  NOT NULL,
+    published_at   TIMESTAMP(6),
+    attempts       INTEGER       NOT NULL DEFAULT 0,
+    last_error     VARCHAR(1000)
+);
+
+-- File des événements à publier (findUnpublished, countUnpublished)
+CREATE INDEX idx_outbox_events_unpublished ON outbox_events (id) WHERE published_at IS NULL;
+
+-- Purge des événements publiés (deletePublishedBefore)
+CREATE INDEX idx_outbox_events_published_at ON outbox_events (published_at) WHERE published_at IS NOT NULL;
@@ -0,0 +1,8 @@
+-- Relais de l'outbox : nouvel essai différé après un échec (next_attempt_at), puis mise à l'écart après
+-- outbox.relay.max-attempts échecs (parked_at). Un événement écarté bloque les suivants de son trajet
+-- jusqu'à intervention : UPDATE outbox_events SET parked_at = NULL, next_attempt_at = NULL WHERE id = ...
+ALTER TABLE outbox_events ADD COLUMN next_attempt_at TIMESTAMP(6);
+ALTER TABLE outbox_events ADD COLUMN parked_at TIMESTAMP(6);
+
+-- Événements en attente d'un trajet (recherche d'un événement antérieur bloquant, voir findUnpublished)
+CREATE INDEX idx_outbox_events_unpublished_trip ON outbox_events (trip_id, id) WHERE published_at IS NULL;
@@ -0,0 +1,5 @@
+-- Clé prise en base avant l'exécution de la première requête (IdempotencyStore) : la ligne reste sans
+-- réponse (status_code NULL) pendant l'exécution, sur toutes les instances, puis reçoit la réponse ou
+-- est supprimée en cas d'erreur. Une ligne en cours dont l'instance s'est arrêtée est reprise après expires_at.
+ALTER TABLE idempotency_keys ALTER COLUMN status_code DROP NOT NULL;
+ALTER TABLE idempotency_keys ALTER COLUMN response_body DROP NOT NULL;
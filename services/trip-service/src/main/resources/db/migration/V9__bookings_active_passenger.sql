@@ -0,0 +1,6 @@
+-- Contrôle des conflits d'horaire à la réservation (findConflictingBookings) : le filtre de date porte sur
+-- trips.departure_time, il ne peut pas figurer dans un index de bookings. L'index partiel ne garde que les
+-- réservations actives d'un passager, peu nombreuses ; chaque trajet est ensuite lu par sa clé primaire.
+-- Avant, idx_bookings_passenger_created parcourait tout l'historique du passager.
+CREATE INDEX IF NOT EXISTS idx_bookings_active_passenger
+    ON bookings (passenger_id, trip_id) WHERE booking_status IN ('PENDING', 'CONFIRMED');
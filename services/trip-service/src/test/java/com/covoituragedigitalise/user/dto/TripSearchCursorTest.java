@@ -0,0 +1,56 @@
+package com.covoituragedigitalise.trip.dto;
+
+import com.covoituragedigitalise.trip.entity.Trip;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Curseur de recherche : aller-retour encode/decode, refus d'un curseur produit pour un autre tri ou altéré.
+ */
+class TripSearchCursorTest {
+
+    @Test
+    void cursorRoundTripsForItsSort() {
+        Trip trip = new Trip(1L, "Paris", "Lyon", LocalDateTime.of(2026, 11, 3, 8, 30), 3, new BigDecimal("12.50"));
+        trip.setId(42L);
+
+        TripSearchCursor cursor = TripSearchCursor.decode(
+                TripSearchCursor.after(trip, "price", true).encode(), "price", true);
+
+        assertThat(cursor.id()).isEqualTo(42L);
+        assertThat(cursor.price()).isEqualByComparingTo("12.50");
+    }
+
+    @Test
+    void cursorOfAnotherSortIsRejected() {
+        Trip trip = new Trip(1L, "Paris", "Lyon", LocalDateTime.of(2026, 11, 3, 8, 30), 3, new BigDecimal("12.50"));
+        trip.setId(42L);
+        String priceCursor = TripSearchCursor.after(trip, "price", false).encode();
+
+        assertThatThrownBy(() -> TripSearchCursor.decode(priceCursor, "departureTime", false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Curseur invalide");
+        assertThatThrownBy(() -> TripSearchCursor.decode(priceCursor, "price", true))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Curseur invalide");
+    }
+
+    @Test
+    void tamperedCursorIsRejected() {
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("seats|asc|beaucoup|42".getBytes(StandardCharsets.UTF_8));
+
+        for (String cursor : new String[]{tampered, "pas-du-base64!", "YWJj"}) {
+            assertThatThrownBy(() -> TripSearchCursor.decode(cursor, "seats", false))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Curseur invalide");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.dto.BookingCounts;
+import com.covoituragedigitalise.trip.dto.BookingView;
+import com.covoituragedigitalise.trip.entity.Booking;
+import com.covoituragedigitalise.trip.entity.BookingStatus;
+import com.covoituragedigitalise.trip.entity.Trip;
+import com.covoituragedigitalise.trip.entity.TripStatus;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nombre de requêtes des listes de réservations (GET /api/bookings/my-bookings, /driver-bookings, /pending) :
+ * une seule requête par page, quel que soit le nombre de réservations et de trajets distincts, et aucune
+ * entité chargée (projection BookingView). De même pour les compteurs de réservations des listes de trajets
+ * (TripResponse). Compté avec les statistiques Hibernate. Test ignoré sans Docker.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class BookingListQueryCountTest {
+
+    private static final long DRIVER_ID = 1L;
+    private static final long PASSENGER_ID = 42L;
+    private static final int TRIPS = 12;
+    private static final int PAGE_SIZE = 20;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void createBookings() {
+        if (bookingRepository.count() > 0) {
+            return;
+        }
+        // Un trajet par réservation du passager, plus des demandes d'autres passagers : les listes
+        // couvrent plusieurs trajets, ce qui suffirait à révéler un chargement paresseux par trajet
+        for (int i = 0; i < TRIPS; i++) {
+            Trip trip = new Trip(DRIVER_ID, "Paris", "Lyon", LocalDateTime.now().plusDays(i + 1), 4,
+                    new BigDecimal("15.00"));
+            trip.setTripStatus(TripStatus.ACTIVE);
+            trip.setCreatedAt(LocalDateTime.now());
+            trip = tripRepository.save(trip);
+
+            bookingRepository.save(booking(trip, PASSENGER_ID, BookingStatus.CONFIRMED));
+            bookingRepository.save(booking(trip, PASSENGER_ID + 1 + i, BookingStatus.PENDING));
+        }
+    }
+
+    @Test
+    void passengerBookingsLoadInOneQuery() {
+        Slice<BookingView> page = countQueries(() ->
+                bookingRepository.findViewsByPassenger(PASSENGER_ID, PageRequest.of(0, PAGE_SIZE)));
+
+        assertThat(page.getContent()).hasSize(TRIPS);
+    }
+
+    @Test
+    void driverBookingsLoadInOneQuery() {
+        Slice<BookingView> page = countQueries(() ->
+                bookingRepository.findViewsForDriver(DRIVER_ID, PageRequest.of(0, PAGE_SIZE)));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    void pendingDriverBookingsLoadInOneQuery() {
+        Slice<BookingView> page = countQueries(() ->
+                bookingRepository.findPendingViewsForDriver(DRIVER_ID, PageRequest.of(0, PAGE_SIZE)));
+
+        assertThat(page.getContent()).hasSize(TRIPS)
+                .allMatch(view -> view.bookingStatus() == BookingStatus.PENDING);
+    }
+
+    @Test
+    void tripBookingCountsLoadInOneQuery() {
+        List<Long> tripIds = tripRepository.findByDriverId(DRIVER_ID).stream().map(Trip::getId).toList();
+
+        List<BookingCounts> counts = countQueries(() -> bookingRepository.countBookingsByTrips(tripIds));
+
+        assertThat(counts).hasSize(TRIPS)
+                .allMatch(count -> count.totalBookings() == 2 && count.confirmedBookings() == 1);
+    }
+
+    // 🔧 Exécute une lecture et vérifie qu'elle n'a coûté qu'une requête, sans entité chargée
+    private <T> T countQueries(Supplier<T> read) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        T result = read.get();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        return result;
+    }
+
+    private static Booking booking(Trip trip, Long passengerId, BookingStatus status) {
+        Booking booking = new Booking(trip, passengerId, 1, trip.getPricePerSeat());
+        booking.setBookingStatus(status);
+        booking.setCreatedAt(LocalDateTime.now());
+        return booking;
+    }
+}
@@ -0,0 +1,97 @@
+package com.covoituragedigitalise.trip.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plans d'exécution des filtres de date sur les réservations : le contrôle des conflits d'horaire
+ * (findConflictingBookings) compare departure_time brut à une plage et passe par un index idx_bookings_*,
+ * sans parcours complet de bookings ni de trips. Chaque passager a un long historique de réservations
+ * terminées et quelques réservations actives. Test ignoré sans Docker.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class BookingQueryPlanTest {
+
+    private static final int TRIPS = 20_000;
+    private static final int BOOKINGS_PER_TRIP = 5;
+    private static final int PASSENGERS = 2_000;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void loadBookings() {
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings", Integer.class);
+        if (existing != null && existing > 0) {
+            return;
+        }
+        // Un trajet toutes les 5 minutes sur ~70 jours autour d'aujourd'hui, un sur vingt encore actif
+        jdbcTemplate.update("INSERT INTO trips (driver_id, departure_location, arrival_location, departure_time, " +
+                "available_seats, original_seats, price_per_seat, trip_status, is_instant_booking, created_at) " +
+                "SELECT i % 500, 'Paris', 'Lyon', " +
+                "LOCALTIMESTAMP - INTERVAL '60 days' + i * INTERVAL '5 minutes', 0, 5, 10, " +
+                "CASE WHEN i % 20 = 0 THEN 'ACTIVE' ELSE 'COMPLETED' END, true, LOCALTIMESTAMP " +
+                "FROM generate_series(1, " + TRIPS + ") AS i");
+        // Cinq passagers distincts par trajet : réservations confirmées sur les trajets actifs, terminées sinon
+        jdbcTemplate.update("INSERT INTO bookings (trip_id, passenger_id, seats_booked, total_price, " +
+                "booking_status, booking_date, created_at) " +
+                "SELECT t.id, (t.id * " + BOOKINGS_PER_TRIP + " + k) % " + PASSENGERS + ", 1, 10, " +
+                "CASE WHEN t.trip_status = 'ACTIVE' THEN 'CONFIRMED' ELSE 'COMPLETED' END, " +
+                "t.departure_time - INTERVAL '1 day', t.departure_time - INTERVAL '1 day' " +
+                "FROM trips t CROSS JOIN generate_series(1, " + BOOKINGS_PER_TRIP + ") AS k");
+        jdbcTemplate.execute("ANALYZE trips");
+        jdbcTemplate.execute("ANALYZE bookings");
+    }
+
+    @Test
+    void conflictCheckUsesBookingIndex() {
+        // BookingRepository.findConflictingBookings : ±2h autour du départ du trajet réservé
+        String plan = explain("SELECT b.* FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+                "WHERE b.passenger_id = 7 AND b.booking_status IN ('PENDING', 'CONFIRMED') " +
+                "AND t.departure_time BETWEEN LOCALTIMESTAMP + INTERVAL '1 day' " +
+                "AND LOCALTIMESTAMP + INTERVAL '1 day 4 hours'");
+
+        assertThat(plan).containsPattern("(using|on) idx_bookings_\\w+")
+                .doesNotContain("Seq Scan on bookings")
+                .doesNotContain("Seq Scan on trips");
+    }
+
+    @Test
+    void conflictCheckReadsOnlyActiveBookingsOfThePassenger() {
+        // Index partiel : l'historique terminé du passager n'est pas parcouru
+        String plan = explain("SELECT b.* FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+                "WHERE b.passenger_id = 7 AND b.booking_status IN ('PENDING', 'CONFIRMED') " +
+                "AND t.departure_time BETWEEN LOCALTIMESTAMP - INTERVAL '30 days' AND LOCALTIMESTAMP");
+
+        assertThat(plan).containsPattern("(using|on) idx_bookings_active_passenger\\b")
+                .doesNotContain("Seq Scan on bookings");
+    }
+
+    private String explain(String sql) {
+        List<String> lines = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,111 @@
+package com.covoituragedigitalise.trip.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plans d'exécution des requêtes chaudes sur les trajets, avec les index des migrations Flyway : recherche,
+ * contrôle des conflits d'horaire et balayage des trajets partis doivent passer par un index, pas par un
+ * parcours complet de la table. Le jeu de données ressemble à la production (une majorité de trajets
+ * terminés) et les statistiques sont recalculées avant les EXPLAIN. Test ignoré sans Docker.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class TripQueryPlanTest {
+
+    private static final int TRIPS = 20_000;
+    private static final int DRIVERS = 500;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void loadTrips() {
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM trips", Integer.class);
+        if (existing != null && existing > 0) {
+            return;
+        }
+        // Un trajet toutes les 5 minutes sur ~70 jours autour d'aujourd'hui, un sur vingt encore actif
+        jdbcTemplate.update("INSERT INTO trips (driver_id, departure_location, arrival_location, departure_time, " +
+                "available_seats, original_seats, price_per_seat, trip_status, is_instant_booking, created_at) " +
+                "SELECT i % " + DRIVERS + ", 'Paris', 'Lyon', " +
+                "LOCALTIMESTAMP - INTERVAL '60 days' + i * INTERVAL '5 minutes', 3, 3, 10 + i % 40, " +
+                "CASE WHEN i % 20 = 0 THEN 'ACTIVE' ELSE 'COMPLETED' END, false, LOCALTIMESTAMP " +
+                "FROM generate_series(1, " + TRIPS + ") AS i");
+        jdbcTemplate.execute("ANALYZE trips");
+    }
+
+    @Test
+    void searchByDepartureUsesActiveDepartureIndex() {
+        // TripRepositoryImpl.searchTrips, tri par date (défaut) : première page
+        String plan = explain("SELECT t.* FROM trips t WHERE t.trip_status = 'ACTIVE' AND t.available_seats >= 1 " +
+                "AND t.departure_time > LOCALTIMESTAMP ORDER BY t.departure_time, t.id LIMIT 21");
+
+        assertUsesIndex(plan, "idx_trips_active_departure");
+    }
+
+    @Test
+    void searchByPriceUsesActivePriceIndex() {
+        // TripRepositoryImpl.searchTrips, sortBy=price : page suivante à partir du curseur (prix, id)
+        String plan = explain("SELECT t.* FROM trips t WHERE t.trip_status = 'ACTIVE' AND t.available_seats >= 1 " +
+                "AND t.departure_time > LOCALTIMESTAMP " +
+                "AND (t.price_per_seat > 20 OR (t.price_per_seat = 20 AND t.id > 100)) " +
+                "ORDER BY t.price_per_seat, t.id LIMIT 21");
+
+        assertUsesIndex(plan, "idx_trips_active_price");
+    }
+
+    @Test
+    void conflictCheckUsesDriverDepartureIndex() {
+        // TripRepository.findConflictingTrip : ±2h autour du départ d'un nouveau trajet
+        String plan = explain("SELECT t.* FROM trips t WHERE t.driver_id = 7 " +
+                "AND t.departure_time BETWEEN LOCALTIMESTAMP - INTERVAL '2 hours' " +
+                "AND LOCALTIMESTAMP + INTERVAL '2 hours' AND t.trip_status = 'ACTIVE'");
+
+        assertUsesIndex(plan, "idx_trips_driver_departure");
+    }
+
+    @Test
+    void expiryScanUsesActiveDepartureIndex() {
+        // TripRepository.lockDepartedActiveTrips (TripExpiryJob), requête native telle quelle
+        String plan = explain("SELECT t.id AS \"id\", t.driver_id AS \"driverId\", " +
+                "EXISTS (SELECT 1 FROM bookings b WHERE b.trip_id = t.id AND b.booking_status = 'CONFIRMED') " +
+                "AS \"hasConfirmedBookings\" " +
+                "FROM trips t WHERE t.trip_status = 'ACTIVE' AND t.departure_time < LOCALTIMESTAMP " +
+                "ORDER BY t.departure_time, t.id LIMIT 500 FOR UPDATE OF t SKIP LOCKED");
+
+        assertUsesIndex(plan, "idx_trips_active_departure");
+    }
+
+    // Parcours d'index (ordonné ou bitmap) sur l'index attendu, aucun parcours séquentiel de trips
+    private static void assertUsesIndex(String plan, String index) {
+        assertThat(plan).containsPattern("(using|on) " + index + "\\b").doesNotContain("Seq Scan on trips");
+    }
+
+    private String explain(String sql) {
+        List<String> lines = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+        return String.join("\n", lines);
+    }
+}
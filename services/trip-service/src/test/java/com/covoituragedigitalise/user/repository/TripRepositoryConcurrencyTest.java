@@ -0,0 +1,98 @@
+package com.covoituragedigitalise.trip.repository;
+
+import com.covoituragedigitalise.trip.entity.Trip;
+import com.covoituragedigitalise.trip.entity.TripStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Réservations concurrentes sur un même trajet : l'UPDATE conditionnel de reserveSeats ne doit jamais
+ * vendre plus de places que le trajet n'en propose. Chaque tentative est validée dans sa propre
+ * transaction, sur une vraie base PostgreSQL (test ignoré sans Docker).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class TripRepositoryConcurrencyTest {
+
+    private static final int SEATS = 7;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 5;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void reserveSeatsNeverOversellsUnderContention() throws Exception {
+        Trip trip = new Trip(1L, "Paris", "Lyon", LocalDateTime.now().plusDays(1), SEATS, new BigDecimal("15.00"));
+        trip.setTripStatus(TripStatus.ACTIVE);
+        trip.setCreatedAt(LocalDateTime.now());
+        Long tripId = tripRepository.save(trip).getId();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        AtomicInteger successfulReservations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                        Integer updated = transaction.execute(status ->
+                                tripRepository.reserveSeats(tripId, 1, LocalDateTime.now()));
+                        if (updated != null && updated == 1) {
+                            successfulReservations.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Trip reloaded = tripRepository.findById(tripId).orElseThrow();
+        assertThat(reloaded.getAvailableSeats()).isGreaterThanOrEqualTo(0);
+        assertThat(successfulReservations.get()).isEqualTo(SEATS - reloaded.getAvailableSeats());
+        // Plus de demandes que de places : toutes les places sont vendues, pas une de plus
+        assertThat(reloaded.getAvailableSeats()).isZero();
+    }
+}
@@ -0,0 +1,192 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.entity.Trip;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Réservations concurrentes par le chemin réel (BookingSequencer -> BookingService) : des centaines de
+ * passagers distincts se disputent un trajet instantané et un trajet sur demande. Aucune place n'est vendue
+ * en trop, et les compteurs matérialisés (driver_stats, passenger_stats) restent égaux aux agrégats
+ * recalculés depuis les réservations. Test ignoré sans Docker.
+ */
+@SpringBootTest(properties = {
+        "trip.expiry.enabled=false",
+        "outbox.relay.enabled=false",
+        "booking.sequencer.timeout-ms=60000"})
+@Testcontainers(disabledWithoutDocker = true)
+class BookingSequencerStressTest {
+
+    private static final long DRIVER_ID = 1L;
+    private static final long FIRST_PASSENGER_ID = 1000L;
+    private static final int PASSENGERS = 400;
+    private static final int THREADS = 64;
+    private static final int SEATS = 25;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private BookingSequencer bookingSequencer;
+
+    @Autowired
+    private TripService tripService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentBookingsNeverOversellAndKeepStatsConsistent() throws Exception {
+        LocalDateTime departure = LocalDateTime.now().plusDays(2).truncatedTo(ChronoUnit.HOURS);
+        Long instantTripId = createTrip(departure, true);
+        // Un jour plus tard : pas de conflit d'horaire pour un passager qui réserve les deux trajets
+        Long requestTripId = createTrip(departure.plusDays(1), false);
+
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < PASSENGERS; i++) {
+                long passengerId = FIRST_PASSENGER_ID + i;
+                int seats = 1 + i % 2;
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (Long tripId : List.of(instantTripId, requestTripId)) {
+                        try {
+                            bookingSequencer.createBooking(passengerId, bookingData(tripId, seats));
+                            created.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            // Plus assez de places : refus attendu une fois le trajet complet
+                            refused.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(created.get() + refused.get()).isEqualTo(2 * PASSENGERS);
+        assertThat(created.get()).isEqualTo(countBookings());
+        assertSeatsConsistent(instantTripId, "CONFIRMED");
+        assertSeatsConsistent(requestTripId, "PENDING");
+        assertDriverStatsMatchAggregates();
+        assertPassengerStatsMatchAggregates();
+    }
+
+    private Long createTrip(LocalDateTime departure, boolean instant) {
+        Map<String, Object> tripData = new HashMap<>();
+        tripData.put("departureLocation", "Paris");
+        tripData.put("arrivalLocation", "Lyon");
+        tripData.put("departureTime", departure.toString());
+        tripData.put("availableSeats", SEATS);
+        tripData.put("pricePerSeat", "12.50");
+        tripData.put("isInstantBooking", instant);
+        Trip trip = tripService.createTrip(DRIVER_ID, tripData);
+        return trip.getId();
+    }
+
+    private static Map<String, Object> bookingData(Long tripId, int seats) {
+        Map<String, Object> bookingData = new HashMap<>();
+        bookingData.put("tripId", tripId);
+        bookingData.put("seatsBooked", seats);
+        return bookingData;
+    }
+
+    private int countBookings() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    // Places vendues (confirmées, ou retenues par une demande en attente) = places initiales - disponibles
+    private void assertSeatsConsistent(Long tripId, String status) {
+        Map<String, Object> trip = jdbcTemplate.queryForMap(
+                "SELECT available_seats, original_seats FROM trips WHERE id = ?", tripId);
+        int available = ((Number) trip.get("available_seats")).intValue();
+        int original = ((Number) trip.get("original_seats")).intValue();
+        Integer sold = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(seats_booked), 0) FROM bookings " +
+                "WHERE trip_id = ? AND booking_status = ?", Integer.class, tripId, status);
+        Integer other = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings " +
+                "WHERE trip_id = ? AND booking_status <> ?", Integer.class, tripId, status);
+
+        assertThat(available).isGreaterThanOrEqualTo(0);
+        assertThat(sold).isLessThanOrEqualTo(original).isEqualTo(original - available);
+        assertThat(other).isZero();
+        // Bien plus de demandes que de places : le trajet est complet, à une place près (demandes de 2 places)
+        assertThat(available).isLessThanOrEqualTo(1);
+    }
+
+    private void assertDriverStatsMatchAggregates() {
+        Map<String, Object> stats = jdbcTemplate.queryForMap("SELECT total_trips, active_trips, " +
+                "confirmed_bookings, pending_bookings, total_earnings FROM driver_stats WHERE driver_id = ?", DRIVER_ID);
+        Map<String, Object> aggregates = jdbcTemplate.queryForMap("SELECT " +
+                "(SELECT COUNT(*) FROM trips t WHERE t.driver_id = ?) AS total_trips, " +
+                "(SELECT COUNT(*) FROM trips t WHERE t.driver_id = ? AND t.trip_status = 'ACTIVE') AS active_trips, " +
+                "(SELECT COUNT(*) FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+                "WHERE t.driver_id = ? AND b.booking_status = 'CONFIRMED') AS confirmed_bookings, " +
+                "(SELECT COUNT(*) FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+                "WHERE t.driver_id = ? AND b.booking_status = 'PENDING') AS pending_bookings, " +
+                "(SELECT COALESCE(SUM(b.total_price), 0) FROM bookings b JOIN trips t ON t.id = b.trip_id " +
+                "WHERE t.driver_id = ? AND b.booking_status = 'CONFIRMED') AS total_earnings",
+                DRIVER_ID, DRIVER_ID, DRIVER_ID, DRIVER_ID, DRIVER_ID);
+
+        for (String counter : List.of("total_trips", "active_trips", "confirmed_bookings", "pending_bookings")) {
+            assertThat(((Number) stats.get(counter)).longValue())
+                    .as(counter)
+                    .isEqualTo(((Number) aggregates.get(counter)).longValue());
+        }
+        assertThat((BigDecimal) stats.get("total_earnings"))
+                .isEqualByComparingTo((BigDecimal) aggregates.get("total_earnings"));
+    }
+
+    // Passagers dont la ligne passenger_stats diffère des agrégats de leurs réservations
+    private void assertPassengerStatsMatchAggregates() {
+        Integer mismatches = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM passenger_stats s " +
+                "LEFT JOIN (SELECT b.passenger_id, COUNT(*) AS total, " +
+                "COUNT(*) FILTER (WHERE b.booking_status = 'CONFIRMED') AS confirmed, " +
+                "COUNT(*) FILTER (WHERE b.booking_status IN ('PENDING', 'CONFIRMED')) AS active, " +
+                "COALESCE(SUM(b.total_price) FILTER (WHERE b.booking_status = 'CONFIRMED'), 0) AS expenses " +
+                "FROM bookings b GROUP BY b.passenger_id) a ON a.passenger_id = s.passenger_id " +
+                "WHERE s.total_bookings <> COALESCE(a.total, 0) " +
+                "OR s.confirmed_bookings <> COALESCE(a.confirmed, 0) " +
+                "OR s.active_bookings <> COALESCE(a.active, 0) " +
+                "OR s.total_expenses <> COALESCE(a.expenses, 0)", Integer.class);
+        Integer bookedPassengers = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT passenger_id) FROM bookings", Integer.class);
+        Integer statsRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM passenger_stats " +
+                "WHERE passenger_id IN (SELECT passenger_id FROM bookings)", Integer.class);
+
+        assertThat(mismatches).isZero();
+        assertThat(statsRows).isEqualTo(bookedPassengers);
+    }
+}
@@ -0,0 +1,237 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.SeatAvailability;
+import com.covoituragedigitalise.trip.entity.Booking;
+import com.covoituragedigitalise.trip.repository.BookingRepository;
+import com.covoituragedigitalise.trip.repository.TripRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Comportement des voies de BookingSequencer, sans base : une seule voie, BookingService simulé. Une première
+ * commande bloque la voie le temps de mettre les suivantes en file, qui sont ensuite traitées en un lot.
+ */
+class BookingSequencerTest {
+
+    private static final Long TRIP_ID = 7L;
+    private static final Long OTHER_TRIP_ID = 8L;
+    private static final long BLOCKER = 1L;
+    private static final long FAILING = 3L;
+
+    private final BookingService bookingService = mock(BookingService.class);
+    private final TripRepository tripRepository = mock(TripRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private final List<Long> executed = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch blocking = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BookingSequencer sequencer;
+
+    @BeforeEach
+    void setUp() {
+        when(tripRepository.findSeatAvailability(any())).thenReturn(List.of(new SeatAvailability(TRIP_ID, 100)));
+        when(bookingService.createBooking(anyLong(), anyMap())).thenAnswer(invocation -> {
+            Long passengerId = invocation.getArgument(0);
+            executed.add(passengerId);
+            if (passengerId == BLOCKER) {
+                blocking.countDown();
+                awaitRelease();
+            }
+            if (passengerId == FAILING) {
+                throw new IllegalArgumentException("Vous avez déjà une réservation pour ce trajet");
+            }
+            Booking booking = new Booking();
+            booking.setPassengerId(passengerId);
+            return booking;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (sequencer != null) {
+            sequencer.stop();
+        }
+        callers.shutdownNow();
+    }
+
+    @Test
+    void failingCommandDoesNotFailTheRestOfItsBatch() throws Exception {
+        start(5000);
+        Future<Booking> blocker = blockLane();
+        Future<Booking> second = enqueue(2L, 1);
+        Future<Booking> failing = enqueue(FAILING, 2);
+        Future<Booking> fourth = enqueue(4L, 3);
+        release.countDown();
+
+        assertThat(blocker.get(5, TimeUnit.SECONDS).getPassengerId()).isEqualTo(BLOCKER);
+        assertThat(second.get(5, TimeUnit.SECONDS).getPassengerId()).isEqualTo(2L);
+        assertThat(fourth.get(5, TimeUnit.SECONDS).getPassengerId()).isEqualTo(4L);
+        assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void timedOutCommandIsNeverExecuted() throws Exception {
+        start(200);
+        Future<Booking> blocker = blockLane();
+        Future<Booking> late = book(5L, TRIP_ID);
+
+        assertThatThrownBy(() -> late.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("n'a pas été enregistrée");
+
+        release.countDown();
+        // La commande du bloqueur était déjà prise par la voie : son appelant attend son résultat
+        assertThat(blocker.get(5, TimeUnit.SECONDS).getPassengerId()).isEqualTo(BLOCKER);
+        assertThat(book(6L, TRIP_ID).get(5, TimeUnit.SECONDS).getPassengerId()).isEqualTo(6L);
+        assertThat(executed).containsExactly(BLOCKER, 6L);
+    }
+
+    @Test
+    void sameTripCommandsRunInSubmissionOrder() throws Exception {
+        start(5000);
+        Future<Booking> blocker = blockLane();
+        List<Long> submitted = new ArrayList<>();
+        List<Future<Booking>> bookings = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long passengerId = 100L + i;
+            submitted.add(passengerId);
+            bookings.add(enqueue(passengerId, i + 1));
+        }
+        release.countDown();
+
+        blocker.get(5, TimeUnit.SECONDS);
+        for (Future<Booking> booking : bookings) {
+            booking.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(executed.subList(1, executed.size())).containsExactlyElementsOf(submitted);
+    }
+
+    @Test
+    void pendingCommandsFailWhenSequencerStops() throws Exception {
+        start(5000);
+        Future<Booking> blocker = blockLane();
+        List<Future<Booking>> pending = List.of(enqueue(2L, 1), enqueue(4L, 2), enqueue(5L, 3));
+
+        sequencer.stop();
+        release.countDown();
+
+        // La commande en cours se termine ; celles restées en file échouent sans être exécutées
+        assertThat(blocker.get(5, TimeUnit.SECONDS).getPassengerId()).isEqualTo(BLOCKER);
+        for (Future<Booking> booking : pending) {
+            assertThatThrownBy(() -> booking.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("arrêté");
+        }
+        assertThat(executed).containsExactly(BLOCKER);
+    }
+
+    @Test
+    void soldOutTripCommandsFailWithoutTransaction() throws Exception {
+        when(tripRepository.findSeatAvailability(any())).thenReturn(List.of(new SeatAvailability(TRIP_ID, 0)));
+        start(5000);
+        // Bloqueur sur un autre trajet (non contrôlé : absent des places disponibles), même voie
+        Future<Booking> blocker = book(BLOCKER, OTHER_TRIP_ID);
+        assertThat(blocking.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Future<Booking>> soldOut = List.of(enqueue(2L, 1), enqueue(4L, 2), enqueue(5L, 3));
+        release.countDown();
+
+        blocker.get(5, TimeUnit.SECONDS);
+        for (Future<Booking> booking : soldOut) {
+            assertThatThrownBy(() -> booking.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Plus assez de places");
+        }
+        assertThat(executed).containsExactly(BLOCKER);
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    private void start(long timeoutMs) {
+        sequencer = new BookingSequencer();
+        ReflectionTestUtils.setField(sequencer, "bookingService", bookingService);
+        ReflectionTestUtils.setField(sequencer, "bookingRepository", mock(BookingRepository.class));
+        ReflectionTestUtils.setField(sequencer, "tripRepository", tripRepository);
+        ReflectionTestUtils.setField(sequencer, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(sequencer, "laneCount", 1);
+        ReflectionTestUtils.setField(sequencer, "batchSize", 64);
+        ReflectionTestUtils.setField(sequencer, "queueCapacity", 100);
+        ReflectionTestUtils.setField(sequencer, "timeoutMs", timeoutMs);
+        sequencer.start();
+    }
+
+    // Occupe l'unique voie jusqu'à release
+    private Future<Booking> blockLane() throws InterruptedException {
+        Future<Booking> blocker = book(BLOCKER, TRIP_ID);
+        assertThat(blocking.await(5, TimeUnit.SECONDS)).isTrue();
+        return blocker;
+    }
+
+    // Soumet une réservation et attend qu'elle soit en file (position = taille de la file attendue)
+    private Future<Booking> enqueue(long passengerId, int position) throws InterruptedException {
+        Future<Booking> booking = book(passengerId, TRIP_ID);
+        BlockingQueue<?> queue = laneQueue();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.size() < position) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        return booking;
+    }
+
+    private Future<Booking> book(long passengerId, Long tripId) {
+        return callers.submit(() -> sequencer.createBooking(passengerId, Map.of("tripId", tripId, "seatsBooked", 1)));
+    }
+
+    private BlockingQueue<?> laneQueue() {
+        Object[] lanes = (Object[]) ReflectionTestUtils.getField(sequencer, "lanes");
+        return (BlockingQueue<?>) ReflectionTestUtils.getField(lanes[0], "queue");
+    }
+
+    // Attente insensible à l'interruption : la commande en cours se termine même si la voie est arrêtée
+    private void awaitRelease() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                release.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
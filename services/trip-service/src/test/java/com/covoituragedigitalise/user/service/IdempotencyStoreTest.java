@@ -0,0 +1,193 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Rejeu par Idempotency-Key sur une vraie base. Une seconde instance d'IdempotencyStore (mémoire distincte,
+ * même table) joue le rôle d'un autre nœud du service : rejeu, 422 sur un autre corps et 409 pendant
+ * l'exécution valent pour toutes les instances. Test ignoré sans Docker.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({IdempotencyStore.class, IdempotencyStoreTest.Beans.class})
+@Testcontainers(disabledWithoutDocker = true)
+class IdempotencyStoreTest {
+
+    private static final String OPERATION = "bookings.create";
+    private static final Long USER_ID = 42L;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private IdempotencyStore otherInstance;
+    private final AtomicInteger runs = new AtomicInteger();
+    private final String key = UUID.randomUUID().toString();
+
+    @BeforeEach
+    void setUp() {
+        otherInstance = new IdempotencyStore();
+        ReflectionTestUtils.setField(otherInstance, "idempotencyRecordRepository", idempotencyRecordRepository);
+        ReflectionTestUtils.setField(otherInstance, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(otherInstance, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(otherInstance, "ttlMs", 86_400_000L);
+        ReflectionTestUtils.setField(otherInstance, "claimTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(otherInstance, "cacheMaxSize", 100L);
+        otherInstance.init();
+    }
+
+    @Test
+    void replayReturnsTheFirstResponseWithoutRunningTheActionAgain() {
+        ResponseEntity<?> first = execute(idempotencyStore, Map.of("tripId", 7), created());
+        ResponseEntity<?> replayed = execute(idempotencyStore, Map.of("tripId", 7), created());
+        ResponseEntity<?> replayedElsewhere = execute(otherInstance, Map.of("tripId", 7), created());
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        for (ResponseEntity<?> replay : new ResponseEntity<?>[]{replayed, replayedElsewhere}) {
+            assertThat(replay.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(replay.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+            assertThat(replay.getBody()).isEqualTo("{\"id\":1}");
+        }
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void sameKeyWithAnotherBodyIsRejected() {
+        execute(idempotencyStore, Map.of("tripId", 7), created());
+
+        ResponseEntity<?> reused = execute(idempotencyStore, Map.of("tripId", 8), created());
+        ResponseEntity<?> reusedElsewhere = execute(otherInstance, Map.of("tripId", 8), created());
+
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(reusedElsewhere.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void duplicateWhileTheFirstRequestRunsGetsConflictOnEveryInstance() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResponseEntity<?>> first = caller.submit(() -> execute(idempotencyStore, Map.of("tripId", 7), () -> {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return created().get();
+            }));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(execute(idempotencyStore, Map.of("tripId", 7), created()).getStatusCode())
+                    .isEqualTo(HttpStatus.CONFLICT);
+            assertThat(execute(otherInstance, Map.of("tripId", 7), created()).getStatusCode())
+                    .isEqualTo(HttpStatus.CONFLICT);
+
+            release.countDown();
+            assertThat(first.get(10, TimeUnit.SECONDS).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        } finally {
+            caller.shutdownNow();
+        }
+        assertThat(execute(otherInstance, Map.of("tripId", 7), created()).getHeaders()
+                .getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void errorsAreNotStored() {
+        ResponseEntity<?> rejected = execute(idempotencyStore, Map.of("tripId", 7), () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.badRequest().body(Map.of("status", 400));
+        });
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(idempotencyRecordRepository.findById(recordKey())).isEmpty();
+
+        assertThatThrownBy(() -> execute(otherInstance, Map.of("tripId", 7), () -> {
+            runs.incrementAndGet();
+            throw new IllegalStateException("Base indisponible");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(idempotencyRecordRepository.findById(recordKey())).isEmpty();
+
+        // La clé a été rendue à chaque fois : le nouvel essai est exécuté puis enregistré
+        assertThat(execute(idempotencyStore, Map.of("tripId", 7), created()).getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+        assertThat(runs.get()).isEqualTo(3);
+        assertThat(idempotencyRecordRepository.findById(recordKey())).isPresent();
+    }
+
+    private ResponseEntity<?> execute(IdempotencyStore store, Object request, Supplier<ResponseEntity<?>> action) {
+        return store.execute(OPERATION, USER_ID, key, request, action);
+    }
+
+    private Supplier<ResponseEntity<?>> created() {
+        return () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("id", 1));
+        };
+    }
+
+    private String recordKey() {
+        return OPERATION + ":" + USER_ID + ":" + key;
+    }
+
+    @TestConfiguration
+    static class Beans {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
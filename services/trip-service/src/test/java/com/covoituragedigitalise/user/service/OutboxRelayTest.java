@@ -0,0 +1,243 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.dto.OutboxMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Relais de l'outbox sur une vraie base : ordre des id par trajet, échec d'un canal limité à son trajet,
+ * mise à l'écart après max-attempts, purge des événements publiés et exclusion mutuelle des instances par
+ * le verrou consultatif. Les passes sont lancées à la main (intervalle planifié d'une heure). Test ignoré
+ * sans Docker.
+ */
+@SpringBootTest(properties = {
+        "trip.expiry.enabled=false",
+        "outbox.relay.interval-ms=3600000",
+        "outbox.relay.max-attempts=3",
+        "outbox.relay.retry-delay-ms=50",
+        "outbox.relay.max-retry-delay-ms=100"})
+@Testcontainers(disabledWithoutDocker = true)
+class OutboxRelayTest {
+
+    private static final long TRIP_A = 101L;
+    private static final long TRIP_B = 102L;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private RecordingSink sink;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void reset() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        sink.received.clear();
+        sink.failingTrips.clear();
+    }
+
+    @Test
+    void eventsOfOneTripArePublishedInIdOrder() {
+        List<Long> tripA = new ArrayList<>();
+        List<Long> tripB = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tripA.add(insertEvent(TRIP_A));
+            tripB.add(insertEvent(TRIP_B));
+        }
+
+        outboxRelay.relay();
+
+        assertThat(receivedIds(TRIP_A)).containsExactlyElementsOf(tripA);
+        assertThat(receivedIds(TRIP_B)).containsExactlyElementsOf(tripB);
+        assertThat(unpublished()).isZero();
+    }
+
+    @Test
+    void failingSinkDelaysOnlyItsTrip() throws Exception {
+        sink.failingTrips.add(TRIP_A);
+        Long firstA = insertEvent(TRIP_A);
+        Long secondA = insertEvent(TRIP_A);
+        Long firstB = insertEvent(TRIP_B);
+
+        outboxRelay.relay();
+
+        // L'échec de A bloque l'événement suivant de A, pas celui de B
+        assertThat(receivedIds(TRIP_B)).containsExactly(firstB);
+        assertThat(receivedIds(TRIP_A)).containsExactly(firstA);
+        assertThat(attempts(firstA)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT next_attempt_at FROM outbox_events WHERE id = ?",
+                LocalDateTime.class, firstA)).isNotNull();
+
+        // Canal rétabli : après le délai, les deux événements de A partent dans l'ordre
+        sink.failingTrips.clear();
+        sink.received.clear();
+        Thread.sleep(200);
+        outboxRelay.relay();
+
+        assertThat(receivedIds(TRIP_A)).containsExactly(firstA, secondA);
+        assertThat(unpublished()).isZero();
+    }
+
+    @Test
+    void eventIsParkedAfterMaxAttempts() throws Exception {
+        sink.failingTrips.add(TRIP_A);
+        Long first = insertEvent(TRIP_A);
+        Long second = insertEvent(TRIP_A);
+
+        for (int pass = 0; pass < 5; pass++) {
+            outboxRelay.relay();
+            Thread.sleep(200);
+        }
+
+        assertThat(attempts(first)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT parked_at FROM outbox_events WHERE id = ?",
+                LocalDateTime.class, first)).isNotNull();
+        // Écarté : plus remis aux canaux, et son trajet reste bloqué derrière lui
+        sink.failingTrips.clear();
+        sink.received.clear();
+        outboxRelay.relay();
+        assertThat(sink.received).isEmpty();
+        assertThat(attempts(second)).isZero();
+    }
+
+    @Test
+    void publishedEventsArePurgedAfterRetention() {
+        Long old = insertEvent(TRIP_A);
+        Long recent = insertEvent(TRIP_A);
+        Long pending = insertEvent(TRIP_B);
+        jdbcTemplate.update("UPDATE outbox_events SET published_at = LOCALTIMESTAMP - INTERVAL '8 days' WHERE id = ?", old);
+        jdbcTemplate.update("UPDATE outbox_events SET published_at = LOCALTIMESTAMP WHERE id = ?", recent);
+        jdbcTemplate.update("UPDATE outbox_events SET created_at = LOCALTIMESTAMP - INTERVAL '8 days' WHERE id = ?", pending);
+
+        outboxRelay.purgePublished();
+
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM outbox_events ORDER BY id", Long.class))
+                .containsExactly(recent, pending);
+    }
+
+    @Test
+    void secondRelayDoesNotPublishWhileTheLockIsHeld() throws Exception {
+        Long event = insertEvent(TRIP_A);
+        long lockKey = (Long) ReflectionTestUtils.getField(OutboxRelay.class, "RELAY_LOCK_KEY");
+
+        // Une autre instance tient le verrou du relais pendant sa passe
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        ExecutorService otherInstance = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = otherInstance.submit(() -> new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> {
+                        assertThat(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)",
+                                Boolean.class, lockKey)).isTrue();
+                        locked.countDown();
+                        try {
+                            done.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }));
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            outboxRelay.relay();
+            assertThat(sink.received).isEmpty();
+            assertThat(attempts(event)).isZero();
+
+            done.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        } finally {
+            otherInstance.shutdownNow();
+        }
+
+        // Verrou libéré avec la transaction de l'autre instance
+        outboxRelay.relay();
+        assertThat(receivedIds(TRIP_A)).containsExactly(event);
+    }
+
+    private Long insertEvent(long tripId) {
+        return jdbcTemplate.queryForObject("INSERT INTO outbox_events (event_type, aggregate_type, aggregate_id, " +
+                "trip_id, payload, created_at) VALUES ('TRIP_UPDATED', 'TRIP', ?, ?, '{}', LOCALTIMESTAMP) " +
+                "RETURNING id", Long.class, tripId, tripId);
+    }
+
+    private List<Long> receivedIds(long tripId) {
+        synchronized (sink.received) {
+            return sink.received.stream().filter(message -> message.tripId() == tripId)
+                    .map(OutboxMessage::id).toList();
+        }
+    }
+
+    private int attempts(Long eventId) {
+        Integer attempts = jdbcTemplate.queryForObject("SELECT attempts FROM outbox_events WHERE id = ?",
+                Integer.class, eventId);
+        return attempts == null ? -1 : attempts;
+    }
+
+    private long unpublished() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE published_at IS NULL",
+                Long.class);
+        return count == null ? -1 : count;
+    }
+
+    // Canal de test : garde les messages reçus, refuse ceux des trajets en échec
+    static class RecordingSink implements OutboxSink {
+        final List<OutboxMessage> received = Collections.synchronizedList(new ArrayList<>());
+        final Set<Long> failingTrips = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public void publish(OutboxMessage message) {
+            received.add(message);
+            if (failingTrips.contains(message.tripId())) {
+                throw new IllegalStateException("Canal indisponible pour le trajet " + message.tripId());
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class SinkConfig {
+
+        @Bean
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+    }
+}
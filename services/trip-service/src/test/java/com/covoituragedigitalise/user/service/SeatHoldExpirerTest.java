@@ -0,0 +1,161 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.entity.Booking;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Places retenues par les demandes en attente (réservation temporaire de booking.hold.ttl-ms, réduite ici à
+ * 1,5 s) : expiration et libération des places, confirmation refusée après l'échéance, rechargement des
+ * demandes au démarrage et abandon du suivi quand le trajet est annulé. Test ignoré sans Docker.
+ */
+@SpringBootTest(properties = {
+        "booking.hold.ttl-ms=1500",
+        "trip.expiry.enabled=false",
+        "outbox.relay.enabled=false"})
+@Testcontainers(disabledWithoutDocker = true)
+class SeatHoldExpirerTest {
+
+    private static final long DRIVER_ID = 1L;
+    private static final int SEATS = 4;
+    private static final long TIMEOUT_MS = 10_000;
+
+    // Un trajet par test, à des jours différents : pas de conflit d'horaire entre les tests
+    private static final AtomicLong DAYS_AHEAD = new AtomicLong(1);
+    private static final AtomicLong PASSENGER_IDS = new AtomicLong(1000);
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private BookingSequencer bookingSequencer;
+
+    @Autowired
+    private TripService tripService;
+
+    @Autowired
+    private SeatHoldExpirer seatHoldExpirer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void expiredHoldReleasesItsSeats() throws Exception {
+        Long tripId = createTrip();
+        Booking booking = bookingSequencer.createBooking(PASSENGER_IDS.incrementAndGet(), bookingData(tripId, 2));
+        assertThat(booking.getHoldExpiresAt()).isNotNull();
+        assertThat(availableSeats(tripId)).isEqualTo(SEATS - 2);
+
+        awaitStatus(booking.getId(), "EXPIRED");
+        assertThat(availableSeats(tripId)).isEqualTo(SEATS);
+    }
+
+    @Test
+    void confirmingAnExpiredHoldFails() {
+        Long tripId = createTrip();
+        // Demande échue que l'expirateur ne suit pas (écrite directement) : seule la confirmation la voit
+        Long bookingId = insertHold(tripId, LocalDateTime.now().minusMinutes(1));
+
+        assertThatThrownBy(() -> bookingSequencer.confirmBooking(bookingId, DRIVER_ID))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("expiré");
+        assertThat(status(bookingId)).isEqualTo("PENDING");
+    }
+
+    @Test
+    void holdsAreReloadedAfterRestart() throws Exception {
+        Long tripId = createTrip();
+        // Demande écrite avant un redémarrage : absente de la file jusqu'au rechargement
+        Long bookingId = insertHold(tripId, LocalDateTime.now().plusSeconds(1));
+        assertThat(isTracked(bookingId)).isFalse();
+
+        seatHoldExpirer.rehydrate();
+
+        assertThat(isTracked(bookingId) || "EXPIRED".equals(status(bookingId))).isTrue();
+        awaitStatus(bookingId, "EXPIRED");
+        assertThat(availableSeats(tripId)).isEqualTo(SEATS);
+    }
+
+    @Test
+    void holdOnCancelledTripIsUntracked() throws Exception {
+        Long tripId = createTrip();
+        Booking booking = bookingSequencer.createBooking(PASSENGER_IDS.incrementAndGet(), bookingData(tripId, 1));
+        assertThat(isTracked(booking.getId())).isTrue();
+
+        tripService.cancelTrip(tripId, DRIVER_ID);
+
+        assertThat(isTracked(booking.getId())).isFalse();
+        assertThat(status(booking.getId())).isEqualTo("REJECTED");
+        // Après l'échéance, la demande rejetée n'est pas expirée pour autant
+        Thread.sleep(2_000);
+        assertThat(status(booking.getId())).isEqualTo("REJECTED");
+    }
+
+    private Long createTrip() {
+        LocalDateTime departure = LocalDateTime.now().plusDays(DAYS_AHEAD.getAndIncrement()).truncatedTo(ChronoUnit.HOURS);
+        Map<String, Object> tripData = new HashMap<>();
+        tripData.put("departureLocation", "Paris");
+        tripData.put("arrivalLocation", "Lyon");
+        tripData.put("departureTime", departure.plusHours(1).toString());
+        tripData.put("availableSeats", SEATS);
+        tripData.put("pricePerSeat", "12.50");
+        tripData.put("isInstantBooking", false);
+        return tripService.createTrip(DRIVER_ID, tripData).getId();
+    }
+
+    private static Map<String, Object> bookingData(Long tripId, int seats) {
+        Map<String, Object> bookingData = new HashMap<>();
+        bookingData.put("tripId", tripId);
+        bookingData.put("seatsBooked", seats);
+        return bookingData;
+    }
+
+    // Demande en attente retenant 2 places, écrite hors de BookingService (donc non suivie)
+    private Long insertHold(Long tripId, LocalDateTime holdExpiresAt) {
+        jdbcTemplate.update("UPDATE trips SET available_seats = available_seats - 2 WHERE id = ?", tripId);
+        return jdbcTemplate.queryForObject("INSERT INTO bookings (trip_id, passenger_id, seats_booked, total_price, " +
+                        "booking_status, booking_date, hold_expires_at, created_at) " +
+                        "VALUES (?, ?, 2, 25.00, 'PENDING', LOCALTIMESTAMP, ?, LOCALTIMESTAMP) RETURNING id",
+                Long.class, tripId, PASSENGER_IDS.incrementAndGet(), holdExpiresAt);
+    }
+
+    private int availableSeats(Long tripId) {
+        Integer seats = jdbcTemplate.queryForObject("SELECT available_seats FROM trips WHERE id = ?", Integer.class, tripId);
+        return seats == null ? -1 : seats;
+    }
+
+    private String status(Long bookingId) {
+        return jdbcTemplate.queryForObject("SELECT booking_status FROM bookings WHERE id = ?", String.class, bookingId);
+    }
+
+    private void awaitStatus(Long bookingId, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!expected.equals(status(bookingId)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(status(bookingId)).isEqualTo(expected);
+    }
+
+    private boolean isTracked(Long bookingId) {
+        DelayQueue<?> holds = (DelayQueue<?>) ReflectionTestUtils.getField(seatHoldExpirer, "holds");
+        return holds.stream().anyMatch(hold -> bookingId.equals(ReflectionTestUtils.getField(hold, "bookingId")));
+    }
+}
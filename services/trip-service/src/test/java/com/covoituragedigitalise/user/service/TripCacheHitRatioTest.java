@@ -0,0 +1,109 @@
+package com.covoituragedigitalise.trip.service;
+
+import com.covoituragedigitalise.trip.config.SecondLevelCacheConfig;
+import com.covoituragedigitalise.trip.entity.Trip;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Ratio de succès de la région trips pendant des réservations : chaque réservation n'évince que son trajet,
+ * les autres restent en cache et le trajet réservé est relu à jour. Mesure lue par la jauge
+ * trip.cache.hit.ratio. Test ignoré sans Docker.
+ */
+@SpringBootTest(properties = {
+        "trip.expiry.enabled=false",
+        "outbox.relay.enabled=false"})
+@Testcontainers(disabledWithoutDocker = true)
+class TripCacheHitRatioTest {
+
+    private static final long DRIVER_ID = 1L;
+    private static final long FIRST_PASSENGER_ID = 2000L;
+    private static final int TRIPS = 20;
+    private static final int BOOKINGS = 10;
+    private static final int SEATS = 20;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private BookingSequencer bookingSequencer;
+
+    @Autowired
+    private TripService tripService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void bookingEvictsOnlyItsTrip() {
+        List<Long> tripIds = new ArrayList<>();
+        LocalDateTime departure = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS);
+        for (int i = 0; i < TRIPS; i++) {
+            tripIds.add(createTrip(departure.plusDays(i)));
+        }
+        Long bookedTripId = tripIds.get(0);
+        tripIds.forEach(tripService::getTripById);
+
+        Cache cache = entityManagerFactory.getCache();
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+
+        for (int i = 0; i < BOOKINGS; i++) {
+            bookingSequencer.createBooking(FIRST_PASSENGER_ID + i, bookingData(bookedTripId));
+
+            for (Long tripId : tripIds.subList(1, TRIPS)) {
+                assertThat(cache.contains(Trip.class, tripId)).as("trajet %d en cache", tripId).isTrue();
+            }
+            for (Long tripId : tripIds) {
+                Trip trip = tripService.getTripById(tripId);
+                int expectedSeats = tripId.equals(bookedTripId) ? SEATS - i - 1 : SEATS;
+                assertThat(trip.getAvailableSeats()).isEqualTo(expectedSeats);
+            }
+        }
+
+        // Un défaut par réservation (relecture du trajet réservé) sur ~210 lectures
+        double hitRatio = SecondLevelCacheConfig.hitRatio(entityManagerFactory, SecondLevelCacheConfig.TRIP_REGION);
+        assertThat(hitRatio).isGreaterThan(0.85);
+        assertThat(meterRegistry.get("trip.cache.hit.ratio").gauge().value()).isCloseTo(hitRatio, within(0.01));
+    }
+
+    private Long createTrip(LocalDateTime departure) {
+        Map<String, Object> tripData = new HashMap<>();
+        tripData.put("departureLocation", "Paris");
+        tripData.put("arrivalLocation", "Lyon");
+        tripData.put("departureTime", departure.toString());
+        tripData.put("availableSeats", SEATS);
+        tripData.put("pricePerSeat", "12.50");
+        tripData.put("isInstantBooking", true);
+        return tripService.createTrip(DRIVER_ID, tripData).getId();
+    }
+
+    private static Map<String, Object> bookingData(Long tripId) {
+        Map<String, Object> bookingData = new HashMap<>();
+        bookingData.put("tripId", tripId);
+        bookingData.put("seatsBooked", 1);
+        return bookingData;
+    }
+}
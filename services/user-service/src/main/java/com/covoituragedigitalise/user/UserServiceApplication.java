@@ -1,5 +1,7 @@
 package com.covoituragedigitalise.user;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
@@ -8,9 +10,11 @@ import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 @EnableJpaAuditing
 public class UserServiceApplication {
 
+    private static final Logger log = LoggerFactory.getLogger(UserServiceApplication.class);
+
     public static void main(String[] args) {
-        System.out.println("🚀 Démarrage du User Service...");
+        log.info("🚀 Démarrage du User Service...");
         SpringApplication.run(UserServiceApplication.class, args);
-        System.out.println("✅ User Service démarré avec succès!");
+        log.info("✅ User Service démarré avec succès!");
     }
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.covoituragedigitalise.user.config;
 
-import com.covoituragedigitalise.user.service.CustomUserDetailsService;
 import com.covoituragedigitalise.user.service.JwtService;
+import com.covoituragedigitalise.user.service.UserIdentityCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,11 +21,13 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
     @Autowired
     private JwtService jwtService;
 
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private UserIdentityCache userIdentityCache;
 
     @Override
     protected void doFilterInternal(
@@ -36,13 +40,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String jwt;
         final String userEmail;
 
-        System.out.println("🔍 JWT FILTER - URL: " + request.getRequestURI());
-        System.out.println("🔍 JWT FILTER - Method: " + request.getMethod());
-        System.out.println("🔍 JWT FILTER - Auth Header: " + (authHeader != null ? authHeader.substring(0, Math.min(authHeader.length(), 30)) + "..." : "null"));
+        log.debug("🔍 JWT FILTER - URL: {}", request.getRequestURI());
+        log.debug("🔍 JWT FILTER - Method: {}", request.getMethod());
 
         // Si pas de header Authorization ou ne commence pas par Bearer
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            System.out.println("❌ JWT FILTER - Pas de token Bearer trouvé");
+            log.debug("❌ JWT FILTER - Pas de token Bearer trouvé");
             filterChain.doFilter(request, response);
             return;
         }
@@ -50,23 +53,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             // Extraire le token
             jwt = authHeader.substring(7);
-            System.out.println("🔑 JWT FILTER - Token extrait: " + jwt.substring(0, Math.min(jwt.length(), 20)) + "...");
 
             // Extraire l'email du token
             userEmail = jwtService.extractUsername(jwt);
-            System.out.println("📧 JWT FILTER - Email extrait: " + userEmail);
+            log.debug("📧 JWT FILTER - Email extrait: {}", userEmail);
 
             // Si email extrait et pas encore authentifié
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                System.out.println("🔍 JWT FILTER - Chargement des détails utilisateur...");
+                log.debug("🔍 JWT FILTER - Chargement des détails utilisateur...");
 
-                // Charger les détails de l'utilisateur
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-                System.out.println("👤 JWT FILTER - UserDetails chargé: " + userDetails.getUsername());
+                // Charger les détails de l'utilisateur (cache, sans requête en régime établi)
+                UserDetails userDetails = userIdentityCache.getUserDetails(userEmail);
+                log.debug("👤 JWT FILTER - UserDetails chargé: {}", userDetails.getUsername());
 
                 // Valider le token
                 if (jwtService.isTokenValid(jwt, userDetails)) {
-                    System.out.println("✅ JWT FILTER - Token valide");
+                    log.debug("✅ JWT FILTER - Token valide");
 
                     // Créer l'authentication token
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -78,15 +80,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                     // Définir l'authentification dans le contexte de sécurité
                     SecurityContextHolder.getContext().setAuthentication(authToken);
-                    System.out.println("🎯 JWT FILTER - Authentication définie dans SecurityContext");
+                    log.debug("🎯 JWT FILTER - Authentication définie dans SecurityContext");
                 } else {
-                    System.out.println("❌ JWT FILTER - Token invalide");
+                    log.debug("❌ JWT FILTER - Token invalide");
                 }
             }
 
         } catch (Exception e) {
-            System.err.println("💥 JWT FILTER - Erreur: " + e.getMessage());
-            e.printStackTrace();
+            log.error("💥 JWT FILTER - Erreur: {}", e.getMessage(), e);
         }
 
         // Continuer la chaîne de filtres
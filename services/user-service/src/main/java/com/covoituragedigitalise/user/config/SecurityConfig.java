@@ -1,6 +1,8 @@
 package com.covoituragedigitalise.user.config;
 
 import com.covoituragedigitalise.user.service.CustomUserDetailsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,6 +23,8 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
@@ -29,7 +33,7 @@ public class SecurityConfig {
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        System.out.println("🔧 SecurityConfig - Configuration avec JwtAuthenticationFilter");
+        log.info("🔧 SecurityConfig - Configuration avec JwtAuthenticationFilter");
 
         return http
                 .csrf(AbstractHttpConfigurer::disable)
@@ -0,0 +1,22 @@
+package com.covoituragedigitalise.user.config;
+
+import io.micrometer.java21.instrument.binder.jdk.VirtualThreadMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Mode threads virtuels (profil virtual-threads : spring.threads.virtual.enabled=true).
+ * Publie les événements JFR des threads virtuels en métriques : jvm.threads.virtual.pinned (durée
+ * des épinglages du thread porteur) et jvm.threads.virtual.submit.failed.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "close")
+    public VirtualThreadMetrics virtualThreadMetrics() {
+        return new VirtualThreadMetrics();
+    }
+}
@@ -2,8 +2,14 @@ package com.covoituragedigitalise.user.controller;
 
 import com.covoituragedigitalise.user.dto.UserDto;
 import com.covoituragedigitalise.user.dto.UserRegistrationDto;
+import com.covoituragedigitalise.user.dto.UserResult;
+import com.covoituragedigitalise.user.dto.UserSummaryResponse;
+import com.covoituragedigitalise.user.entity.User;
+import com.covoituragedigitalise.user.mapper.UserResponseMapper;
 import com.covoituragedigitalise.user.service.UserService;
 import com.covoituragedigitalise.user.service.JwtService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -11,48 +17,46 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = "*")
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private UserService userService;
 
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private UserResponseMapper userResponseMapper;
+
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@RequestBody UserRegistrationDto registrationDto) {
         try {
-            System.out.println("🚀 AUTH - INSCRIPTION - Email: " + registrationDto.getEmail());
+            log.debug("🚀 AUTH - INSCRIPTION - Email: {}", registrationDto.getEmail());
 
             UserDto userDto = userService.createUser(registrationDto);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 201);
-            response.put("message", "Utilisateur créé avec succès");
-            response.put("user", Map.of(
-                    "email", userDto.getEmail(),
-                    "firstName", userDto.getFirstName(),
-                    "lastName", userDto.getLastName(),
-                    "phone", userDto.getPhone() != null ? userDto.getPhone() : ""
-            ));
-
-            System.out.println("🎉 AUTH - INSCRIPTION - Terminée avec succès!");
+            UserResult<UserSummaryResponse> response = new UserResult<>(201, "Utilisateur créé avec succès", null,
+                    userResponseMapper.toSummary(userDto));
+
+            log.debug("🎉 AUTH - INSCRIPTION - Terminée avec succès!");
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
         } catch (IllegalArgumentException e) {
-            System.err.println("❌ AUTH - INSCRIPTION - Erreur: " + e.getMessage());
+            log.warn("❌ AUTH - INSCRIPTION - Erreur: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("status", 400);
             errorResponse.put("message", e.getMessage());
             return ResponseEntity.badRequest().body(errorResponse);
 
         } catch (Exception e) {
-            System.err.println("💥 AUTH - INSCRIPTION - ERREUR: " + e.getMessage());
-            e.printStackTrace();
+            log.error("💥 AUTH - INSCRIPTION - ERREUR: {}", e.getMessage(), e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("status", 500);
             errorResponse.put("message", "Une erreur interne s'est produite");
@@ -63,40 +67,31 @@ public class AuthController {
     @PostMapping("/login")
     public ResponseEntity<?> loginUser(@RequestBody UserDto loginDto) {
         try {
-            System.out.println("🔐 AUTH - LOGIN - Email: " + loginDto.getEmail());
+            log.debug("🔐 AUTH - LOGIN - Email: {}", loginDto.getEmail());
 
-            // Valider les credentials
-            boolean isValid = userService.validateCredentials(loginDto.getEmail(), loginDto.getPassword());
+            // Valider les credentials (une seule lecture de l'utilisateur, réutilisée ci-dessous)
+            Optional<User> authenticated = userService.findUserByCredentials(loginDto.getEmail(), loginDto.getPassword());
 
-            if (!isValid) {
-                System.out.println("❌ AUTH - LOGIN - Credentials invalides");
+            if (authenticated.isEmpty()) {
+                log.debug("❌ AUTH - LOGIN - Credentials invalides");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("status", 401, "message", "Email ou mot de passe incorrect"));
             }
 
-            // Récupérer l'utilisateur
-            UserDto user = userService.getUserByEmail(loginDto.getEmail());
+            UserDto user = userService.convertToUserDto(authenticated.get());
 
-            // Générer le token JWT
-            String token = jwtService.generateToken(loginDto.getEmail());
+            // Générer le token JWT avec l'identité (uid, isDriver, status) dans les claims
+            String token = jwtService.generateToken(authenticated.get());
 
             // Réponse de succès
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", "Connexion réussie");
-            response.put("token", token);
-            response.put("user", Map.of(
-                    "email", user.getEmail(),
-                    "firstName", user.getFirstName(),
-                    "lastName", user.getLastName(),
-                    "phone", user.getPhone() != null ? user.getPhone() : ""
-            ));
-
-            System.out.println("✅ AUTH - LOGIN - Connexion réussie pour: " + user.getEmail());
+            UserResult<UserSummaryResponse> response = new UserResult<>(200, "Connexion réussie", token,
+                    userResponseMapper.toSummary(user));
+
+            log.debug("✅ AUTH - LOGIN - Connexion réussie pour: {}", user.getEmail());
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ AUTH - LOGIN - ERREUR: " + e.getMessage());
+            log.warn("❌ AUTH - LOGIN - ERREUR: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("status", 401, "message", "Email ou mot de passe incorrect"));
         }
@@ -109,7 +104,7 @@ public class AuthController {
         response.put("message", "Auth Service is running");
         response.put("timestamp", System.currentTimeMillis());
 
-        System.out.println("💚 AUTH - HEALTH CHECK - Service OK");
+        log.debug("💚 AUTH - HEALTH CHECK - Service OK");
         return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
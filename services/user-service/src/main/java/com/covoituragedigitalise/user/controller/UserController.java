@@ -1,13 +1,24 @@
 package com.covoituragedigitalise.user.controller;
 
+import com.covoituragedigitalise.user.dto.UserDetailsResponse;
+import com.covoituragedigitalise.user.dto.UserProfileResponse;
+import com.covoituragedigitalise.user.dto.UserResult;
 import com.covoituragedigitalise.user.entity.User;
+import com.covoituragedigitalise.user.mapper.UserResponseMapper;
 import com.covoituragedigitalise.user.service.JwtService;
 import com.covoituragedigitalise.user.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -16,12 +27,17 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class UserController {
 
+    private static final Logger log = LoggerFactory.getLogger(UserController.class);
+
     @Autowired
     private UserService userService;
 
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private UserResponseMapper userResponseMapper;
+
     @GetMapping("/health")
     public ResponseEntity<?> healthCheck() {
         Map<String, Object> response = new HashMap<>();
@@ -29,89 +45,72 @@ public class UserController {
         response.put("message", "User Service is running");
         response.put("timestamp", System.currentTimeMillis());
 
-        System.out.println("💚 USER - HEALTH CHECK - Service OK");
+        log.debug("💚 USER - HEALTH CHECK - Service OK");
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/test-profile")
     public ResponseEntity<?> testProfile(@RequestParam String email) {
         try {
-            System.out.println("🧪 USER - TEST PROFILE - Email: " + email);
-
-            User user = userService.findUserByEmail(email);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", "Test profile sans auth");
-            response.put("user", Map.of(
-                    "userId", user.getId(),
-                    "email", user.getEmail(),
-                    "firstName", user.getFirstName(),
-                    "lastName", user.getLastName(),
-                    "phone", user.getPhone(),
-                    "isVerified", user.getIsVerified(),
-                    "totalTrips", user.getTotalTrips()
-            ));
+            log.debug("🧪 USER - TEST PROFILE - Email: {}", email);
+
+            User user = userService.getUserProfile(email);
 
-            System.out.println("✅ USER - TEST PROFILE - Succès");
+            UserResult<UserProfileResponse> response = new UserResult<>(200, "Test profile sans auth", null,
+                    userResponseMapper.toProfile(user));
+
+            log.debug("✅ USER - TEST PROFILE - Succès");
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ USER - TEST PROFILE - Erreur: " + e.getMessage());
+            log.warn("❌ USER - TEST PROFILE - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", "Utilisateur non trouvé: " + e.getMessage()));
         }
     }
 
+    // ✅ PROFIL de l'utilisateur connecté (ETag / Last-Modified tirés de l'utilisateur en cache, 304 si inchangé)
     @GetMapping("/profile")
-    public ResponseEntity<?> getUserProfile(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getUserProfile(@RequestHeader("Authorization") String authHeader, WebRequest request) {
         try {
-            System.out.println("🔍 USER - PROFILE - Début de la requête");
-            System.out.println("🔍 USER - PROFILE - Authorization header: " +
-                    (authHeader != null ? authHeader.substring(0, Math.min(authHeader.length(), 20)) + "..." : "null"));
+            log.debug("🔍 USER - PROFILE - Début de la requête");
 
             // Extraire le token
             if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                System.out.println("❌ USER - PROFILE - Token manquant ou malformé");
+                log.debug("❌ USER - PROFILE - Token manquant ou malformé");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("status", 401, "message", "Token manquant ou malformé"));
             }
 
             String token = authHeader.substring(7);
-            System.out.println("🔑 USER - PROFILE - Token extrait (20 premiers chars): " +
-                    token.substring(0, Math.min(token.length(), 20)) + "...");
 
             // Extraire l'email du token
             String email = jwtService.extractUsername(token);
-            System.out.println("📧 USER - PROFILE - Email extrait du token: " + email);
+            log.debug("📧 USER - PROFILE - Email extrait du token: {}", email);
 
             // Récupérer l'utilisateur
-            User user = userService.findUserByEmail(email);
-            System.out.println("👤 USER - PROFILE - Utilisateur trouvé: " + user.getEmail());
+            User user = userService.getUserProfile(email);
+            log.debug("👤 USER - PROFILE - Utilisateur trouvé: {}", user.getEmail());
+
+            // Réponse propre à l'utilisateur : cache du navigateur uniquement, revalidée à chaque lecture
+            CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+            LocalDateTime version = user.getUpdatedAt() != null ? user.getUpdatedAt() : user.getCreatedAt();
+            if (request.checkNotModified(userEtag(user.getId(), version),
+                    version.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())) {
+                log.debug("♻️ USER - PROFILE - Non modifié");
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+            }
 
             // Construire la réponse
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", "Profil récupéré avec succès");
-            response.put("user", Map.of(
-                    "userId", user.getId(),
-                    "email", user.getEmail(),
-                    "firstName", user.getFirstName(),
-                    "lastName", user.getLastName(),
-                    "phone", user.getPhone() != null ? user.getPhone() : "",
-                    "isVerified", user.getIsVerified(),
-                    "isDriver", user.getIsDriver(),
-                    "totalTrips", user.getTotalTrips(),
-                    "status", user.getStatus().toString(),
-                    "createdAt", user.getCreatedAt()
-            ));
+            UserResult<UserProfileResponse> response = new UserResult<>(200, "Profil récupéré avec succès", null,
+                    userResponseMapper.toProfile(user));
 
-            System.out.println("✅ USER - PROFILE - Profil récupéré avec succès");
-            return ResponseEntity.ok(response);
+            log.debug("✅ USER - PROFILE - Profil récupéré avec succès");
+            // checkNotModified a déjà posé les en-têtes ETag et Last-Modified sur la réponse
+            return ResponseEntity.ok().cacheControl(cacheControl).body(response);
 
         } catch (Exception e) {
-            System.err.println("❌ USER - PROFILE - Erreur: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("❌ USER - PROFILE - Erreur: {}", e.getMessage(), e);
 
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of(
@@ -127,16 +126,9 @@ public class UserController {
         try {
             String token = authHeader.substring(7);
             String email = jwtService.extractUsername(token);
-            User user = userService.findUserByEmail(email);
+            User user = userService.getUserProfile(email);
 
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalTrips", user.getTotalTrips());
-            stats.put("isDriver", user.getIsDriver());
-            stats.put("isVerified", user.getIsVerified());
-            stats.put("memberSince", user.getCreatedAt());
-            stats.put("rating", user.getRating() != null ? user.getRating() : 0);
-
-            return ResponseEntity.ok(Map.of("status", 200, "stats", stats));
+            return ResponseEntity.ok(Map.of("status", 200, "stats", userResponseMapper.toStats(user)));
 
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -149,33 +141,21 @@ public class UserController {
             @RequestHeader("Authorization") String authHeader,
             @RequestBody Map<String, Object> updateData) {
         try {
-            System.out.println("🔄 USER - UPDATE PROFILE - Début");
+            log.debug("🔄 USER - UPDATE PROFILE - Début");
 
             String token = authHeader.substring(7);
             String email = jwtService.extractUsername(token);
 
             User updatedUser = userService.updateUserProfile(email, updateData);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", 200);
-            response.put("message", "Profil mis à jour avec succès");
-            response.put("user", Map.of(
-                    "userId", updatedUser.getId(),
-                    "email", updatedUser.getEmail(),
-                    "firstName", updatedUser.getFirstName(),
-                    "lastName", updatedUser.getLastName(),
-                    "phone", updatedUser.getPhone() != null ? updatedUser.getPhone() : "",
-                    "bio", updatedUser.getBio() != null ? updatedUser.getBio() : "",
-                    "dateOfBirth", updatedUser.getDateOfBirth(),
-                    "isVerified", updatedUser.getIsVerified(),
-                    "isDriver", updatedUser.getIsDriver()
-            ));
+            UserResult<UserDetailsResponse> response = new UserResult<>(200, "Profil mis à jour avec succès", null,
+                    userResponseMapper.toDetails(updatedUser));
 
-            System.out.println("✅ USER - UPDATE PROFILE - Succès");
+            log.debug("✅ USER - UPDATE PROFILE - Succès");
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ USER - UPDATE PROFILE - Erreur: " + e.getMessage());
+            log.warn("❌ USER - UPDATE PROFILE - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -186,7 +166,7 @@ public class UserController {
             @RequestHeader("Authorization") String authHeader,
             @RequestBody Map<String, String> passwordData) {
         try {
-            System.out.println("🔐 USER - CHANGE PASSWORD - Début");
+            log.debug("🔐 USER - CHANGE PASSWORD - Début");
 
             String token = authHeader.substring(7);
             String email = jwtService.extractUsername(token);
@@ -201,14 +181,14 @@ public class UserController {
 
             userService.changePassword(email, currentPassword, newPassword);
 
-            System.out.println("✅ USER - CHANGE PASSWORD - Succès");
+            log.debug("✅ USER - CHANGE PASSWORD - Succès");
             return ResponseEntity.ok(Map.of(
                     "status", 200,
                     "message", "Mot de passe modifié avec succès"
             ));
 
         } catch (Exception e) {
-            System.err.println("❌ USER - CHANGE PASSWORD - Erreur: " + e.getMessage());
+            log.warn("❌ USER - CHANGE PASSWORD - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -219,7 +199,7 @@ public class UserController {
             @RequestHeader("Authorization") String authHeader,
             @RequestBody Map<String, String> driverData) {
         try {
-            System.out.println("🚗 USER - BECOME DRIVER - Début");
+            log.debug("🚗 USER - BECOME DRIVER - Début");
 
             String token = authHeader.substring(7);
             String email = jwtService.extractUsername(token);
@@ -232,19 +212,15 @@ public class UserController {
 
             User user = userService.becomeDriver(email, driverLicense);
 
-            System.out.println("✅ USER - BECOME DRIVER - Succès");
-            return ResponseEntity.ok(Map.of(
-                    "status", 200,
-                    "message", "Vous êtes maintenant conducteur !",
-                    "user", Map.of(
-                            "userId", user.getId(),
-                            "isDriver", user.getIsDriver(),
-                            "driverLicense", user.getDriverLicense()
-                    )
-            ));
+            // Nouveau token : l'ancien porte encore isDriver=false
+            String newToken = jwtService.generateToken(user);
+
+            log.debug("✅ USER - BECOME DRIVER - Succès");
+            return ResponseEntity.ok(new UserResult<>(200, "Vous êtes maintenant conducteur !", newToken,
+                    userResponseMapper.toDriverStatus(user)));
 
         } catch (Exception e) {
-            System.err.println("❌ USER - BECOME DRIVER - Erreur: " + e.getMessage());
+            log.warn("❌ USER - BECOME DRIVER - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
@@ -253,23 +229,29 @@ public class UserController {
     @DeleteMapping("/profile")
     public ResponseEntity<?> deleteAccount(@RequestHeader("Authorization") String authHeader) {
         try {
-            System.out.println("🗑️ USER - DELETE ACCOUNT - Début");
+            log.debug("🗑️ USER - DELETE ACCOUNT - Début");
 
             String token = authHeader.substring(7);
             String email = jwtService.extractUsername(token);
 
             userService.deactivateAccount(email);
 
-            System.out.println("✅ USER - DELETE ACCOUNT - Succès");
+            log.debug("✅ USER - DELETE ACCOUNT - Succès");
             return ResponseEntity.ok(Map.of(
                     "status", 200,
                     "message", "Compte désactivé avec succès"
             ));
 
         } catch (Exception e) {
-            System.err.println("❌ USER - DELETE ACCOUNT - Erreur: " + e.getMessage());
+            log.warn("❌ USER - DELETE ACCOUNT - Erreur: {}", e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("status", 400, "message", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    // 🔧 ETag fort du profil : id et dernière modification à la microseconde (Spring ajoute les guillemets)
+    private static String userEtag(Long userId, LocalDateTime version) {
+        long micros = version.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + version.getNano() / 1_000;
+        return "u" + userId + "-" + micros;
+    }
+}
@@ -0,0 +1,9 @@
+package com.covoituragedigitalise.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Statut conducteur renvoyé par POST /api/users/become-driver.
+ */
+public record DriverStatusResponse(Long userId, @JsonProperty("isDriver") Boolean isDriver, String driverLicense) {
+}
@@ -0,0 +1,14 @@
+package com.covoituragedigitalise.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+
+/**
+ * Profil renvoyé après modification (PUT /api/users/profile).
+ */
+public record UserDetailsResponse(Long userId, String email, String firstName, String lastName, String phone,
+                                  String bio, LocalDate dateOfBirth,
+                                  @JsonProperty("isVerified") Boolean isVerified,
+                                  @JsonProperty("isDriver") Boolean isDriver) {
+}
@@ -0,0 +1,14 @@
+package com.covoituragedigitalise.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * Profil de l'utilisateur connecté (GET /api/users/profile).
+ */
+public record UserProfileResponse(Long userId, String email, String firstName, String lastName, String phone,
+                                  @JsonProperty("isVerified") Boolean isVerified,
+                                  @JsonProperty("isDriver") Boolean isDriver,
+                                  Integer totalTrips, String status, LocalDateTime createdAt) {
+}
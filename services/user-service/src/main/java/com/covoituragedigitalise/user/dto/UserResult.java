@@ -0,0 +1,10 @@
+package com.covoituragedigitalise.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Réponse portant un utilisateur, et le jeton JWT quand un nouveau jeton est émis.
+ */
+public record UserResult<T>(int status, String message,
+                            @JsonInclude(JsonInclude.Include.NON_NULL) String token, T user) {
+}
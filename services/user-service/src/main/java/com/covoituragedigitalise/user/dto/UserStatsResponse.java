@@ -0,0 +1,15 @@
+package com.covoituragedigitalise.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Statistiques du compte (GET /api/users/stats).
+ */
+public record UserStatsResponse(Integer totalTrips,
+                                @JsonProperty("isDriver") Boolean isDriver,
+                                @JsonProperty("isVerified") Boolean isVerified,
+                                LocalDateTime memberSince, BigDecimal rating) {
+}
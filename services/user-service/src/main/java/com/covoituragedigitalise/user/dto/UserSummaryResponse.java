@@ -0,0 +1,7 @@
+package com.covoituragedigitalise.user.dto;
+
+/**
+ * Identité publique renvoyée à l'inscription et à la connexion.
+ */
+public record UserSummaryResponse(String email, String firstName, String lastName, String phone) {
+}
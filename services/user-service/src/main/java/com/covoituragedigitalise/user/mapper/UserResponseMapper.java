@@ -0,0 +1,38 @@
+package com.covoituragedigitalise.user.mapper;
+
+import com.covoituragedigitalise.user.dto.DriverStatusResponse;
+import com.covoituragedigitalise.user.dto.UserDetailsResponse;
+import com.covoituragedigitalise.user.dto.UserDto;
+import com.covoituragedigitalise.user.dto.UserProfileResponse;
+import com.covoituragedigitalise.user.dto.UserStatsResponse;
+import com.covoituragedigitalise.user.dto.UserSummaryResponse;
+import com.covoituragedigitalise.user.entity.User;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Conversion des utilisateurs en réponses typées (code généré par MapStruct, sans réflexion).
+ * Un téléphone ou une bio absents sont rendus en chaîne vide, comme avant.
+ */
+@Mapper(componentModel = "spring")
+public interface UserResponseMapper {
+
+    @Mapping(target = "phone", defaultValue = "")
+    UserSummaryResponse toSummary(UserDto user);
+
+    @Mapping(target = "userId", source = "id")
+    @Mapping(target = "phone", defaultValue = "")
+    UserProfileResponse toProfile(User user);
+
+    @Mapping(target = "userId", source = "id")
+    @Mapping(target = "phone", defaultValue = "")
+    @Mapping(target = "bio", defaultValue = "")
+    UserDetailsResponse toDetails(User user);
+
+    @Mapping(target = "memberSince", source = "createdAt")
+    @Mapping(target = "rating", defaultValue = "0")
+    UserStatsResponse toStats(User user);
+
+    @Mapping(target = "userId", source = "id")
+    DriverStatusResponse toDriverStatus(User user);
+}
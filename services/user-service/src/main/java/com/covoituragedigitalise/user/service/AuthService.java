@@ -6,6 +6,8 @@ import com.covoituragedigitalise.user.dto.UserRegistrationDto;
 import com.covoituragedigitalise.user.dto.UserDto;
 import com.covoituragedigitalise.user.entity.User;
 import com.covoituragedigitalise.user.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -16,6 +18,8 @@ import org.springframework.stereotype.Service;
 @Service
 public class AuthService {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
     @Autowired
     private UserService userService;
 
@@ -34,10 +38,10 @@ public class AuthService {
     // ✅ MÉTHODE d'inscription
     public UserDto register(UserRegistrationDto request) {
         try {
-            System.out.println("🚀 AuthService - Inscription: " + request.getEmail());
+            log.debug("🚀 AuthService - Inscription: {}", request.getEmail());
             return userService.createUser(request);
         } catch (Exception e) {
-            System.err.println("❌ AuthService - Erreur inscription: " + e.getMessage());
+            log.warn("❌ AuthService - Erreur inscription: {}", e.getMessage());
             throw e;
         }
     }
@@ -45,7 +49,7 @@ public class AuthService {
     // ✅ MÉTHODE d'authentification
     public UserResponseDto authenticate(UserLoginDto request) {
         try {
-            System.out.println("🔐 AuthService - Authentification: " + request.getEmail());
+            log.debug("🔐 AuthService - Authentification: {}", request.getEmail());
 
             // Authentifier l'utilisateur
             authenticationManager.authenticate(
@@ -59,21 +63,21 @@ public class AuthService {
             User user = userRepository.findByEmail(request.getEmail())
                     .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
 
-            // Générer le token JWT
+            // Générer le token JWT avec l'identité (uid, isDriver, status) dans les claims
             UserDetails userDetails = userDetailsService.loadUserByUsername(request.getEmail());
-            String jwtToken = jwtService.generateToken(userDetails);
+            String jwtToken = jwtService.generateToken(jwtService.identityClaims(user), userDetails);
 
             // Convertir en DTO
-            UserDto userDto = userService.getUserByEmail(request.getEmail());
+            UserDto userDto = userService.convertToUserDto(user);
 
             // Retourner la réponse avec token
             UserResponseDto response = new UserResponseDto(jwtToken, userDto);
-            System.out.println("✅ AuthService - Authentification réussie");
+            log.info("✅ AuthService - Authentification réussie");
 
             return response;
 
         } catch (Exception e) {
-            System.err.println("❌ AuthService - Erreur authentification: " + e.getMessage());
+            log.warn("❌ AuthService - Erreur authentification: {}", e.getMessage());
             throw e;
         }
     }
@@ -2,6 +2,8 @@ package com.covoituragedigitalise.user.service;
 
 import com.covoituragedigitalise.user.entity.User;
 import com.covoituragedigitalise.user.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -13,18 +15,20 @@ import java.util.ArrayList;
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
+
     @Autowired
     private UserRepository userRepository;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         try {
-            System.out.println("🔍 UserDetailsService - Recherche utilisateur: " + email);
+            log.debug("🔍 UserDetailsService - Recherche utilisateur: {}", email);
 
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé: " + email));
 
-            System.out.println("✅ UserDetailsService - Utilisateur trouvé: " + user.getEmail());
+            log.debug("✅ UserDetailsService - Utilisateur trouvé: {}", user.getEmail());
 
             return org.springframework.security.core.userdetails.User.builder()
                     .username(user.getEmail())
@@ -37,7 +41,7 @@ public class CustomUserDetailsService implements UserDetailsService {
                     .build();
 
         } catch (Exception e) {
-            System.err.println("❌ UserDetailsService - Erreur: " + e.getMessage());
+            log.warn("❌ UserDetailsService - Erreur: {}", e.getMessage());
             throw new UsernameNotFoundException("Erreur lors de la recherche de l'utilisateur: " + email, e);
         }
     }
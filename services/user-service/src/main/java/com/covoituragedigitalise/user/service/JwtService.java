@@ -1,34 +1,76 @@
 package com.covoituragedigitalise.user.service;
 
+import com.covoituragedigitalise.user.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtService.class);
+
     @Value("${jwt.secret}")
     private String secretKey;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long tokenCacheMaxSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Clé HMAC décodée une seule fois au démarrage
+    private SecretKey signInKey;
+
+    // Tokens déjà vérifiés (clé : SHA-256 du token), expirés à l'échéance du token
+    private Cache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);
+
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+    }
+
     public String extractUsername(String token) {
         try {
             String username = extractClaim(token, Claims::getSubject);
-            System.out.println("🔍 JwtService - Username extrait: " + username);
+            log.debug("🔍 JwtService - Username extrait: {}", username);
             return username;
         } catch (Exception e) {
-            System.err.println("❌ JwtService - Erreur extraction username: " + e.getMessage());
+            log.warn("❌ JwtService - Erreur extraction username: {}", e.getMessage());
             throw e;
         }
     }
@@ -48,8 +90,25 @@ public class JwtService {
 
     // ✅ MÉTHODE pour générer token avec email String
     public String generateToken(String email) {
+        return generateToken(new HashMap<>(), email);
+    }
+
+    // ✅ MÉTHODE pour générer un token portant l'identité de l'utilisateur (uid, isDriver, status)
+    public String generateToken(User user) {
+        return generateToken(identityClaims(user), user.getEmail());
+    }
+
+    // ✅ Claims d'identité lus par trip-service sans appel réseau ni requête SQL
+    public Map<String, Object> identityClaims(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("uid", user.getId());
+        claims.put("isDriver", Boolean.TRUE.equals(user.getIsDriver()));
+        claims.put("status", user.getStatus().name());
+        return claims;
+    }
+
+    public String generateToken(Map<String, Object> extraClaims, String email) {
         try {
-            Map<String, Object> extraClaims = new HashMap<>();
             String token = Jwts
                     .builder()
                     .claims(extraClaims)
@@ -59,10 +118,10 @@ public class JwtService {
                     .signWith(getSignInKey())
                     .compact();
 
-            System.out.println("✅ JwtService - Token généré pour: " + email);
+            log.debug("✅ JwtService - Token généré pour: {}", email);
             return token;
         } catch (Exception e) {
-            System.err.println("❌ JwtService - Erreur génération token: " + e.getMessage());
+            log.warn("❌ JwtService - Erreur génération token: {}", e.getMessage());
             throw e;
         }
     }
@@ -87,10 +146,10 @@ public class JwtService {
         try {
             final String username = extractUsername(token);
             boolean isValid = (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-            System.out.println("🔍 JwtService - Token valid pour " + username + ": " + isValid);
+            log.debug("🔍 JwtService - Token valid pour {}: {}", username, isValid);
             return isValid;
         } catch (Exception e) {
-            System.err.println("❌ JwtService - Token invalide: " + e.getMessage());
+            log.warn("❌ JwtService - Token invalide: {}", e.getMessage());
             return false;
         }
     }
@@ -98,10 +157,10 @@ public class JwtService {
     private boolean isTokenExpired(String token) {
         try {
             boolean expired = extractExpiration(token).before(new Date());
-            System.out.println("🕐 JwtService - Token expiré: " + expired);
+            log.debug("🕐 JwtService - Token expiré: {}", expired);
             return expired;
         } catch (Exception e) {
-            System.err.println("❌ JwtService - Erreur vérification expiration: " + e.getMessage());
+            log.warn("❌ JwtService - Erreur vérification expiration: {}", e.getMessage());
             return true;
         }
     }
@@ -111,6 +170,17 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
+        String digest = digest(token);
+        Claims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = verifyToken(token);
+        verifiedTokens.put(digest, claims);
+        return claims;
+    }
+
+    private Claims verifyToken(String token) {
         try {
             Claims claims = Jwts
                     .parser()
@@ -119,29 +189,59 @@ public class JwtService {
                     .parseSignedClaims(token)
                     .getPayload();
 
-            System.out.println("✅ JwtService - Claims extraits avec succès");
+            log.debug("✅ JwtService - Claims extraits avec succès");
             return claims;
 
         } catch (ExpiredJwtException e) {
-            System.err.println("❌ JwtService - Token expiré");
+            log.warn("❌ JwtService - Token expiré");
             throw new RuntimeException("Token expiré", e);
         } catch (UnsupportedJwtException e) {
-            System.err.println("❌ JwtService - Token non supporté");
+            log.warn("❌ JwtService - Token non supporté");
             throw new RuntimeException("Token non supporté", e);
         } catch (MalformedJwtException e) {
-            System.err.println("❌ JwtService - Token malformé");
+            log.warn("❌ JwtService - Token malformé");
             throw new RuntimeException("Token malformé", e);
         } catch (SecurityException e) {
-            System.err.println("❌ JwtService - Signature invalide");
+            log.warn("❌ JwtService - Signature invalide");
             throw new RuntimeException("Signature du token invalide", e);
         } catch (IllegalArgumentException e) {
-            System.err.println("❌ JwtService - Token vide");
+            log.warn("❌ JwtService - Token vide");
             throw new RuntimeException("Token vide", e);
         }
     }
 
     private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    // Une entrée vit jusqu'à l'expiration du token, jamais au-delà
+    private static class TokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return 0;
+            }
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiration.getTime() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.covoituragedigitalise.user.service;
+
+import com.covoituragedigitalise.user.entity.User;
+import com.covoituragedigitalise.user.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Cache des identités par email : UserDetails pour JwtAuthenticationFilter et profil User pour les
+ * lectures des contrôleurs. Les entrées expirent après user.cache.ttl et sont invalidées explicitement
+ * par UserService à chaque modification du compte.
+ * Le chemin de connexion (AuthenticationManager) n'utilise pas ce cache : Spring Security efface
+ * le mot de passe des UserDetails après authentification.
+ * Les lectures manquantes sont chargées hors du verrou du cache, sur l'exécuteur de tâches de Spring :
+ * threads virtuels si spring.threads.virtual.enabled, pool de threads plateforme sinon. Une requête SQL
+ * faite sous ce verrou épinglerait le thread porteur en mode threads virtuels. Une invalidation pendant
+ * le chargement retire l'entrée en cours, qui n'est alors pas conservée.
+ */
+@Component
+public class UserIdentityCache {
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Exécuteur géré par Spring (arrêté avec le contexte), selon le mode de threads
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor loader;
+
+    @Value("${user.cache.ttl:5m}")
+    private Duration ttl;
+
+    @Value("${user.cache.max-size:10000}")
+    private long maxSize;
+
+    private AsyncCache<String, UserDetails> userDetails;
+    private AsyncCache<String, User> profiles;
+
+    @PostConstruct
+    public void init() {
+        userDetails = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .executor(loader)
+                .recordStats()
+                .buildAsync();
+        profiles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .executor(loader)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, userDetails.synchronous(), "users.details");
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles.synchronous(), "users.profiles");
+    }
+
+    // ✅ UserDetails pour l'authentification par token
+    public UserDetails getUserDetails(String email) {
+        return join(userDetails.get(email, userDetailsService::loadUserByUsername));
+    }
+
+    // ✅ Profil en lecture seule (ne pas modifier l'instance retournée)
+    public User getProfile(String email) {
+        User user = join(profiles.get(email, key -> userRepository.findByEmail(key).orElse(null)));
+        if (user == null) {
+            throw new UsernameNotFoundException("Utilisateur non trouvé: " + email);
+        }
+        return user;
+    }
+
+    // ✅ Invalider après toute modification du compte
+    public void invalidate(String email) {
+        userDetails.synchronous().invalidate(email);
+        profiles.synchronous().invalidate(email);
+    }
+
+    // Attendre le chargement ; l'exception du chargement est relancée telle quelle
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
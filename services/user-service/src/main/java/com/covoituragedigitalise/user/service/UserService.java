@@ -5,26 +5,34 @@ import com.covoituragedigitalise.user.dto.UserRegistrationDto;
 import com.covoituragedigitalise.user.entity.User;
 import com.covoituragedigitalise.user.entity.UserStatus;
 import com.covoituragedigitalise.user.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
     // ✅ MÉTHODE pour créer un utilisateur (utilisée par AuthService)
     public UserDto createUser(UserRegistrationDto registrationDto) {
         try {
-            System.out.println("🚀 UserService - Création utilisateur: " + registrationDto.getEmail());
+            log.debug("🚀 UserService - Création utilisateur: {}", registrationDto.getEmail());
 
             // Vérifications d'unicité
             if (userRepository.findByEmail(registrationDto.getEmail()).isPresent()) {
@@ -52,12 +60,12 @@ public class UserService {
 
             // Sauvegarder
             User savedUser = userRepository.save(user);
-            System.out.println("✅ UserService - Utilisateur créé avec ID: " + savedUser.getId());
+            log.info("✅ UserService - Utilisateur créé avec ID: {}", savedUser.getId());
 
             return convertToUserDto(savedUser);
 
         } catch (Exception e) {
-            System.err.println("❌ UserService - Erreur createUser: " + e.getMessage());
+            log.warn("❌ UserService - Erreur createUser: {}", e.getMessage());
             throw e;
         }
     }
@@ -65,35 +73,50 @@ public class UserService {
     // ✅ MÉTHODE pour trouver un utilisateur par email
     public User findUserByEmail(String email) {
         try {
-            System.out.println("🔍 UserService - Recherche utilisateur: " + email);
+            log.debug("🔍 UserService - Recherche utilisateur: {}", email);
 
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new IllegalArgumentException("Utilisateur non trouvé avec l'email: " + email));
 
-            System.out.println("✅ UserService - Utilisateur trouvé: " + user.getId());
+            log.debug("✅ UserService - Utilisateur trouvé: {}", user.getId());
             return user;
 
         } catch (Exception e) {
-            System.err.println("❌ UserService - Erreur findUserByEmail: " + e.getMessage());
+            // Message contenant l'email, et cas courant (échec de connexion) : niveau DEBUG
+            log.debug("❌ UserService - Erreur findUserByEmail: {}", e.getMessage());
             throw e;
         }
     }
 
+    // ✅ MÉTHODE pour lire un profil depuis le cache (lecture seule)
+    public User getUserProfile(String email) {
+        try {
+            return userIdentityCache.getProfile(email);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Utilisateur non trouvé avec l'email: " + email);
+        }
+    }
+
     // ✅ MÉTHODE pour récupérer UserDto par email (utilisée par AuthService)
     public UserDto getUserByEmail(String email) {
         try {
             User user = findUserByEmail(email);
             return convertToUserDto(user);
         } catch (Exception e) {
-            System.err.println("❌ UserService - Erreur getUserByEmail: " + e.getMessage());
+            log.debug("❌ UserService - Erreur getUserByEmail: {}", e.getMessage());
             throw e;
         }
     }
 
     // ✅ MÉTHODE pour vérifier les credentials lors du login
     public boolean validateCredentials(String email, String rawPassword) {
+        return findUserByCredentials(email, rawPassword).isPresent();
+    }
+
+    // ✅ MÉTHODE de login : utilisateur lu une seule fois, vide si le mot de passe ne correspond pas
+    public Optional<User> findUserByCredentials(String email, String rawPassword) {
         try {
-            System.out.println("🔐 UserService - Validation credentials: " + email);
+            log.debug("🔐 UserService - Validation credentials: {}", email);
 
             User user = findUserByEmail(email);
 
@@ -102,18 +125,18 @@ public class UserService {
             }
 
             boolean isValid = passwordEncoder.matches(rawPassword, user.getPassword());
-            System.out.println("✅ UserService - Credentials valides: " + isValid);
+            log.debug("✅ UserService - Credentials valides: {}", isValid);
 
-            return isValid;
+            return isValid ? Optional.of(user) : Optional.empty();
 
         } catch (Exception e) {
-            System.err.println("❌ UserService - Erreur validateCredentials: " + e.getMessage());
+            log.debug("❌ UserService - Erreur findUserByCredentials: {}", e.getMessage());
             throw e;
         }
     }
 
     // ✅ MÉTHODE de conversion User -> UserDto
-    private UserDto convertToUserDto(User user) {
+    public UserDto convertToUserDto(User user) {
         UserDto dto = new UserDto();
         dto.setEmail(user.getEmail());
         dto.setFirstName(user.getFirstName());
@@ -125,7 +148,7 @@ public class UserService {
     // ✅ NOUVELLE MÉTHODE pour mettre à jour le profil
     public User updateUserProfile(String email, Map<String, Object> updateData) {
         try {
-            System.out.println("🔄 UserService - Mise à jour profil: " + email);
+            log.debug("🔄 UserService - Mise à jour profil: {}", email);
 
             User user = findUserByEmail(email);
 
@@ -164,12 +187,13 @@ public class UserService {
             user.setUpdatedAt(java.time.LocalDateTime.now());
 
             User savedUser = userRepository.save(user);
-            System.out.println("✅ UserService - Profil mis à jour: " + savedUser.getId());
+            userIdentityCache.invalidate(email);
+            log.info("✅ UserService - Profil mis à jour: {}", savedUser.getId());
 
             return savedUser;
 
         } catch (Exception e) {
-            System.err.println("❌ UserService - Erreur updateUserProfile: " + e.getMessage());
+            log.warn("❌ UserService - Erreur updateUserProfile: {}", e.getMessage());
             throw e;
         }
     }
@@ -177,7 +201,7 @@ public class UserService {
     // ✅ NOUVELLE MÉTHODE pour changer le mot de passe
     public void changePassword(String email, String currentPassword, String newPassword) {
         try {
-            System.out.println("🔐 UserService - Changement mot de passe: " + email);
+            log.debug("🔐 UserService - Changement mot de passe: {}", email);
 
             User user = findUserByEmail(email);
 
@@ -196,10 +220,11 @@ public class UserService {
             user.setUpdatedAt(java.time.LocalDateTime.now());
 
             userRepository.save(user);
-            System.out.println("✅ UserService - Mot de passe changé: " + user.getId());
+            userIdentityCache.invalidate(email);
+            log.info("✅ UserService - Mot de passe changé: {}", user.getId());
 
         } catch (Exception e) {
-            System.err.println("❌ UserService - Erreur changePassword: " + e.getMessage());
+            log.warn("❌ UserService - Erreur changePassword: {}", e.getMessage());
             throw e;
         }
     }
@@ -207,7 +232,7 @@ public class UserService {
     // ✅ NOUVELLE MÉTHODE pour devenir conducteur
     public User becomeDriver(String email, String driverLicense) {
         try {
-            System.out.println("🚗 UserService - Devenir conducteur: " + email);
+            log.debug("🚗 UserService - Devenir conducteur: {}", email);
 
             User user = findUserByEmail(email);
 
@@ -232,12 +257,13 @@ public class UserService {
             user.setUpdatedAt(java.time.LocalDateTime.now());
 
             User savedUser = userRepository.save(user);
-            System.out.println("✅ UserService - Conducteur créé: " + savedUser.getId());
+            userIdentityCache.invalidate(email);
+            log.info("✅ UserService - Conducteur créé: {}", savedUser.getId());
 
             return savedUser;
 
         } catch (Exception e) {
-            System.err.println("❌ UserService - Erreur becomeDriver: " + e.getMessage());
+            log.warn("❌ UserService - Erreur becomeDriver: {}", e.getMessage());
             throw e;
         }
     }
@@ -245,7 +271,7 @@ public class UserService {
     // ✅ NOUVELLE MÉTHODE pour désactiver le compte
     public void deactivateAccount(String email) {
         try {
-            System.out.println("🗑️ UserService - Désactivation compte: " + email);
+            log.debug("🗑️ UserService - Désactivation compte: {}", email);
 
             User user = findUserByEmail(email);
 
@@ -254,10 +280,11 @@ public class UserService {
             user.setUpdatedAt(java.time.LocalDateTime.now());
 
             userRepository.save(user);
-            System.out.println("✅ UserService - Compte désactivé: " + user.getId());
+            userIdentityCache.invalidate(email);
+            log.info("✅ UserService - Compte désactivé: {}", user.getId());
 
         } catch (Exception e) {
-            System.err.println("❌ UserService - Erreur deactivateAccount: " + e.getMessage());
+            log.warn("❌ UserService - Erreur deactivateAccount: {}", e.getMessage());
             throw e;
         }
     }
@@ -0,0 +1,24 @@
+-- Schéma initial du user-service (tel que créé jusqu'ici par ddl-auto: update)
+
+CREATE TABLE users (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email               VARCHAR(255) NOT NULL,
+    password            VARCHAR(255) NOT NULL,
+    first_name          VARCHAR(255) NOT NULL,
+    last_name           VARCHAR(255) NOT NULL,
+    phone               VARCHAR(255),
+    profile_picture_url VARCHAR(255),
+    driver_license      VARCHAR(255),
+    is_verified         BOOLEAN,
+    is_driver           BOOLEAN,
+    rating              NUMERIC(3, 2),
+    total_trips         INTEGER,
+    date_of_birth       DATE,
+    bio                 VARCHAR(255),
+    status              VARCHAR(255),
+    created_at          TIMESTAMP(6) NOT NULL,
+    updated_at          TIMESTAMP(6),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT uk_users_phone UNIQUE (phone),
+    CONSTRAINT uk_users_driver_license UNIQUE (driver_license)
+);